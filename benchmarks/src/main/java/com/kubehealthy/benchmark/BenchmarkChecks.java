@@ -0,0 +1,54 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Synthetic checks and controllers shared by the benchmarks
+ */
+final class BenchmarkChecks {
+    
+    /**
+     * Long enough that scheduled runs never fire during a benchmark
+     */
+    static final long RUN_INTERVAL_SECONDS = 86_400;
+    
+    private BenchmarkChecks() {
+    }
+    
+    static HealthCheck newCheck(int index) {
+        HealthCheck check = new HealthCheck("bench-check-" + index, "default", RUN_INTERVAL_SECONDS, 30);
+        HealthCheck.PodSpec podSpec = new HealthCheck.PodSpec();
+        podSpec.setImage("busybox:latest");
+        podSpec.setCommand(List.of("sh", "-c"));
+        podSpec.setArgs(List.of("echo 'Health check passed'"));
+        check.setPodSpec(podSpec);
+        return check;
+    }
+    
+    static HealthCheckStatus failedStatus() {
+        return new HealthCheckStatus(HealthCheckStatus.CheckState.FAILED, false,
+            List.of("Check pod failed with status: Failed", "Pod logs: connection refused"),
+            Instant.now(), null, 3, null);
+    }
+    
+    /**
+     * A controller with the given number of registered checks, every
+     * {@code failingEvery}-th of which is failing (0 for none)
+     */
+    static HealthCheckController newController(int checkCount, int failingEvery) {
+        HealthCheckController controller = HealthCheckController.create(new NoopCheckExecutor());
+        for (int i = 0; i < checkCount; i++) {
+            HealthCheck check = newCheck(i);
+            if (failingEvery > 0 && i % failingEvery == 0) {
+                check.setStatus(failedStatus());
+            }
+            controller.registerHealthCheck(check);
+        }
+        return controller;
+    }
+}
@@ -0,0 +1,61 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.model.CheckResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link HealthCheckController#runHealthCheck} round trip with an
+ * executor that does nothing: admission, status updates, aggregate health and
+ * every listener (status, latency and SLO metrics)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerDispatchBenchmark {
+    
+    @Param({"10", "1000"})
+    private int checks;
+    
+    private HealthCheckController controller;
+    private String[] names;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkChecks.newController(checks, 0);
+        names = new String[checks];
+        for (int i = 0; i < checks; i++) {
+            names[i] = BenchmarkChecks.newCheck(i).getName();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.shutdown();
+    }
+    
+    @Benchmark
+    public CheckResult runHealthCheck() {
+        String name = names[next];
+        next = next + 1 == names.length ? 0 : next + 1;
+        return controller.runHealthCheck(name).join();
+    }
+}
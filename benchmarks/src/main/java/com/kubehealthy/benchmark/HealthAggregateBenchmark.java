@@ -0,0 +1,57 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.controller.HealthCheckController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregate health queries behind /healthz and /status; these should stay flat
+ * as the number of checks grows
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HealthAggregateBenchmark {
+    
+    @Param({"10", "1000", "100000"})
+    private int checks;
+    
+    private HealthCheckController controller;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        // One check in a hundred failing
+        controller = BenchmarkChecks.newController(checks, 100);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.shutdown();
+    }
+    
+    @Benchmark
+    public boolean isHealthy() {
+        return controller.isHealthy();
+    }
+    
+    @Benchmark
+    public long getFailingChecksCount() {
+        return controller.getFailingChecksCount();
+    }
+}
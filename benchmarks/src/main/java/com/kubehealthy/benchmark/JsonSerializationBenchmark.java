@@ -0,0 +1,79 @@
+package com.kuberhealthy.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kuberhealthy.model.CheckPhase;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the objects the HTTP endpoints write, using the
+ * same mapper settings as the HTTP server
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+    
+    private ObjectWriter checkWriter;
+    private ObjectWriter resultWriter;
+    private HealthCheck passingCheck;
+    private HealthCheck failingCheck;
+    private CheckResult result;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        checkWriter = objectMapper.writerFor(HealthCheck.class);
+        resultWriter = objectMapper.writerFor(CheckResult.class);
+        
+        passingCheck = BenchmarkChecks.newCheck(0);
+        failingCheck = BenchmarkChecks.newCheck(1);
+        failingCheck.setStatus(BenchmarkChecks.failedStatus());
+        
+        result = new CheckResult(passingCheck.getName(), false);
+        result.setRunDurationMillis(4210);
+        result.addError("Check pod failed with status: Failed");
+        result.addError("Pod logs: nslookup: can't resolve 'kubernetes.default.svc.cluster.local'");
+        result.setPhaseDurationMillis(CheckPhase.POD_CREATE, 35);
+        result.setPhaseDurationMillis(CheckPhase.SCHEDULING, 120);
+        result.setPhaseDurationMillis(CheckPhase.CONTAINER_START, 900);
+        result.setPhaseDurationMillis(CheckPhase.RUN, 3100);
+    }
+    
+    @Benchmark
+    public byte[] passingHealthCheck() throws JsonProcessingException {
+        return checkWriter.writeValueAsBytes(passingCheck);
+    }
+    
+    @Benchmark
+    public byte[] failingHealthCheck() throws JsonProcessingException {
+        return checkWriter.writeValueAsBytes(failingCheck);
+    }
+    
+    @Benchmark
+    public byte[] checkResult() throws JsonProcessingException {
+        return resultWriter.writeValueAsBytes(result);
+    }
+}
@@ -0,0 +1,175 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.benchmark.fake.FakeApiSettings;
+import com.kuberhealthy.benchmark.fake.FakeKubernetesApiServer;
+import com.kuberhealthy.check.ApiThrottle;
+import com.kuberhealthy.check.ExecutionMode;
+import com.kuberhealthy.check.KubernetesCheckExecutor;
+import com.kuberhealthy.controller.CheckScheduler;
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.controller.RoutingCheckExecutor;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.ClientBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load test of {@link KubernetesCheckExecutor} against the
+ * {@link FakeKubernetesApiServer}: registers N synthetic checks, lets them run
+ * for a fixed time and reports sustained checks/sec, API calls per check,
+ * completion latency percentiles and heap usage.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.kuberhealthy.benchmark.LoadGenerator \
+ *     --checks=1000 --interval=10 --duration=60 --api-latency-ms=5 --run-ms=500 \
+ *     --api-qps=50 --api-error-rate=0.01
+ * </pre>
+ */
+public class LoadGenerator {
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int checkCount = intOption(options, "checks", 1000);
+        long intervalSeconds = intOption(options, "interval", 10);
+        long durationSeconds = intOption(options, "duration", 60);
+        int maxInFlight = intOption(options, "max-in-flight", 0);
+        ExecutionMode executionMode = ExecutionMode.fromString(options.get("mode"), ExecutionMode.VIRTUAL);
+        
+        FakeApiSettings settings = new FakeApiSettings();
+        settings.setApiLatencyMillis(intOption(options, "api-latency-ms", 5));
+        settings.setApiErrorRate(doubleOption(options, "api-error-rate", 0));
+        settings.setScheduleDelayMillis(intOption(options, "schedule-ms", 50));
+        settings.setStartDelayMillis(intOption(options, "start-ms", 200));
+        settings.setRunMillis(intOption(options, "run-ms", 500));
+        settings.setPodFailureRate(doubleOption(options, "pod-failure-rate", 0));
+        
+        FakeKubernetesApiServer apiServer = new FakeKubernetesApiServer(settings);
+        String url = apiServer.start(intOption(options, "port", 0));
+        ApiClient apiClient = new ClientBuilder().setBasePath(url).build();
+        ApiThrottle apiThrottle = new ApiThrottle(
+            intOption(options, "api-qps", 0), intOption(options, "api-burst", 100), intOption(options, "api-retries", 3));
+        apiThrottle.install(apiClient);
+        
+        // The warm pool needs exec, which the fake server doesn't speak
+        KubernetesCheckExecutor executor = new KubernetesCheckExecutor(apiClient, executionMode, 0, 0);
+        RoutingCheckExecutor router = new RoutingCheckExecutor();
+        router.register(HealthCheck.TYPE_POD, executor, maxInFlight, 0);
+        HealthCheckController controller = HealthCheckController.create(router, new CheckScheduler());
+        ResultRecorder recorder = new ResultRecorder();
+        controller.addListener(recorder);
+        
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long startApiCalls = apiServer.getApiCallCount();
+        long startMillis = System.currentTimeMillis();
+        for (int i = 0; i < checkCount; i++) {
+            HealthCheck check = BenchmarkChecks.newCheck(i);
+            check.setRunIntervalSeconds(intervalSeconds);
+            controller.registerHealthCheck(check);
+        }
+        System.out.printf("Registered %d checks every %ds; running for %ds against %s%n",
+            checkCount, intervalSeconds, durationSeconds, url);
+        
+        long maxHeapUsed = 0;
+        long endMillis = startMillis + durationSeconds * 1000;
+        while (System.currentTimeMillis() < endMillis) {
+            Thread.sleep(1000);
+            maxHeapUsed = Math.max(maxHeapUsed, memory.getHeapMemoryUsage().getUsed());
+        }
+        double elapsedSeconds = (System.currentTimeMillis() - startMillis) / 1000.0;
+        long apiCalls = apiServer.getApiCallCount() - startApiCalls;
+        
+        controller.shutdown();
+        router.shutdown();
+        System.gc();
+        long heapAfterGc = memory.getHeapMemoryUsage().getUsed();
+        
+        long completed = recorder.completed.sum();
+        long[] latencies = recorder.latencies();
+        System.out.println();
+        System.out.printf("Completed checks:     %d (%d failed)%n", completed, recorder.failed.sum());
+        System.out.printf("Throughput:           %.1f checks/sec%n", completed / elapsedSeconds);
+        System.out.printf("API calls per check:  %.2f%n", completed > 0 ? (double) apiCalls / completed : 0.0);
+        System.out.printf("Latency p50/p99/max:  %d / %d / %d ms%n",
+            percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0));
+        System.out.printf("Heap max / after GC:  %d / %d MiB%n", maxHeapUsed >> 20, heapAfterGc >> 20);
+        System.out.printf("Pods left on server:  %d%n", apiServer.getPodCount());
+        System.out.println("API requests:         " + apiServer.getRequestCounts());
+        StringBuilder throttleMetrics = new StringBuilder();
+        apiThrottle.collect(throttleMetrics);
+        throttleMetrics.toString().lines()
+            .filter(line -> !line.startsWith("#"))
+            .forEach(line -> System.out.println("  " + line));
+        
+        executor.shutdown();
+        apiServer.stop();
+        System.exit(0);
+    }
+    
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+    
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+    
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+    
+    /**
+     * Collects the run duration of every completed check
+     */
+    private static class ResultRecorder implements HealthCheckListener {
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private long[] durations = new long[1024];
+        private int size;
+        
+        @Override
+        public void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+            completed.increment();
+            if (!result.isOk()) {
+                failed.increment();
+            }
+            synchronized (this) {
+                if (size == durations.length) {
+                    durations = Arrays.copyOf(durations, size * 2);
+                }
+                durations[size++] = result.getRunDurationMillis();
+            }
+        }
+        
+        synchronized long[] latencies() {
+            long[] sorted = Arrays.copyOf(durations, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
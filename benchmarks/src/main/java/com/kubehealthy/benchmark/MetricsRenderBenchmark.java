@@ -0,0 +1,69 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /metrics rendering: a full render of every collector, and scrapes that reuse
+ * the cached sections when nothing changed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsRenderBenchmark {
+    
+    @Param({"10", "1000", "10000"})
+    private int checks;
+    
+    private HealthCheckController controller;
+    private MetricsRegistry registry;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkChecks.newController(checks, 100);
+        // Run every check once so each has latency and SLO series
+        for (int i = 0; i < checks; i++) {
+            controller.runHealthCheck(BenchmarkChecks.newCheck(i).getName()).join();
+        }
+        registry = controller.getMetricsRegistry();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.shutdown();
+    }
+    
+    @Benchmark
+    public String render() {
+        return registry.render();
+    }
+    
+    @Benchmark
+    public ByteBuffer[] scrapeCached() {
+        return registry.scrape(false);
+    }
+    
+    @Benchmark
+    public ByteBuffer[] scrapeCachedGzip() {
+        return registry.scrape(true);
+    }
+}
@@ -0,0 +1,316 @@
+package com.kuberhealthy.benchmark;
+
+import com.kuberhealthy.benchmark.fake.FakeApiSettings;
+import com.kuberhealthy.benchmark.fake.FakeKubernetesApiServer;
+import com.kuberhealthy.check.HealthCheckExecutor;
+import com.kuberhealthy.cluster.LeaderElection;
+import com.kuberhealthy.cluster.ShardMembership;
+import com.kuberhealthy.controller.CheckOwnership;
+import com.kuberhealthy.controller.CheckScheduler;
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.ClientBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs several controllers as replicas of one deployment against the
+ * {@link FakeKubernetesApiServer}, sharing checks through
+ * {@link ShardMembership} or {@link LeaderElection}, and verifies that every
+ * scheduled run of every check happens on exactly one replica.
+ *
+ * After a steady phase, the replica running the most checks is cut off from
+ * the API until its lease has long expired, then reconnected, and finally
+ * another replica is shut down cleanly. Throughout, no check may run twice
+ * for the same schedule slot, the cut-off replica must stop running checks
+ * within a lease duration, and no check may go unrun for longer than a
+ * failover takes. Exits with status 1 on any violation.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.kuberhealthy.benchmark.ReplicaFailoverHarness \
+ *     --ownership=sharded --replicas=3 --checks=30
+ * </pre>
+ */
+public class ReplicaFailoverHarness {
+    
+    private static final String NAMESPACE = "kuberhealthy";
+    private static final String GROUP = "kuberhealthy";
+    private static final long STEADY_MILLIS = 5000;
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        boolean sharded = !"leader".equals(options.getOrDefault("ownership", "sharded"));
+        int replicaCount = Math.max(2, intOption(options, "replicas", 3));
+        int checkCount = intOption(options, "checks", 30);
+        long intervalMillis = intOption(options, "interval", 1) * 1000L;
+        int leaseSeconds = intOption(options, "lease-seconds", 3);
+        long renewMillis = intOption(options, "renew-ms", 500);
+        
+        // Worst case from a lease holder's last renewal to another replica running its
+        // checks: the lease runs out, someone notices on its next renew, then the
+        // next schedule slot comes round
+        long failoverMillis = leaseSeconds * 1000L + 2 * renewMillis + 2 * intervalMillis;
+        
+        FakeApiSettings settings = new FakeApiSettings();
+        settings.setApiLatencyMillis(intOption(options, "api-latency-ms", 2));
+        FakeKubernetesApiServer apiServer = new FakeKubernetesApiServer(settings);
+        String url = apiServer.start(intOption(options, "port", 0));
+        
+        Queue<Run> runs = new ConcurrentLinkedQueue<>();
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaCount; i++) {
+            Replica replica = new Replica("replica-" + i, url, runs);
+            replica.start(sharded, leaseSeconds, renewMillis, checkCount, intervalMillis);
+            replicas.add(replica);
+        }
+        System.out.printf("Started %d replicas with %s ownership and %d checks every %dms against %s%n",
+            replicaCount, sharded ? "sharded" : "leader", checkCount, intervalMillis, url);
+        
+        List<String> violations = new ArrayList<>();
+        
+        // Everyone has joined and settled once a failover's worth of time has passed
+        Thread.sleep(failoverMillis);
+        long steadyStart = System.currentTimeMillis();
+        Thread.sleep(STEADY_MILLIS);
+        Replica partitioned = busiest(replicas, runs, steadyStart);
+        
+        System.out.printf("Cutting %s off from the API%n", partitioned.identity);
+        long partitionedAt = System.currentTimeMillis();
+        partitioned.partitioned = true;
+        Thread.sleep(failoverMillis + STEADY_MILLIS);
+        for (Run run : runs) {
+            if (run.replica.equals(partitioned.identity) && run.startMillis > partitionedAt + leaseSeconds * 1000L) {
+                violations.add(String.format("%s ran %s %dms after being cut off, past its %ds lease",
+                    run.replica, run.check, run.startMillis - partitionedAt, leaseSeconds));
+            }
+        }
+        
+        System.out.printf("Reconnecting %s%n", partitioned.identity);
+        partitioned.partitioned = false;
+        Thread.sleep(failoverMillis + STEADY_MILLIS);
+        
+        Replica stopped = replicas.get(replicas.get(0) == partitioned ? 1 : 0);
+        System.out.printf("Shutting down %s%n", stopped.identity);
+        stopped.shutdown();
+        Thread.sleep(failoverMillis + STEADY_MILLIS);
+        long endMillis = System.currentTimeMillis();
+        
+        Map<String, List<Run>> runsByCheck = new TreeMap<>();
+        for (Run run : runs) {
+            if (run.startMillis >= steadyStart && run.startMillis < endMillis) {
+                runsByCheck.computeIfAbsent(run.check, k -> new ArrayList<>()).add(run);
+            }
+        }
+        long maxGapMillis = 0;
+        int duplicates = 0;
+        for (int i = 0; i < checkCount; i++) {
+            String check = BenchmarkChecks.newCheck(i).getName();
+            List<Run> checkRuns = runsByCheck.getOrDefault(check, new ArrayList<>());
+            checkRuns.sort((a, b) -> Long.compare(a.startMillis, b.startMillis));
+            long previous = steadyStart;
+            String previousReplica = null;
+            for (Run run : checkRuns) {
+                long gap = run.startMillis - previous;
+                // Two runs closer than half an interval are the same schedule slot
+                if (previousReplica != null && gap < intervalMillis / 2) {
+                    duplicates++;
+                    violations.add(String.format("%s ran on both %s and %s %dms apart",
+                        check, previousReplica, run.replica, gap));
+                }
+                if (gap > failoverMillis) {
+                    violations.add(String.format("%s went %dms without running before %s ran it",
+                        check, gap, run.replica));
+                }
+                maxGapMillis = Math.max(maxGapMillis, gap);
+                previous = run.startMillis;
+                previousReplica = run.replica;
+            }
+            long gap = endMillis - previous;
+            if (gap > failoverMillis) {
+                violations.add(String.format("%s had not run for %dms at the end", check, gap));
+            }
+            maxGapMillis = Math.max(maxGapMillis, gap);
+        }
+        
+        Map<String, Integer> runsByReplica = new TreeMap<>();
+        for (Run run : runs) {
+            if (run.startMillis >= steadyStart && run.startMillis < endMillis) {
+                runsByReplica.merge(run.replica, 1, Integer::sum);
+            }
+        }
+        System.out.println();
+        System.out.printf("Runs by replica:     %s%n", runsByReplica);
+        System.out.printf("Duplicate runs:      %d%n", duplicates);
+        System.out.printf("Longest gap:         %dms (bound %dms)%n", maxGapMillis, failoverMillis);
+        System.out.println("API requests:        " + apiServer.getRequestCounts());
+        
+        for (Replica replica : replicas) {
+            if (replica != stopped) {
+                replica.shutdown();
+            }
+        }
+        apiServer.stop();
+        
+        if (!violations.isEmpty()) {
+            System.out.printf("%d violations:%n", violations.size());
+            violations.stream().limit(50).forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+        System.out.println("Every check ran exactly once per slot and failed over within bounds");
+        System.exit(0);
+    }
+    
+    /**
+     * The replica that ran the most checks since the given time, so cutting it
+     * off forces a failover whichever ownership mode is in use
+     */
+    private static Replica busiest(List<Replica> replicas, Queue<Run> runs, long sinceMillis) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Run run : runs) {
+            if (run.startMillis >= sinceMillis) {
+                counts.merge(run.replica, 1, Integer::sum);
+            }
+        }
+        Replica busiest = replicas.get(0);
+        for (Replica replica : replicas) {
+            if (counts.getOrDefault(replica.identity, 0) > counts.getOrDefault(busiest.identity, 0)) {
+                busiest = replica;
+            }
+        }
+        return busiest;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+    
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+    
+    /**
+     * One controller with its own API client, which fails every request while
+     * the replica is partitioned
+     */
+    private static class Replica {
+        private final String identity;
+        private final ApiClient apiClient;
+        private final HealthCheckController controller;
+        private volatile boolean partitioned;
+        private ShardMembership membership;
+        private LeaderElection election;
+        
+        Replica(String identity, String url, Queue<Run> runs) {
+            this.identity = identity;
+            this.apiClient = new ClientBuilder().setBasePath(url).build();
+            apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
+                .addInterceptor(chain -> {
+                    if (partitioned) {
+                        throw new IOException(identity + " is partitioned from the API server");
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build());
+            // No jitter, so every replica fires each check at the same slot
+            this.controller = HealthCheckController.create(
+                new RecordingExecutor(identity, runs), new CheckScheduler(2, 0));
+        }
+        
+        void start(boolean sharded, int leaseSeconds, long renewMillis, int checkCount, long intervalMillis) {
+            CheckOwnership ownership;
+            if (sharded) {
+                membership = new ShardMembership(apiClient, controller, NAMESPACE, GROUP, identity,
+                    leaseSeconds, renewMillis);
+                ownership = membership;
+            } else {
+                election = new LeaderElection(apiClient, controller, NAMESPACE, GROUP, identity,
+                    Duration.ofSeconds(leaseSeconds), Duration.ofSeconds(leaseSeconds).multipliedBy(2).dividedBy(3),
+                    Duration.ofMillis(renewMillis));
+                ownership = election;
+            }
+            controller.setOwnership(ownership);
+            for (int i = 0; i < checkCount; i++) {
+                HealthCheck check = BenchmarkChecks.newCheck(i);
+                check.setRunIntervalSeconds(intervalMillis / 1000);
+                controller.registerHealthCheck(check);
+            }
+            if (membership != null) {
+                membership.start();
+            } else {
+                election.start();
+            }
+        }
+        
+        void shutdown() {
+            if (membership != null) {
+                membership.shutdown();
+            } else {
+                election.shutdown();
+            }
+            controller.shutdown();
+        }
+    }
+    
+    /**
+     * Passes every check immediately, recording which replica ran it and when
+     */
+    private static class RecordingExecutor implements HealthCheckExecutor {
+        private final String replica;
+        private final Queue<Run> runs;
+        
+        RecordingExecutor(String replica, Queue<Run> runs) {
+            this.replica = replica;
+            this.runs = runs;
+        }
+        
+        @Override
+        public CompletableFuture<CheckResult> execute(HealthCheck healthCheck) {
+            runs.add(new Run(healthCheck.getName(), replica, System.currentTimeMillis()));
+            CheckResult result = new CheckResult(healthCheck.getName(), true);
+            result.setRunDurationMillis(1);
+            return CompletableFuture.completedFuture(result);
+        }
+        
+        @Override
+        public boolean cancel(String checkUUID) {
+            return false;
+        }
+        
+        @Override
+        public boolean isRunning(String checkName) {
+            return false;
+        }
+    }
+    
+    private static final class Run {
+        private final String check;
+        private final String replica;
+        private final long startMillis;
+        
+        Run(String check, String replica, long startMillis) {
+            this.check = check;
+            this.replica = replica;
+            this.startMillis = startMillis;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.kuberhealthy.benchmark.fake;
+
+/**
+ * Behaviour of the {@link FakeKubernetesApiServer}: how slow and unreliable its
+ * API calls are, and how long check pods spend in each lifecycle phase
+ */
+public class FakeApiSettings {
+    
+    private long apiLatencyMillis = 5;
+    private double apiErrorRate;
+    private long scheduleDelayMillis = 50;
+    private long startDelayMillis = 200;
+    private long runMillis = 500;
+    private double podFailureRate;
+    private int logLines = 20;
+    
+    /**
+     * Delay added to every non-watch request
+     */
+    public long getApiLatencyMillis() {
+        return apiLatencyMillis;
+    }
+    
+    public void setApiLatencyMillis(long apiLatencyMillis) {
+        this.apiLatencyMillis = apiLatencyMillis;
+    }
+    
+    /**
+     * Fraction of non-watch requests answered with a 500
+     */
+    public double getApiErrorRate() {
+        return apiErrorRate;
+    }
+    
+    public void setApiErrorRate(double apiErrorRate) {
+        this.apiErrorRate = apiErrorRate;
+    }
+    
+    /**
+     * Time from creation until a pod is bound to a node
+     */
+    public long getScheduleDelayMillis() {
+        return scheduleDelayMillis;
+    }
+    
+    public void setScheduleDelayMillis(long scheduleDelayMillis) {
+        this.scheduleDelayMillis = scheduleDelayMillis;
+    }
+    
+    /**
+     * Time from scheduling until the container is running
+     */
+    public long getStartDelayMillis() {
+        return startDelayMillis;
+    }
+    
+    public void setStartDelayMillis(long startDelayMillis) {
+        this.startDelayMillis = startDelayMillis;
+    }
+    
+    /**
+     * Time the container runs before the pod terminates
+     */
+    public long getRunMillis() {
+        return runMillis;
+    }
+    
+    public void setRunMillis(long runMillis) {
+        this.runMillis = runMillis;
+    }
+    
+    /**
+     * Fraction of pods that end Failed rather than Succeeded
+     */
+    public double getPodFailureRate() {
+        return podFailureRate;
+    }
+    
+    public void setPodFailureRate(double podFailureRate) {
+        this.podFailureRate = podFailureRate;
+    }
+    
+    /**
+     * Lines in every pod's log
+     */
+    public int getLogLines() {
+        return logLines;
+    }
+    
+    public void setLogLines(int logLines) {
+        this.logLines = logLines;
+    }
+}
@@ -0,0 +1,631 @@
+package com.kuberhealthy.benchmark.fake;
+
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ContainerState;
+import io.kubernetes.client.openapi.models.V1ContainerStateRunning;
+import io.kubernetes.client.openapi.models.V1ContainerStateTerminated;
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.openapi.models.V1PodStatus;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the parts of the Kubernetes API the check executor
+ * uses: pod create, read, log, delete and delete-collection, plus list and
+ * watch of pods across namespaces, and the Lease create, read, replace, list
+ * and delete calls behind leader election and shard membership.
+ *
+ * Created pods move through scheduled, running and terminated on timers from
+ * {@link FakeApiSettings}, and every change is published to watchers as it
+ * would be by a real API server. Non-watch requests can be slowed down and
+ * made to fail at random, and every request is counted so a load test can
+ * report API calls per check.
+ */
+public class FakeKubernetesApiServer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FakeKubernetesApiServer.class);
+    private static final int HISTORY_EVENTS = 100_000;
+    private static final long WATCH_POLL_MILLIS = 250;
+    private static final String NODE_NAME = "fake-node";
+    private static final String LEASES = "/apis/coordination.k8s.io/v1/namespaces/{namespace}/leases";
+    
+    private final FakeApiSettings settings;
+    private final JSON json;
+    private final Map<String, V1Pod> pods;
+    private final Map<String, V1Lease> leases;
+    private final Deque<Event> history;
+    private final Set<Subscriber> subscribers;
+    private final Map<String, LongAdder> requestCounts;
+    private final ScheduledExecutorService lifecycle;
+    private long resourceVersion;
+    private volatile boolean running;
+    private Undertow server;
+    
+    public FakeKubernetesApiServer(FakeApiSettings settings) {
+        this.settings = settings;
+        this.json = new JSON();
+        this.pods = new ConcurrentHashMap<>();
+        this.leases = new ConcurrentHashMap<>();
+        this.history = new ArrayDeque<>();
+        this.subscribers = ConcurrentHashMap.newKeySet();
+        this.requestCounts = new ConcurrentHashMap<>();
+        this.lifecycle = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "fake-pod-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start listening on the given port, or any free port if 0
+     *
+     * @return The base URL to point an ApiClient at
+     */
+    public String start(int port) {
+        HttpHandler routes = Handlers.routing()
+            .post("/api/v1/namespaces/{namespace}/pods", blocking(this::handleCreate))
+            .get("/api/v1/namespaces/{namespace}/pods/{name}/log", blocking(this::handleLog))
+            .get("/api/v1/namespaces/{namespace}/pods/{name}", blocking(this::handleRead))
+            .delete("/api/v1/namespaces/{namespace}/pods/{name}", blocking(this::handleDelete))
+            .delete("/api/v1/namespaces/{namespace}/pods", blocking(this::handleDeleteCollection))
+            .get("/api/v1/namespaces/{namespace}/pods", blocking(this::handleListOrWatch))
+            .get("/api/v1/pods", blocking(this::handleListOrWatch))
+            .post(LEASES, blocking(this::handleCreateLease))
+            .get(LEASES + "/{name}", blocking(this::handleReadLease))
+            .put(LEASES + "/{name}", blocking(this::handleReplaceLease))
+            .delete(LEASES + "/{name}", blocking(this::handleDeleteLease))
+            .get(LEASES, blocking(this::handleListLeases))
+            .setFallbackHandler(exchange -> {
+                count(exchange.getRequestMethod() + " unsupported");
+                sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "Not supported by the fake API server");
+            });
+        
+        running = true;
+        server = Undertow.builder()
+            .addHttpListener(port, "127.0.0.1")
+            .setHandler(routes)
+            .build();
+        server.start();
+        InetSocketAddress address = (InetSocketAddress) server.getListenerInfo().get(0).getAddress();
+        String url = "http://127.0.0.1:" + address.getPort();
+        logger.info("Fake Kubernetes API server listening on {}", url);
+        return url;
+    }
+    
+    public void stop() {
+        running = false;
+        lifecycle.shutdownNow();
+        if (server != null) {
+            server.stop();
+        }
+    }
+    
+    /**
+     * Requests served so far, keyed by verb and resource
+     */
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requestCounts.forEach((key, adder) -> counts.put(key, adder.sum()));
+        return counts;
+    }
+    
+    /**
+     * Requests served so far, excluding watches
+     */
+    public long getApiCallCount() {
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : requestCounts.entrySet()) {
+            if (!entry.getKey().startsWith("watch")) {
+                total += entry.getValue().sum();
+            }
+        }
+        return total;
+    }
+    
+    public int getPodCount() {
+        return pods.size();
+    }
+    
+    private void handleCreate(HttpServerExchange exchange) throws Exception {
+        count("create pod");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String namespace = param(exchange, "namespace");
+        V1Pod pod = json.deserialize(new String(exchange.getInputStream().readAllBytes(),
+            StandardCharsets.UTF_8), V1Pod.class);
+        String key = namespace + "/" + pod.getMetadata().getName();
+        
+        String body;
+        synchronized (this) {
+            if (pods.containsKey(key)) {
+                sendStatus(exchange, StatusCodes.CONFLICT, "AlreadyExists",
+                    "pods \"" + pod.getMetadata().getName() + "\" already exists");
+                return;
+            }
+            pod.getMetadata().setNamespace(namespace);
+            pod.getMetadata().setUid(UUID.randomUUID().toString());
+            pod.getMetadata().setCreationTimestamp(OffsetDateTime.now());
+            pod.setStatus(new V1PodStatus().phase("Pending"));
+            pods.put(key, pod);
+            body = publish("ADDED", pod);
+        }
+        
+        lifecycle.schedule(() -> transition(key, this::schedule),
+            settings.getScheduleDelayMillis(), TimeUnit.MILLISECONDS);
+        sendJson(exchange, StatusCodes.CREATED, body);
+    }
+    
+    private void handleRead(HttpServerExchange exchange) throws Exception {
+        count("get pod");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String key = param(exchange, "namespace") + "/" + param(exchange, "name");
+        String body;
+        synchronized (this) {
+            V1Pod pod = pods.get(key);
+            body = pod != null ? json.serialize(pod) : null;
+        }
+        if (body == null) {
+            sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "pods \"" + param(exchange, "name") + "\" not found");
+            return;
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    private void handleLog(HttpServerExchange exchange) throws Exception {
+        count("get pod log");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String name = param(exchange, "name");
+        if (!pods.containsKey(param(exchange, "namespace") + "/" + name)) {
+            sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "pods \"" + name + "\" not found");
+            return;
+        }
+        
+        int lines = settings.getLogLines();
+        String tailLines = param(exchange, "tailLines");
+        int first = tailLines != null ? Math.max(0, lines - Integer.parseInt(tailLines)) : 0;
+        StringBuilder log = new StringBuilder();
+        for (int i = first; i < lines; i++) {
+            log.append("check ").append(name).append(" output line ").append(i).append('\n');
+        }
+        byte[] bytes = log.toString().getBytes(StandardCharsets.UTF_8);
+        String limitBytes = param(exchange, "limitBytes");
+        int length = limitBytes != null ? Math.min(bytes.length, Integer.parseInt(limitBytes)) : bytes.length;
+        
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+        exchange.setStatusCode(StatusCodes.OK);
+        exchange.getOutputStream().write(bytes, 0, length);
+    }
+    
+    private void handleDelete(HttpServerExchange exchange) throws Exception {
+        count("delete pod");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String body;
+        synchronized (this) {
+            V1Pod pod = pods.remove(param(exchange, "namespace") + "/" + param(exchange, "name"));
+            body = pod != null ? delete(pod) : null;
+        }
+        if (body == null) {
+            sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "pods \"" + param(exchange, "name") + "\" not found");
+            return;
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    private void handleDeleteCollection(HttpServerExchange exchange) throws Exception {
+        count("deletecollection pods");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String namespace = param(exchange, "namespace");
+        LabelSelector selector = LabelSelector.parse(param(exchange, "labelSelector"));
+        synchronized (this) {
+            for (V1Pod pod : new ArrayList<>(pods.values())) {
+                if (namespace.equals(pod.getMetadata().getNamespace())
+                        && selector.matches(pod.getMetadata().getLabels())) {
+                    pods.remove(namespace + "/" + pod.getMetadata().getName());
+                    delete(pod);
+                }
+            }
+        }
+        sendStatus(exchange, StatusCodes.OK, null, null);
+    }
+    
+    private void handleListOrWatch(HttpServerExchange exchange) throws Exception {
+        String namespace = param(exchange, "namespace");
+        LabelSelector selector = LabelSelector.parse(param(exchange, "labelSelector"));
+        if ("true".equals(param(exchange, "watch"))) {
+            count("watch pods");
+            String from = param(exchange, "resourceVersion");
+            String timeout = param(exchange, "timeoutSeconds");
+            watch(exchange, namespace, selector,
+                from != null ? Long.parseLong(from) : 0,
+                timeout != null ? Long.parseLong(timeout) : 300);
+            return;
+        }
+        
+        count("list pods");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String body;
+        synchronized (this) {
+            V1PodList list = new V1PodList();
+            list.setApiVersion("v1");
+            list.setKind("PodList");
+            list.setMetadata(new V1ListMeta().resourceVersion(Long.toString(resourceVersion)));
+            list.setItems(new ArrayList<>());
+            for (V1Pod pod : pods.values()) {
+                if ((namespace == null || namespace.equals(pod.getMetadata().getNamespace()))
+                        && selector.matches(pod.getMetadata().getLabels())) {
+                    list.addItemsItem(pod);
+                }
+            }
+            body = json.serialize(list);
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    private void handleCreateLease(HttpServerExchange exchange) throws Exception {
+        count("create lease");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String namespace = param(exchange, "namespace");
+        V1Lease lease = json.deserialize(new String(exchange.getInputStream().readAllBytes(),
+            StandardCharsets.UTF_8), V1Lease.class);
+        String name = lease.getMetadata().getName();
+        
+        String body;
+        synchronized (this) {
+            if (leases.containsKey(namespace + "/" + name)) {
+                sendStatus(exchange, StatusCodes.CONFLICT, "AlreadyExists", "leases.coordination.k8s.io \"" + name + "\" already exists");
+                return;
+            }
+            lease.getMetadata().setNamespace(namespace);
+            lease.getMetadata().setUid(UUID.randomUUID().toString());
+            lease.getMetadata().setCreationTimestamp(OffsetDateTime.now());
+            lease.getMetadata().setResourceVersion(Long.toString(++resourceVersion));
+            leases.put(namespace + "/" + name, lease);
+            body = json.serialize(lease);
+        }
+        sendJson(exchange, StatusCodes.CREATED, body);
+    }
+    
+    private void handleReadLease(HttpServerExchange exchange) throws Exception {
+        count("get lease");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String name = param(exchange, "name");
+        String body;
+        synchronized (this) {
+            V1Lease lease = leases.get(param(exchange, "namespace") + "/" + name);
+            body = lease != null ? json.serialize(lease) : null;
+        }
+        if (body == null) {
+            sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "leases.coordination.k8s.io \"" + name + "\" not found");
+            return;
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    /**
+     * Replace a lease, refusing stale writes the way the API server does: a
+     * resourceVersion in the body must match the stored one
+     */
+    private void handleReplaceLease(HttpServerExchange exchange) throws Exception {
+        count("replace lease");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String namespace = param(exchange, "namespace");
+        String name = param(exchange, "name");
+        V1Lease lease = json.deserialize(new String(exchange.getInputStream().readAllBytes(),
+            StandardCharsets.UTF_8), V1Lease.class);
+        
+        String body;
+        synchronized (this) {
+            V1Lease stored = leases.get(namespace + "/" + name);
+            if (stored == null) {
+                sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "leases.coordination.k8s.io \"" + name + "\" not found");
+                return;
+            }
+            String expected = lease.getMetadata().getResourceVersion();
+            if (expected != null && !expected.equals(stored.getMetadata().getResourceVersion())) {
+                sendStatus(exchange, StatusCodes.CONFLICT, "Conflict", "Operation cannot be fulfilled on leases.coordination.k8s.io \""
+                    + name + "\": the object has been modified; please apply your changes to the latest version and try again");
+                return;
+            }
+            lease.getMetadata().setName(name);
+            lease.getMetadata().setNamespace(namespace);
+            lease.getMetadata().setUid(stored.getMetadata().getUid());
+            lease.getMetadata().setCreationTimestamp(stored.getMetadata().getCreationTimestamp());
+            lease.getMetadata().setResourceVersion(Long.toString(++resourceVersion));
+            leases.put(namespace + "/" + name, lease);
+            body = json.serialize(lease);
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    private void handleDeleteLease(HttpServerExchange exchange) throws Exception {
+        count("delete lease");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String name = param(exchange, "name");
+        V1Lease lease;
+        synchronized (this) {
+            lease = leases.remove(param(exchange, "namespace") + "/" + name);
+        }
+        if (lease == null) {
+            sendStatus(exchange, StatusCodes.NOT_FOUND, "NotFound", "leases.coordination.k8s.io \"" + name + "\" not found");
+            return;
+        }
+        sendStatus(exchange, StatusCodes.OK, null, null);
+    }
+    
+    private void handleListLeases(HttpServerExchange exchange) throws Exception {
+        count("list leases");
+        if (injectLatencyAndErrors(exchange)) {
+            return;
+        }
+        String namespace = param(exchange, "namespace");
+        LabelSelector selector = LabelSelector.parse(param(exchange, "labelSelector"));
+        String body;
+        synchronized (this) {
+            V1LeaseList list = new V1LeaseList();
+            list.setApiVersion("coordination.k8s.io/v1");
+            list.setKind("LeaseList");
+            list.setMetadata(new V1ListMeta().resourceVersion(Long.toString(resourceVersion)));
+            list.setItems(new ArrayList<>());
+            for (V1Lease lease : leases.values()) {
+                if (namespace.equals(lease.getMetadata().getNamespace())
+                        && selector.matches(lease.getMetadata().getLabels())) {
+                    list.addItemsItem(lease);
+                }
+            }
+            body = json.serialize(list);
+        }
+        sendJson(exchange, StatusCodes.OK, body);
+    }
+    
+    /**
+     * Stream events newer than the given resource version until the timeout,
+     * replaying recent history first so a list followed by a watch misses nothing
+     */
+    private void watch(HttpServerExchange exchange, String namespace, LabelSelector selector,
+                       long fromVersion, long timeoutSeconds) throws IOException {
+        Subscriber subscriber = new Subscriber(namespace, selector);
+        synchronized (this) {
+            for (Event event : history) {
+                if (event.resourceVersion > fromVersion) {
+                    subscriber.offer(event);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+        exchange.setStatusCode(StatusCodes.OK);
+        OutputStream out = exchange.getOutputStream();
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000;
+        try {
+            while (running && System.currentTimeMillis() < deadline) {
+                String line = subscriber.queue.poll(WATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.write('\n');
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Watcher disconnected
+        } finally {
+            subscribers.remove(subscriber);
+        }
+    }
+    
+    private synchronized void transition(String key, Consumer<V1Pod> change) {
+        V1Pod pod = pods.get(key);
+        if (pod == null || !running) {
+            return;
+        }
+        change.accept(pod);
+        publish("MODIFIED", pod);
+    }
+    
+    private void schedule(V1Pod pod) {
+        pod.getSpec().setNodeName(NODE_NAME);
+        lifecycle.schedule(() -> transition(key(pod), this::startContainer),
+            settings.getStartDelayMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private void startContainer(V1Pod pod) {
+        pod.getStatus().setPhase("Running");
+        pod.getStatus().setStartTime(OffsetDateTime.now());
+        pod.getStatus().setContainerStatuses(List.of(new V1ContainerStatus()
+            .name("check")
+            .image(pod.getSpec().getContainers().get(0).getImage())
+            .imageID("fake")
+            .ready(true)
+            .restartCount(0)
+            .started(true)
+            .state(new V1ContainerState().running(new V1ContainerStateRunning().startedAt(OffsetDateTime.now())))));
+        lifecycle.schedule(() -> transition(key(pod), this::terminate),
+            settings.getRunMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private void terminate(V1Pod pod) {
+        boolean failed = ThreadLocalRandom.current().nextDouble() < settings.getPodFailureRate();
+        pod.getStatus().setPhase(failed ? "Failed" : "Succeeded");
+        V1ContainerStatus container = pod.getStatus().getContainerStatuses().get(0);
+        container.setReady(false);
+        container.setStarted(false);
+        container.setState(new V1ContainerState().terminated(new V1ContainerStateTerminated()
+            .exitCode(failed ? 1 : 0)
+            .reason(failed ? "Error" : "Completed")
+            .finishedAt(OffsetDateTime.now())));
+    }
+    
+    /**
+     * Mark a pod deleted and tell watchers; caller holds the lock and has
+     * already removed it from the map
+     */
+    private String delete(V1Pod pod) {
+        pod.getMetadata().setDeletionTimestamp(OffsetDateTime.now());
+        return publish("DELETED", pod);
+    }
+    
+    /**
+     * Bump the resource version, record the event and hand it to matching
+     * watchers; caller holds the lock
+     *
+     * @return The pod as JSON at its new resource version
+     */
+    private String publish(String type, V1Pod pod) {
+        resourceVersion++;
+        pod.getMetadata().setResourceVersion(Long.toString(resourceVersion));
+        String podJson = json.serialize(pod);
+        Event event = new Event(resourceVersion, pod.getMetadata().getNamespace(),
+            pod.getMetadata().getLabels(), "{\"type\":\"" + type + "\",\"object\":" + podJson + "}");
+        
+        history.addLast(event);
+        if (history.size() > HISTORY_EVENTS) {
+            history.removeFirst();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+        return podJson;
+    }
+    
+    /**
+     * Apply the configured latency, then fail the request if the error rate says so
+     *
+     * @return true if an error response was sent
+     */
+    private boolean injectLatencyAndErrors(HttpServerExchange exchange) throws InterruptedException {
+        if (settings.getApiLatencyMillis() > 0) {
+            Thread.sleep(settings.getApiLatencyMillis());
+        }
+        if (settings.getApiErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getApiErrorRate()) {
+            count("injected errors");
+            sendStatus(exchange, StatusCodes.INTERNAL_SERVER_ERROR, "InternalError", "Injected error");
+            return true;
+        }
+        return false;
+    }
+    
+    private void count(String key) {
+        requestCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+    
+    private static HttpHandler blocking(HttpHandler handler) {
+        return new BlockingHandler(handler);
+    }
+    
+    private static String param(HttpServerExchange exchange, String name) {
+        Deque<String> values = exchange.getQueryParameters().get(name);
+        return values == null || values.isEmpty() || values.peekFirst().isEmpty() ? null : values.peekFirst();
+    }
+    
+    private static String key(V1Pod pod) {
+        return pod.getMetadata().getNamespace() + "/" + pod.getMetadata().getName();
+    }
+    
+    private static void sendJson(HttpServerExchange exchange, int statusCode, String body) {
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+        exchange.setStatusCode(statusCode);
+        exchange.getResponseSender().send(body);
+    }
+    
+    private static void sendStatus(HttpServerExchange exchange, int code, String reason, String message) {
+        boolean success = code < 400;
+        StringBuilder body = new StringBuilder("{\"kind\":\"Status\",\"apiVersion\":\"v1\",\"metadata\":{},");
+        body.append("\"status\":\"").append(success ? "Success" : "Failure").append("\"");
+        if (message != null) {
+            body.append(",\"message\":\"").append(message.replace("\"", "\\\"")).append("\"");
+        }
+        if (reason != null) {
+            body.append(",\"reason\":\"").append(reason).append("\"");
+        }
+        body.append(",\"code\":").append(code).append("}");
+        sendJson(exchange, code, body.toString());
+    }
+    
+    private static final class Event {
+        private final long resourceVersion;
+        private final String namespace;
+        private final Map<String, String> labels;
+        private final String line;
+        
+        Event(long resourceVersion, String namespace, Map<String, String> labels, String line) {
+            this.resourceVersion = resourceVersion;
+            this.namespace = namespace;
+            this.labels = labels;
+            this.line = line;
+        }
+    }
+    
+    private static final class Subscriber {
+        private final String namespace;
+        private final LabelSelector selector;
+        private final BlockingQueue<String> queue;
+        
+        Subscriber(String namespace, LabelSelector selector) {
+            this.namespace = namespace;
+            this.selector = selector;
+            this.queue = new LinkedBlockingQueue<>();
+        }
+        
+        void offer(Event event) {
+            if ((namespace == null || namespace.equals(event.namespace)) && selector.matches(event.labels)) {
+                queue.offer(event.line);
+            }
+        }
+    }
+}
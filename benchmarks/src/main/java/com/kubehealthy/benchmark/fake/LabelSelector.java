@@ -0,0 +1,103 @@
+package com.kuberhealthy.benchmark.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The subset of Kubernetes label selector syntax the executor, reaper and
+ * shard membership use:
+ * {@code k=v}, {@code k==v}, {@code k!=v}, {@code k in (a,b)},
+ * {@code k notin (a,b)}, {@code k} and {@code !k}, joined by commas
+ */
+final class LabelSelector {
+    
+    private static final LabelSelector EVERYTHING = new LabelSelector(List.of());
+    
+    private final List<Predicate<Map<String, String>>> requirements;
+    
+    private LabelSelector(List<Predicate<Map<String, String>>> requirements) {
+        this.requirements = requirements;
+    }
+    
+    static LabelSelector parse(String selector) {
+        if (selector == null || selector.isBlank()) {
+            return EVERYTHING;
+        }
+        List<Predicate<Map<String, String>>> requirements = new ArrayList<>();
+        for (String term : splitTerms(selector)) {
+            requirements.add(parseTerm(term.trim()));
+        }
+        return new LabelSelector(requirements);
+    }
+    
+    boolean matches(Map<String, String> labels) {
+        Map<String, String> actual = labels != null ? labels : Map.of();
+        for (Predicate<Map<String, String>> requirement : requirements) {
+            if (!requirement.test(actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static Predicate<Map<String, String>> parseTerm(String term) {
+        int open = term.indexOf('(');
+        if (open > 0 && term.endsWith(")")) {
+            String[] head = term.substring(0, open).trim().split("\\s+");
+            if (head.length != 2) {
+                throw new IllegalArgumentException("Invalid selector term: " + term);
+            }
+            String key = head[0];
+            Set<String> values = Set.of(term.substring(open + 1, term.length() - 1).trim().split("\\s*,\\s*"));
+            if ("in".equals(head[1])) {
+                return labels -> values.contains(labels.get(key));
+            }
+            if ("notin".equals(head[1])) {
+                return labels -> !values.contains(labels.get(key));
+            }
+            throw new IllegalArgumentException("Invalid selector operator: " + head[1]);
+        }
+        int notEquals = term.indexOf("!=");
+        if (notEquals > 0) {
+            String key = term.substring(0, notEquals).trim();
+            String value = term.substring(notEquals + 2).trim();
+            return labels -> !value.equals(labels.get(key));
+        }
+        int equals = term.indexOf('=');
+        if (equals > 0) {
+            String key = term.substring(0, equals).trim();
+            String value = term.substring(term.startsWith("==", equals) ? equals + 2 : equals + 1).trim();
+            return labels -> value.equals(labels.get(key));
+        }
+        if (term.startsWith("!")) {
+            String key = term.substring(1).trim();
+            return labels -> !labels.containsKey(key);
+        }
+        return labels -> labels.containsKey(term);
+    }
+    
+    /**
+     * Split on commas that are not inside an in/notin value list
+     */
+    private static List<String> splitTerms(String selector) {
+        List<String> terms = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                terms.add(selector.substring(start, i));
+                start = i + 1;
+            }
+        }
+        terms.add(selector.substring(start));
+        return terms;
+    }
+}
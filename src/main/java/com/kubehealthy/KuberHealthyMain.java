@@ -0,0 +1,307 @@
+package com.kuberhealthy;
+
+import com.kuberhealthy.check.ApiThrottle;
+import com.kuberhealthy.check.ExecutionMode;
+import com.kuberhealthy.check.KubernetesCheckExecutor;
+import com.kuberhealthy.check.probe.ProbeExecutor;
+import com.kuberhealthy.cluster.LeaderElection;
+import com.kuberhealthy.cluster.ShardMembership;
+import com.kuberhealthy.config.CheckConfigLoader;
+import com.kuberhealthy.config.ConfigMapCheckSource;
+import com.kuberhealthy.config.FileCheckSource;
+import com.kuberhealthy.crd.CheckResourceSource;
+import com.kuberhealthy.crd.CheckStatusPatcher;
+import com.kuberhealthy.controller.CheckScheduler;
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.controller.RoutingCheckExecutor;
+import com.kuberhealthy.http.HealthCheckHttpServer;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.store.PodLogStore;
+import com.kuberhealthy.store.ResultLog;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Main entry point for KuberHealthy Java application
+ */
+public class KuberHealthyMain {
+    
+    private static final Logger logger = LoggerFactory.getLogger(KuberHealthyMain.class);
+    
+    public static void main(String[] args) {
+        logger.info("Starting KuberHealthy Java...");
+        
+        try {
+            // Initialize Kubernetes client
+            ApiClient apiClient = Config.defaultClient();
+            ApiThrottle apiThrottle = new ApiThrottle(
+                getIntFromEnv("KUBE_API_QPS", 50),
+                getIntFromEnv("KUBE_API_BURST", 100),
+                getIntFromEnv("KUBE_API_MAX_RETRIES", 3)
+            );
+            apiThrottle.install(apiClient);
+            logger.info("Kubernetes client initialized");
+            
+            // Create executor and controller
+            ExecutionMode executionMode = ExecutionMode.fromString(
+                System.getenv("CHECK_EXECUTION_MODE"), ExecutionMode.VIRTUAL);
+            int maxConcurrentChecks = getIntFromEnv("MAX_CONCURRENT_CHECKS", 0);
+            logger.info("Check execution mode: {}, max concurrent checks: {}",
+                executionMode, maxConcurrentChecks > 0 ? maxConcurrentChecks : "unbounded");
+            int warmPodsPerImage = getIntFromEnv("WARM_POOL_PODS_PER_IMAGE", 2);
+            KubernetesCheckExecutor kubernetesExecutor = new KubernetesCheckExecutor(
+                apiClient, executionMode, maxConcurrentChecks, warmPodsPerImage);
+            ProbeExecutor probeExecutor = new ProbeExecutor(getIntFromEnv("PROBE_IO_THREADS", 2));
+            
+            // Each check type has its own concurrency budget, so slow pod checks can't starve probes
+            RoutingCheckExecutor executor = new RoutingCheckExecutor();
+            executor.register(HealthCheck.TYPE_POD, kubernetesExecutor,
+                getIntFromEnv("MAX_IN_FLIGHT_CHECKS", 50),
+                getIntFromEnv("MAX_IN_FLIGHT_CHECKS_PER_NAMESPACE", 0));
+            executor.register(HealthCheck.TYPE_PROBE, probeExecutor,
+                getIntFromEnv("MAX_IN_FLIGHT_PROBES", 1000), 0);
+            HealthCheckController controller = HealthCheckController.create(executor, new CheckScheduler());
+            controller.getMetricsRegistry().register(executor);
+            controller.getMetricsRegistry().register(apiThrottle);
+            controller.getMetricsRegistry().register(kubernetesExecutor.getPodReaper());
+            if (kubernetesExecutor.getWarmPodPool() != null) {
+                controller.getMetricsRegistry().register(kubernetesExecutor.getWarmPodPool());
+            }
+            
+            // With several replicas, decide which checks this one runs
+            String replicaMode = System.getenv("REPLICA_MODE");
+            String identity = isSet(System.getenv("POD_NAME")) ? System.getenv("POD_NAME") : getHostName();
+            String leaseNamespace = getConfigNamespace();
+            LeaderElection leaderElection = "leader".equalsIgnoreCase(replicaMode)
+                ? new LeaderElection(apiClient, controller, leaseNamespace, "kuberhealthy-leader", identity)
+                : null;
+            ShardMembership shardMembership = "sharded".equalsIgnoreCase(replicaMode)
+                ? new ShardMembership(apiClient, controller, leaseNamespace, "kuberhealthy", identity)
+                : null;
+            if (leaderElection != null) {
+                controller.setOwnership(leaderElection);
+                leaderElection.start();
+            } else if (shardMembership != null) {
+                controller.setOwnership(shardMembership);
+                shardMembership.start();
+            }
+            logger.info("Replica mode: {}, identity: {}",
+                isSet(replicaMode) ? replicaMode : "single", identity);
+            
+            // Persist results and restore check status across restarts when configured
+            ResultLog resultLog = createResultLog();
+            controller.setResultLog(resultLog);
+            PodLogStore podLogStore = createPodLogStore();
+            kubernetesExecutor.setPodLogStore(podLogStore);
+            
+            // Load checks from a local file or the check ConfigMap, reloading on change;
+            // without either, fall back to the built-in examples
+            CheckConfigLoader configLoader = new CheckConfigLoader(controller);
+            String configFile = System.getenv("CHECK_CONFIG_FILE");
+            String configMapName = System.getenv("CHECK_CONFIG_MAP");
+            FileCheckSource fileSource = isSet(configFile)
+                ? new FileCheckSource(Paths.get(configFile), configLoader)
+                : null;
+            ConfigMapCheckSource configMapSource = fileSource == null && isSet(configMapName)
+                ? new ConfigMapCheckSource(apiClient, configLoader, getConfigNamespace(), configMapName)
+                : null;
+            
+            // KuberHealthyCheck resources are registered alongside any configured checks
+            boolean crdsEnabled = Boolean.parseBoolean(System.getenv("CHECK_CRDS_ENABLED"));
+            CheckStatusPatcher statusPatcher = crdsEnabled
+                ? new CheckStatusPatcher(apiClient,
+                    getIntFromEnv("CRD_STATUS_FLUSH_MILLIS", 5000),
+                    getIntFromEnv("CRD_STATUS_PATCHES_PER_SECOND", 20))
+                : null;
+            CheckResourceSource resourceSource = crdsEnabled
+                ? new CheckResourceSource(apiClient, controller, statusPatcher)
+                : null;
+            
+            if (fileSource != null) {
+                fileSource.start();
+            } else if (configMapSource != null) {
+                configMapSource.start();
+            } else if (!crdsEnabled) {
+                registerExampleChecks(controller);
+            }
+            if (crdsEnabled) {
+                controller.addListener(statusPatcher);
+                statusPatcher.start();
+                resourceSource.start();
+            }
+            
+            // Start HTTP server
+            int port = getPortFromEnv();
+            HealthCheckHttpServer httpServer = new HealthCheckHttpServer(
+                controller,
+                port,
+                getIntFromEnv("HTTP_IO_THREADS", 0),
+                getIntFromEnv("HTTP_WORKER_THREADS", 0),
+                Boolean.parseBoolean(System.getenv("HTTP_PRETTY_JSON"))
+            );
+            httpServer.setPodLogStore(podLogStore);
+            httpServer.start();
+            
+            logger.info("KuberHealthy Java started successfully");
+            
+            // Add shutdown hook
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                logger.info("Shutting down KuberHealthy Java...");
+                if (fileSource != null) {
+                    fileSource.shutdown();
+                }
+                if (configMapSource != null) {
+                    configMapSource.shutdown();
+                }
+                if (resourceSource != null) {
+                    resourceSource.shutdown();
+                    statusPatcher.shutdown();
+                }
+                httpServer.stop();
+                controller.shutdown();
+                if (leaderElection != null) {
+                    leaderElection.shutdown();
+                }
+                if (shardMembership != null) {
+                    shardMembership.shutdown();
+                }
+                executor.shutdown();
+                kubernetesExecutor.shutdown();
+                probeExecutor.shutdown();
+                // Checks still draining above append their results, so the log closes last
+                if (resultLog != null) {
+                    resultLog.close();
+                }
+                logger.info("Shutdown complete");
+            }));
+            
+            // Keep the application running
+            Thread.currentThread().join();
+            
+        } catch (Exception e) {
+            logger.error("Fatal error starting KuberHealthy", e);
+            System.exit(1);
+        }
+    }
+    
+    private static void registerExampleChecks(HealthCheckController controller) {
+        logger.info("Registering example health checks...");
+        
+        // DNS check
+        HealthCheck dnsCheck = createDnsCheck();
+        controller.registerHealthCheck(dnsCheck);
+        
+        // Pod deployment check
+        HealthCheck podCheck = createPodCheck();
+        controller.registerHealthCheck(podCheck);
+        
+        logger.info("Registered {} example checks", 2);
+    }
+    
+    private static HealthCheck createDnsCheck() {
+        HealthCheck check = new HealthCheck(
+            "dns-check",
+            "default",
+            60,  // Run every 60 seconds
+            30   // 30 second timeout
+        );
+        
+        HealthCheck.PodSpec podSpec = new HealthCheck.PodSpec();
+        podSpec.setImage("busybox:latest");
+        podSpec.setCommand(Arrays.asList("sh", "-c"));
+        podSpec.setArgs(Arrays.asList(
+            "nslookup kubernetes.default.svc.cluster.local && echo 'DNS check passed'"
+        ));
+        
+        check.setPodSpec(podSpec);
+        return check;
+    }
+    
+    private static HealthCheck createPodCheck() {
+        HealthCheck check = new HealthCheck(
+            "pod-deployment-check",
+            "default",
+            120, // Run every 120 seconds
+            60   // 60 second timeout
+        );
+        
+        HealthCheck.PodSpec podSpec = new HealthCheck.PodSpec();
+        podSpec.setImage("busybox:latest");
+        podSpec.setCommand(Arrays.asList("sh", "-c"));
+        podSpec.setArgs(Arrays.asList(
+            "echo 'Testing pod creation and execution' && sleep 5 && echo 'Pod check passed'"
+        ));
+        
+        check.setPodSpec(podSpec);
+        return check;
+    }
+    
+    private static ResultLog createResultLog() throws IOException {
+        String directory = System.getenv("RESULT_LOG_DIR");
+        if (directory == null || directory.isEmpty()) {
+            logger.info("RESULT_LOG_DIR not set, check results will not be persisted");
+            return null;
+        }
+        return new ResultLog(
+            Paths.get(directory),
+            getIntFromEnv("RESULT_LOG_SEGMENT_MB", 16) * 1024 * 1024,
+            getIntFromEnv("RESULT_LOG_MAX_SEGMENTS", 8)
+        );
+    }
+    
+    private static PodLogStore createPodLogStore() throws IOException {
+        String directory = System.getenv("RESULT_LOG_DIR");
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        return new PodLogStore(
+            Paths.get(directory, "pod-logs"),
+            getIntFromEnv("POD_LOG_MAX_FILES", 200),
+            getIntFromEnv("POD_LOG_MAX_KB", 1024) * 1024
+        );
+    }
+    
+    private static String getConfigNamespace() {
+        String namespace = System.getenv("CHECK_CONFIG_NAMESPACE");
+        if (!isSet(namespace)) {
+            namespace = System.getenv("POD_NAMESPACE");
+        }
+        return isSet(namespace) ? namespace : "kuberhealthy";
+    }
+    
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "kuberhealthy-" + ProcessHandle.current().pid();
+        }
+    }
+    
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
+    
+    private static int getPortFromEnv() {
+        return getIntFromEnv("PORT", 8080);
+    }
+    
+    private static int getIntFromEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid {} environment variable: {}, using default {}", name, value, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.kuberhealthy.check;
+
+import com.kuberhealthy.metrics.MetricsCollector;
+import io.kubernetes.client.openapi.ApiClient;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client-side protection for the Kubernetes API server, installed as an OkHttp
+ * interceptor on the shared {@link ApiClient} so checks, the pod watcher, the
+ * reaper and the warm pool all go through it.
+ *
+ * A token bucket caps the request rate across all of them. Identical GETs in
+ * flight at the same time share one response. Throttling (429) and server
+ * errors (5xx) are retried with jittered exponential backoff, honouring
+ * Retry-After, so an API server hiccup doesn't fail every running check.
+ * Watches, logs and exec streams are rate limited but never retried or shared.
+ */
+public class ApiThrottle implements Interceptor, MetricsCollector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ApiThrottle.class);
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+    
+    private final TokenBucket tokenBucket;
+    private final int maxRetries;
+    private final Map<String, CompletableFuture<SharedResponse>> inFlightReads;
+    private final LongAdder requests;
+    private final LongAdder throttledRequests;
+    private final LongAdder throttleWaitNanos;
+    private final LongAdder retries;
+    private final LongAdder retriesExhausted;
+    private final LongAdder coalescedRequests;
+    
+    /**
+     * @param queriesPerSecond Sustained request rate, or 0 for no limit
+     * @param burst Requests allowed above the sustained rate after an idle period
+     * @param maxRetries Retries of a retryable failure before giving up
+     */
+    public ApiThrottle(double queriesPerSecond, int burst, int maxRetries) {
+        this.tokenBucket = queriesPerSecond > 0 ? new TokenBucket(queriesPerSecond, burst) : null;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.inFlightReads = new ConcurrentHashMap<>();
+        this.requests = new LongAdder();
+        this.throttledRequests = new LongAdder();
+        this.throttleWaitNanos = new LongAdder();
+        this.retries = new LongAdder();
+        this.retriesExhausted = new LongAdder();
+        this.coalescedRequests = new LongAdder();
+    }
+    
+    /**
+     * Route every request made through the client via this throttle. Call before
+     * creating anything that copies the client's HTTP client, like the pod watcher.
+     */
+    public void install(ApiClient apiClient) {
+        apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
+            .addInterceptor(this)
+            .build());
+    }
+    
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (isStreaming(request)) {
+            acquireToken();
+            requests.increment();
+            return chain.proceed(request);
+        }
+        if (!"GET".equals(request.method())) {
+            return proceedWithRetry(chain, request);
+        }
+        
+        // Concurrent identical reads wait for the first one instead of hitting the API server
+        String key = request.url().toString();
+        CompletableFuture<SharedResponse> mine = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> existing = inFlightReads.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalescedRequests.increment();
+            return await(existing).toResponse(request);
+        }
+        try {
+            Response response = proceedWithRetry(chain, request);
+            SharedResponse shared = new SharedResponse(response);
+            mine.complete(shared);
+            return shared.toResponse(request);
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightReads.remove(key, mine);
+        }
+    }
+    
+    @Override
+    public long version() {
+        return requests.sum() + throttledRequests.sum() + retries.sum()
+            + retriesExhausted.sum() + coalescedRequests.sum();
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_api_requests_total Requests sent to the Kubernetes API server, including retries\n");
+        out.append("# TYPE kuberhealthy_api_requests_total counter\n");
+        out.append("kuberhealthy_api_requests_total ").append(requests.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_api_throttled_requests_total Requests delayed by the client-side rate limit\n");
+        out.append("# TYPE kuberhealthy_api_throttled_requests_total counter\n");
+        out.append("kuberhealthy_api_throttled_requests_total ").append(throttledRequests.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_api_throttle_wait_seconds_total Time requests spent waiting for the rate limit\n");
+        out.append("# TYPE kuberhealthy_api_throttle_wait_seconds_total counter\n");
+        out.append("kuberhealthy_api_throttle_wait_seconds_total ")
+            .append(throttleWaitNanos.sum() / 1e9).append("\n");
+        
+        out.append("# HELP kuberhealthy_api_retries_total Requests retried after a 429, 5xx or connection failure\n");
+        out.append("# TYPE kuberhealthy_api_retries_total counter\n");
+        out.append("kuberhealthy_api_retries_total ").append(retries.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_api_retries_exhausted_total Requests that still failed after all retries\n");
+        out.append("# TYPE kuberhealthy_api_retries_exhausted_total counter\n");
+        out.append("kuberhealthy_api_retries_exhausted_total ").append(retriesExhausted.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_api_coalesced_requests_total Reads answered by an identical request already in flight\n");
+        out.append("# TYPE kuberhealthy_api_coalesced_requests_total counter\n");
+        out.append("kuberhealthy_api_coalesced_requests_total ").append(coalescedRequests.sum()).append("\n");
+    }
+    
+    private Response proceedWithRetry(Chain chain, Request request) throws IOException {
+        boolean idempotent = !"POST".equals(request.method()) && !"PATCH".equals(request.method());
+        for (int attempt = 0; ; attempt++) {
+            acquireToken();
+            requests.increment();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                // Without a response we can't tell whether a create went through
+                if (!idempotent || attempt >= maxRetries || chain.call().isCanceled()) {
+                    countExhausted(attempt);
+                    throw e;
+                }
+                logger.debug("{} {} failed, retrying: {}", request.method(), request.url().encodedPath(),
+                    e.getMessage());
+                backoff(attempt, -1);
+                continue;
+            }
+            
+            int code = response.code();
+            // A 429 was rejected before being processed, so even a create is safe to resend
+            boolean retryable = code == 429 || (idempotent && code >= 500 && code != 501);
+            if (!retryable) {
+                return response;
+            }
+            if (attempt >= maxRetries) {
+                countExhausted(attempt);
+                return response;
+            }
+            long retryAfterMillis = parseRetryAfter(response.header("Retry-After"));
+            response.close();
+            logger.debug("{} {} returned {}, retrying", request.method(), request.url().encodedPath(), code);
+            backoff(attempt, retryAfterMillis);
+        }
+    }
+    
+    private void countExhausted(int attempt) {
+        if (attempt > 0) {
+            retriesExhausted.increment();
+        }
+    }
+    
+    private void backoff(int attempt, long retryAfterMillis) throws IOException {
+        retries.increment();
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        // Jitter so checks that failed together don't retry together
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        if (retryAfterMillis > 0) {
+            delay = Math.min(MAX_BACKOFF_MILLIS, Math.max(delay, retryAfterMillis));
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+    
+    private void acquireToken() throws IOException {
+        if (tokenBucket == null) {
+            return;
+        }
+        try {
+            long waited = tokenBucket.acquire();
+            if (waited > 0) {
+                throttledRequests.increment();
+                throttleWaitNanos.add(waited);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the API rate limit");
+        }
+    }
+    
+    private static SharedResponse await(CompletableFuture<SharedResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shared read");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            throw new IOException("Shared read failed", e.getCause());
+        }
+    }
+    
+    /**
+     * Watches, log streams and exec/attach upgrades are long-lived and must not
+     * be buffered or replayed
+     */
+    private static boolean isStreaming(Request request) {
+        String path = request.url().encodedPath();
+        return "true".equals(request.url().queryParameter("watch"))
+            || "true".equals(request.url().queryParameter("follow"))
+            || request.header("Upgrade") != null
+            || path.endsWith("/log")
+            || path.endsWith("/exec")
+            || path.endsWith("/attach")
+            || path.endsWith("/portforward");
+    }
+    
+    private static long parseRetryAfter(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * A buffered response that can be handed to every caller of a coalesced read
+     */
+    private static class SharedResponse {
+        private final Response template;
+        private final byte[] body;
+        private final MediaType contentType;
+        
+        SharedResponse(Response response) throws IOException {
+            ResponseBody responseBody = response.body();
+            this.contentType = responseBody != null ? responseBody.contentType() : null;
+            this.body = responseBody != null ? responseBody.bytes() : new byte[0];
+            this.template = response;
+        }
+        
+        Response toResponse(Request request) {
+            return template.newBuilder()
+                .request(request)
+                .body(ResponseBody.create(body, contentType))
+                .build();
+        }
+    }
+}
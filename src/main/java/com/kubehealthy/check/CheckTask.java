@@ -0,0 +1,108 @@
+package com.kuberhealthy.check;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * A blocking check body handed to an executor service.
+ *
+ * Unlike cancelling a {@link CompletableFuture}, {@link #cancel()} reaches the
+ * body itself: a body still waiting to start is dropped, and a running one is
+ * interrupted. The future only completes once the body has returned, so a
+ * check stays running for as long as its thread is still working on it.
+ */
+public class CheckTask<T> {
+
+    private final CompletableFuture<T> future;
+    private final FutureTask<T> task;
+    private Thread runner;
+    private boolean finished;
+
+    private CheckTask(Supplier<T> body) {
+        this.future = new CompletableFuture<>();
+        this.task = new FutureTask<T>(body::get) {
+            @Override
+            public void run() {
+                synchronized (CheckTask.this) {
+                    if (isDone()) {
+                        return;
+                    }
+                    runner = Thread.currentThread();
+                }
+                try {
+                    super.run();
+                } finally {
+                    synchronized (CheckTask.this) {
+                        runner = null;
+                        finished = true;
+                    }
+                    // A cancel that raced with the body finishing must not leak into the next task
+                    Thread.interrupted();
+                    complete();
+                }
+            }
+
+            @Override
+            protected void done() {
+                // Only a body that never started is cancelled; it completes nowhere else
+                if (isCancelled()) {
+                    future.cancel(false);
+                }
+            }
+        };
+    }
+
+    /**
+     * Run a body on the executor. If the executor drops it without running it,
+     * e.g. when shut down while the body waits for a concurrency slot, the
+     * future is cancelled.
+     */
+    public static <T> CheckTask<T> submit(Supplier<T> body, Executor executor) {
+        CheckTask<T> checkTask = new CheckTask<>(body);
+        executor.execute(checkTask.task);
+        return checkTask;
+    }
+
+    /**
+     * Future completed with the body's result once it has returned
+     */
+    public CompletableFuture<T> future() {
+        return future;
+    }
+
+    /**
+     * Drop the body if it has not started, or interrupt it if it is running.
+     * An interrupted body still completes the future with whatever it returns.
+     *
+     * @return false if the body had already finished
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            if (runner != null) {
+                runner.interrupt();
+                return true;
+            }
+            // Under the lock, so the body can't start between the check above and this
+            return task.cancel(false);
+        }
+    }
+
+    private void complete() {
+        try {
+            future.complete(task.get());
+        } catch (ExecutionException e) {
+            future.completeExceptionally(new CompletionException(e.getCause()));
+        } catch (InterruptedException | CancellationException e) {
+            // get() doesn't block once the task is done, and a running body is never cancelled
+            future.cancel(false);
+        }
+    }
+}
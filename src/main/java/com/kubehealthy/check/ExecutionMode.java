@@ -0,0 +1,138 @@
+package com.kuberhealthy.check;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threading model used by check executors to run blocking check bodies
+ */
+public enum ExecutionMode {
+
+    /**
+     * One platform thread per running check
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per running check
+     */
+    VIRTUAL;
+
+    /**
+     * Parse a mode name, falling back to the given default for null/unknown values
+     */
+    public static ExecutionMode fromString(String value, ExecutionMode defaultMode) {
+        if (value == null || value.isBlank()) {
+            return defaultMode;
+        }
+        try {
+            return ExecutionMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultMode;
+        }
+    }
+
+    /**
+     * Create an executor service for check bodies
+     *
+     * @param threadNamePrefix Prefix for thread names
+     * @param maxConcurrency Maximum number of checks running at once, or 0 for unbounded
+     */
+    public ExecutorService newExecutorService(String threadNamePrefix, int maxConcurrency) {
+        if (this == VIRTUAL) {
+            ExecutorService delegate = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(threadNamePrefix + "-", 0).factory());
+            return maxConcurrency > 0 ? new BoundedExecutorService(delegate, maxConcurrency) : delegate;
+        }
+
+        ThreadFactory threadFactory = new NamedThreadFactory(threadNamePrefix);
+        return maxConcurrency > 0
+            ? Executors.newFixedThreadPool(maxConcurrency, threadFactory)
+            : Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Caps concurrency of a thread-per-task executor. Tasks park on the semaphore,
+     * which costs nothing but a small stack when the threads are virtual.
+     */
+    private static class BoundedExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        BoundedExecutorService(ExecutorService delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency, true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // Shutting down: running without a permit would break the cap, so
+                    // drop the task and cancel it if it is a future someone waits on
+                    Thread.currentThread().interrupt();
+                    if (command instanceof Future) {
+                        ((Future<?>) command).cancel(false);
+                    }
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -18,6 +18,20 @@ public interface HealthCheckExecutor {
      */
     CompletableFuture<CheckResult> execute(HealthCheck healthCheck);
     
+    /**
+     * Execute a health check asynchronously, calling onStart when it actually
+     * starts. Executors that queue checks call it once the check leaves the
+     * queue, and never for a run that is dropped before it starts.
+     * 
+     * @param healthCheck The health check to execute
+     * @param onStart Called once, just before the check starts running
+     * @return A CompletableFuture containing the check result
+     */
+    default CompletableFuture<CheckResult> execute(HealthCheck healthCheck, Runnable onStart) {
+        onStart.run();
+        return execute(healthCheck);
+    }
+    
     /**
      * Cancel a running health check
      * 
@@ -33,4 +47,14 @@ public interface HealthCheckExecutor {
      * @return true if running, false otherwise
      */
     boolean isRunning(String checkName);
+    
+    /**
+     * Drop a run of a check that was handed to this executor but has not started yet
+     * 
+     * @param checkName The name of the check
+     * @return true if a waiting run was dropped
+     */
+    default boolean dequeue(String checkName) {
+        return false;
+    }
 }
\ No newline at end of file
@@ -1,17 +1,25 @@
 package com.kuberhealthy.check;
 
+import com.kuberhealthy.model.CheckPhase;
 import com.kuberhealthy.model.CheckResult;
 import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.store.PodLogStore;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.models.*;
+import okhttp3.Call;
+import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
 
@@ -21,14 +29,62 @@ import java.util.concurrent.*;
 public class KubernetesCheckExecutor implements HealthCheckExecutor {
     
     private static final Logger logger = LoggerFactory.getLogger(KubernetesCheckExecutor.class);
+    private static final long REAP_BATCH_INTERVAL_MILLIS = 2000;
+    private static final long ORPHAN_SWEEP_INTERVAL_MILLIS = 300_000;
+    private static final long MAX_CHECK_POD_AGE_MILLIS = 3_600_000;
+    // Below MAX_CHECK_POD_AGE_MILLIS so other replicas' sweeps never see a live pool pod as orphaned
+    private static final long WARM_POD_LIFETIME_MILLIS = 1_800_000;
+    // Failure logs kept with the result; the full log goes to the pod log store if set
+    private static final int LOG_TAIL_BYTES = 4096;
+    private static final int LOG_TAIL_LINES = 200;
+    private static final int LOG_LIMIT_BYTES = 65536;
     private final CoreV1Api coreApi;
+    private final PodPhaseWatcher podWatcher;
     private final ExecutorService executorService;
     private final Map<String, CompletableFuture<CheckResult>> runningChecks;
+    private final Map<String, CheckTask<CheckResult>> runningByUUID;
+    private final Set<String> activeCheckUUIDs;
+    private final PodReaper podReaper;
+    private final WarmPodPool warmPodPool;
+    private volatile PodLogStore podLogStore;
     
     public KubernetesCheckExecutor(ApiClient apiClient) {
+        this(apiClient, ExecutionMode.PLATFORM, 0);
+    }
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param executionMode Threading model for check bodies
+     * @param maxConcurrentChecks Maximum number of check pods in flight, or 0 for unbounded
+     */
+    public KubernetesCheckExecutor(ApiClient apiClient, ExecutionMode executionMode, int maxConcurrentChecks) {
+        this(apiClient, executionMode, maxConcurrentChecks, 0);
+    }
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param executionMode Threading model for check bodies
+     * @param maxConcurrentChecks Maximum number of check pods in flight, or 0 for unbounded
+     * @param warmPodsPerImage Idle pods kept per image for warm pool checks, or 0 to disable the pool
+     */
+    public KubernetesCheckExecutor(ApiClient apiClient, ExecutionMode executionMode, int maxConcurrentChecks,
+                                   int warmPodsPerImage) {
         this.coreApi = new CoreV1Api(apiClient);
-        this.executorService = Executors.newCachedThreadPool();
+        this.podWatcher = new PodPhaseWatcher(apiClient);
+        this.executorService = executionMode.newExecutorService("k8s-check", maxConcurrentChecks);
         this.runningChecks = new ConcurrentHashMap<>();
+        this.runningByUUID = new ConcurrentHashMap<>();
+        this.activeCheckUUIDs = ConcurrentHashMap.newKeySet();
+        this.podReaper = new PodReaper(apiClient, this::isActivePod,
+            REAP_BATCH_INTERVAL_MILLIS, ORPHAN_SWEEP_INTERVAL_MILLIS, MAX_CHECK_POD_AGE_MILLIS);
+        this.warmPodPool = warmPodsPerImage > 0
+            ? new WarmPodPool(apiClient, podWatcher, podReaper, warmPodsPerImage, WARM_POD_LIFETIME_MILLIS)
+            : null;
+        this.podWatcher.start();
+        this.podReaper.start();
+        if (warmPodPool != null) {
+            warmPodPool.start();
+        }
     }
     
     @Override
@@ -36,43 +92,66 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
         String checkUUID = UUID.randomUUID().toString();
         logger.info("Starting health check: {} with UUID: {}", healthCheck.getName(), checkUUID);
         
-        CompletableFuture<CheckResult> future = CompletableFuture.supplyAsync(() -> {
+        CheckTask<CheckResult> task = CheckTask.submit(() -> {
             CheckResult result = new CheckResult(healthCheck.getName(), false);
             result.setUuid(checkUUID);
             long startTime = System.currentTimeMillis();
+            activeCheckUUIDs.add(checkUUID);
+            boolean podRequested = false;
             
             try {
+                if (warmPodPool != null && warmPodPool.tryRun(healthCheck, result)) {
+                    return result;
+                }
+                
                 // Create and run the check pod
                 V1Pod pod = createCheckPod(healthCheck, checkUUID);
-                V1Pod createdPod = coreApi.createNamespacedPod(
-                    healthCheck.getNamespace(),
-                    pod,
-                    null, null, null, null
-                );
+                String podName = pod.getMetadata().getName();
+                
+                // Register with the watcher before creating so a fast pod can't be missed
+                PodTimeline timeline = new PodTimeline();
+                CompletableFuture<V1Pod> terminated = podWatcher.awaitTermination(
+                    healthCheck.getNamespace(), podName, timeline);
+                
+                V1Pod createdPod;
+                long createStart = System.currentTimeMillis();
+                podRequested = true;
+                try {
+                    createdPod = coreApi.createNamespacedPod(
+                        healthCheck.getNamespace(),
+                        pod,
+                        null, null, null, null
+                    );
+                } catch (ApiException e) {
+                    podWatcher.forget(healthCheck.getNamespace(), podName);
+                    throw e;
+                }
+                long createdAt = System.currentTimeMillis();
+                result.setPhaseDurationMillis(CheckPhase.POD_CREATE, createdAt - createStart);
                 
                 logger.info("Created check pod: {}", createdPod.getMetadata().getName());
                 
                 // Wait for pod completion with timeout
-                boolean completed = waitForPodCompletion(
+                V1Pod finalPod = waitForPodCompletion(
                     healthCheck.getNamespace(),
-                    createdPod.getMetadata().getName(),
+                    podName,
+                    terminated,
                     healthCheck.getTimeoutSeconds()
                 );
                 
-                if (completed) {
-                    // Get pod status and logs
-                    V1Pod finalPod = coreApi.readNamespacedPodStatus(
-                        createdPod.getMetadata().getName(),
-                        healthCheck.getNamespace(),
-                        null
-                    );
-                    
+                recordPodPhases(result, timeline, createdAt);
+                
+                if (Thread.currentThread().isInterrupted()) {
+                    result.addError("Check cancelled");
+                } else if (finalPod != null) {
                     boolean success = isPodSuccessful(finalPod);
                     result.setOk(success);
                     
                     if (!success) {
                         result.addError("Check pod failed with status: " + getPodPhase(finalPod));
-                        String logs = getPodLogs(healthCheck.getNamespace(), createdPod.getMetadata().getName());
+                        long logStart = System.currentTimeMillis();
+                        String logs = getPodLogs(healthCheck, podName, checkUUID);
+                        result.setPhaseDurationMillis(CheckPhase.LOG_FETCH, System.currentTimeMillis() - logStart);
                         if (logs != null && !logs.isEmpty()) {
                             result.addError("Pod logs: " + logs);
                         }
@@ -81,9 +160,6 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
                     result.addError("Check timed out after " + healthCheck.getTimeoutSeconds() + " seconds");
                 }
                 
-                // Cleanup pod
-                deletePod(healthCheck.getNamespace(), createdPod.getMetadata().getName());
-                
             } catch (ApiException e) {
                 logger.error("Kubernetes API error during check execution", e);
                 result.addError("Kubernetes API error: " + e.getMessage());
@@ -93,29 +169,39 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
             } finally {
                 long endTime = System.currentTimeMillis();
                 result.setRunDurationMillis(endTime - startTime);
-                runningChecks.remove(healthCheck.getName());
+                // Deleted in the background; a failed create may still have left a pod behind
+                if (podRequested) {
+                    podReaper.enqueue(healthCheck.getNamespace(), checkUUID);
+                }
+                activeCheckUUIDs.remove(checkUUID);
             }
             
             return result;
         }, executorService);
         
+        CompletableFuture<CheckResult> future = task.future();
         runningChecks.put(healthCheck.getName(), future);
+        runningByUUID.put(checkUUID, task);
+        future.whenComplete((result, error) -> {
+            runningChecks.remove(healthCheck.getName(), future);
+            runningByUUID.remove(checkUUID);
+        });
         return future;
     }
     
+    /**
+     * Cancel a check by UUID. A check waiting for a concurrency slot is dropped;
+     * a running one is interrupted, stops waiting for its pod and queues the pod
+     * for deletion. It counts as running until its thread has finished.
+     */
     @Override
     public boolean cancel(String checkUUID) {
-        // Find and cancel the check with the given UUID
-        for (Map.Entry<String, CompletableFuture<CheckResult>> entry : runningChecks.entrySet()) {
-            CompletableFuture<CheckResult> future = entry.getValue();
-            if (!future.isDone()) {
-                future.cancel(true);
-                runningChecks.remove(entry.getKey());
-                logger.info("Cancelled check: {}", entry.getKey());
-                return true;
-            }
+        CheckTask<CheckResult> task = runningByUUID.get(checkUUID);
+        if (task == null || !task.cancel()) {
+            return false;
         }
-        return false;
+        logger.info("Cancelled check with UUID: {}", checkUUID);
+        return true;
     }
     
     @Override
@@ -150,6 +236,7 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
             container.setImage(healthCheck.getPodSpec().getImage());
             container.setCommand(healthCheck.getPodSpec().getCommand());
             container.setArgs(healthCheck.getPodSpec().getArgs());
+            container.setImagePullPolicy(healthCheck.getPodSpec().getImagePullPolicy());
         } else {
             // Default check container
             container.setImage("busybox:latest");
@@ -162,29 +249,46 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
         return pod;
     }
     
-    private boolean waitForPodCompletion(String namespace, String podName, long timeoutSeconds) {
-        long endTime = System.currentTimeMillis() + (timeoutSeconds * 1000);
-        
-        while (System.currentTimeMillis() < endTime) {
-            try {
-                V1Pod pod = coreApi.readNamespacedPodStatus(podName, namespace, null);
-                String phase = getPodPhase(pod);
-                
-                if ("Succeeded".equals(phase) || "Failed".equals(phase)) {
-                    return true;
-                }
-                
-                Thread.sleep(1000);
-            } catch (ApiException e) {
-                logger.error("Error checking pod status", e);
-                return false;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
-            }
+    /**
+     * Wait for the shared pod watcher to report a terminal phase
+     * 
+     * @return the terminal pod, or null if the timeout elapsed first
+     */
+    private V1Pod waitForPodCompletion(String namespace, String podName,
+                                       CompletableFuture<V1Pod> terminated, long timeoutSeconds) {
+        try {
+            return terminated.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            logger.error("Error waiting for pod completion", e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            podWatcher.forget(namespace, podName);
         }
+    }
+    
+    /**
+     * Derive scheduling, container start and run durations from the times the
+     * pod watcher observed each lifecycle point
+     */
+    private void recordPodPhases(CheckResult result, PodTimeline timeline, long createdAt) {
+        long scheduledAt = timeline.getScheduledAtMillis();
+        long startedAt = timeline.getStartedAtMillis();
+        long finishedAt = timeline.getFinishedAtMillis();
         
-        return false;
+        if (scheduledAt > 0) {
+            result.setPhaseDurationMillis(CheckPhase.SCHEDULING, scheduledAt - createdAt);
+        }
+        if (startedAt > 0 && scheduledAt > 0) {
+            result.setPhaseDurationMillis(CheckPhase.CONTAINER_START, startedAt - scheduledAt);
+        }
+        if (finishedAt > 0 && startedAt > 0) {
+            result.setPhaseDurationMillis(CheckPhase.RUN, finishedAt - startedAt);
+        }
     }
     
     private boolean isPodSuccessful(V1Pod pod) {
@@ -198,30 +302,103 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
         return "Unknown";
     }
     
-    private String getPodLogs(String namespace, String podName) {
-        try {
-            return coreApi.readNamespacedPodLog(
-                podName, namespace, null, null, null, null,
-                null, null, null, null, null
-            );
-        } catch (ApiException e) {
+    /**
+     * Stream a failed pod's log, keeping only its tail in memory. With a pod log
+     * store the log is also written to disk, truncated to its first
+     * {@link PodLogStore#getMaxLogBytes()}; if it was that long, the tail is
+     * fetched again from the end of the log, where the failure usually is.
+     */
+    private String getPodLogs(HealthCheck healthCheck, String podName, String checkUUID) {
+        PodLogStore store = podLogStore;
+        if (store == null) {
+            return readLogTail(healthCheck, podName);
+        }
+        
+        LogTail tail = new LogTail(LOG_TAIL_BYTES);
+        long read;
+        try (OutputStream spill = store.create(healthCheck.getName(), checkUUID)) {
+            read = streamLog(healthCheck, podName, store.getMaxLogBytes(), null, tail, spill);
+        } catch (ApiException | IOException e) {
             logger.error("Error reading pod logs", e);
             return null;
         }
+        if (read < 0) {
+            return null;
+        }
+        return read < store.getMaxLogBytes() ? tail.toString() : readLogTail(healthCheck, podName);
     }
     
-    private void deletePod(String namespace, String podName) {
+    /**
+     * The last lines of a pod's log
+     */
+    private String readLogTail(HealthCheck healthCheck, String podName) {
+        LogTail tail = new LogTail(LOG_TAIL_BYTES);
         try {
-            coreApi.deleteNamespacedPod(
-                podName, namespace, null, null, null,
-                null, null, null
-            );
-            logger.info("Deleted check pod: {}", podName);
-        } catch (ApiException e) {
-            logger.error("Error deleting pod", e);
+            long read = streamLog(healthCheck, podName, LOG_LIMIT_BYTES, LOG_TAIL_LINES,
+                tail, OutputStream.nullOutputStream());
+            return read < 0 ? null : tail.toString();
+        } catch (ApiException | IOException e) {
+            logger.error("Error reading pod logs", e);
+            return null;
         }
     }
     
+    /**
+     * Copy a pod's log into the tail buffer and the spill stream
+     *
+     * @return Bytes read, or -1 if the API refused the request
+     */
+    private long streamLog(HealthCheck healthCheck, String podName, int limitBytes, Integer tailLines,
+                           LogTail tail, OutputStream spill) throws ApiException, IOException {
+        Call call = coreApi.readNamespacedPodLogCall(
+            podName, healthCheck.getNamespace(), null, false, null,
+            limitBytes, null, false, null, tailLines, false, null
+        );
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.error("Error reading pod logs for {}: HTTP {}", podName, response.code());
+                return -1;
+            }
+            long total = 0;
+            try (InputStream in = response.body().byteStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    tail.write(buffer, 0, read);
+                    spill.write(buffer, 0, read);
+                    total += read;
+                }
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * Background cleanup of check pods, exposed so its metrics can be registered
+     */
+    public PodReaper getPodReaper() {
+        return podReaper;
+    }
+    
+    /**
+     * Keep full logs of failed check pods on disk
+     */
+    public void setPodLogStore(PodLogStore podLogStore) {
+        this.podLogStore = podLogStore;
+    }
+    
+    /**
+     * The warm pod pool, or null if it is disabled
+     */
+    public WarmPodPool getWarmPodPool() {
+        return warmPodPool;
+    }
+    
+    private boolean isActivePod(String checkUUID) {
+        return activeCheckUUIDs.contains(checkUUID)
+            || (warmPodPool != null && warmPodPool.isPoolPod(checkUUID));
+    }
+    
     public void shutdown() {
         executorService.shutdown();
         try {
@@ -232,5 +409,11 @@ public class KubernetesCheckExecutor implements HealthCheckExecutor {
             executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        // Only once checks have drained: stopping the watcher fails every pod still being waited on
+        podWatcher.shutdown();
+        if (warmPodPool != null) {
+            warmPodPool.shutdown();
+        }
+        podReaper.shutdown();
     }
 }
@@ -0,0 +1,52 @@
+package com.kuberhealthy.check;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size ring buffer that keeps the last bytes written to it, so a log of
+ * any length can be streamed through while only its tail stays in memory
+ */
+class LogTail {
+    
+    private final byte[] buffer;
+    private int position;
+    private long written;
+    
+    LogTail(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+    
+    synchronized void write(byte[] bytes, int offset, int length) {
+        written += length;
+        if (length >= buffer.length) {
+            System.arraycopy(bytes, offset + length - buffer.length, buffer, 0, buffer.length);
+            position = 0;
+            return;
+        }
+        int first = Math.min(length, buffer.length - position);
+        System.arraycopy(bytes, offset, buffer, position, first);
+        System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+        position = (position + length) % buffer.length;
+    }
+    
+    /**
+     * The retained tail as text, prefixed with how much was dropped
+     */
+    @Override
+    public synchronized String toString() {
+        if (written <= buffer.length) {
+            return new String(buffer, 0, (int) written, StandardCharsets.UTF_8);
+        }
+        byte[] ordered = new byte[buffer.length];
+        System.arraycopy(buffer, position, ordered, 0, buffer.length - position);
+        System.arraycopy(buffer, 0, ordered, buffer.length - position, position);
+        
+        // Don't start in the middle of a multi-byte character
+        int start = 0;
+        while (start < ordered.length && (ordered[start] & 0xC0) == 0x80) {
+            start++;
+        }
+        return "[" + (written - buffer.length + start) + " bytes truncated]\n"
+            + new String(ordered, start, ordered.length - start, StandardCharsets.UTF_8);
+    }
+}
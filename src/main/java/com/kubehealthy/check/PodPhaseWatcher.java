@@ -0,0 +1,271 @@
+package com.kuberhealthy.check;
+
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.util.Watch;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared list/watch over check pods that keeps a local cache and completes
+ * waiters as soon as their pod reaches a terminal phase
+ */
+public class PodPhaseWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PodPhaseWatcher.class);
+    private static final String LABEL_SELECTOR = "app=kuberhealthy";
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final Type WATCH_TYPE = new TypeToken<Watch.Response<V1Pod>>() {}.getType();
+
+    private final ApiClient apiClient;
+    private final CoreV1Api coreApi;
+    private final OkHttpClient watchHttpClient;
+    private final Map<String, V1Pod> cache;
+    private final Map<String, Waiter> waiters;
+    private volatile boolean running;
+    private volatile Watch<V1Pod> currentWatch;
+    private Thread watchThread;
+
+    public PodPhaseWatcher(ApiClient apiClient) {
+        this.apiClient = apiClient;
+        this.coreApi = new CoreV1Api(apiClient);
+        // Watches are long-lived; the default client read timeout would tear them down
+        this.watchHttpClient = apiClient.getHttpClient().newBuilder()
+            .readTimeout(0, TimeUnit.SECONDS)
+            .build();
+        this.cache = new ConcurrentHashMap<>();
+        this.waiters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start the background list/watch loop
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        watchThread = new Thread(this::watchLoop, "pod-phase-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Pod phase watcher started for selector {}", LABEL_SELECTOR);
+    }
+
+    /**
+     * Register interest in a pod before it is created. The returned future completes
+     * with the pod once it is Succeeded or Failed, or with its last known state if
+     * the pod is deleted first.
+     */
+    public CompletableFuture<V1Pod> awaitTermination(String namespace, String podName) {
+        return awaitTermination(namespace, podName, new PodTimeline());
+    }
+
+    /**
+     * Register interest in a pod, recording when each lifecycle point is observed
+     * into the given timeline
+     */
+    public CompletableFuture<V1Pod> awaitTermination(String namespace, String podName, PodTimeline timeline) {
+        String key = key(namespace, podName);
+        Waiter waiter = waiters.computeIfAbsent(key, k -> new Waiter(timeline));
+
+        // The pod may already be terminal in the cache if the watch beat us here
+        V1Pod cached = cache.get(key);
+        if (cached != null) {
+            waiter.timeline.observe(cached, System.currentTimeMillis());
+            if (isTerminal(cached)) {
+                complete(key, cached);
+            }
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Drop the waiter for a pod, e.g. after a timeout
+     */
+    public void forget(String namespace, String podName) {
+        Waiter waiter = waiters.remove(key(namespace, podName));
+        if (waiter != null) {
+            waiter.future.cancel(false);
+        }
+    }
+
+    /**
+     * Get the cached copy of a pod, if the watcher has seen it
+     */
+    public V1Pod getCachedPod(String namespace, String podName) {
+        return cache.get(key(namespace, podName));
+    }
+
+    public void shutdown() {
+        running = false;
+        closeCurrentWatch();
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        waiters.values().forEach(waiter -> waiter.future.cancel(false));
+        waiters.clear();
+    }
+
+    private void watchLoop() {
+        String resourceVersion = null;
+
+        while (running) {
+            try {
+                if (resourceVersion == null) {
+                    resourceVersion = relist();
+                }
+                resourceVersion = watchFrom(resourceVersion);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Pod watch interrupted, re-listing: {}", e.getMessage());
+                resourceVersion = null;
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        logger.info("Pod phase watcher stopped");
+    }
+
+    private String relist() throws ApiException {
+        V1PodList podList = coreApi.listPodForAllNamespaces(
+            null, null, null, LABEL_SELECTOR, null,
+            null, null, null, null, null
+        );
+
+        Set<String> seen = new HashSet<>();
+        for (V1Pod pod : podList.getItems()) {
+            String key = key(pod);
+            seen.add(key);
+            apply(key, pod);
+        }
+
+        // Pods deleted while we weren't watching never get a DELETED event; hand
+        // their waiters the last state we saw rather than leaving them to time out
+        Set<String> gone = new HashSet<>(cache.keySet());
+        gone.removeAll(seen);
+        for (String key : gone) {
+            V1Pod last = cache.remove(key);
+            if (last != null) {
+                complete(key, last);
+            }
+        }
+
+        return podList.getMetadata() != null ? podList.getMetadata().getResourceVersion() : null;
+    }
+
+    private String watchFrom(String resourceVersion) throws Exception {
+        Call listCall = coreApi.listPodForAllNamespacesCall(
+            true, null, null, LABEL_SELECTOR, null,
+            null, resourceVersion, null, WATCH_TIMEOUT_SECONDS, true, null
+        );
+        Call watchCall = watchHttpClient.newCall(listCall.request());
+
+        try (Watch<V1Pod> watch = Watch.createWatch(apiClient, watchCall, WATCH_TYPE)) {
+            currentWatch = watch;
+            for (Watch.Response<V1Pod> event : watch) {
+                if ("ERROR".equals(event.type)) {
+                    // Typically 410 Gone: our resourceVersion is too old, start over with a list
+                    logger.debug("Pod watch returned error status: {}", event.status);
+                    return null;
+                }
+                V1Pod pod = event.object;
+                if (pod == null || pod.getMetadata() == null) {
+                    continue;
+                }
+                if (pod.getMetadata().getResourceVersion() != null) {
+                    resourceVersion = pod.getMetadata().getResourceVersion();
+                }
+                if ("BOOKMARK".equals(event.type)) {
+                    continue;
+                }
+
+                String key = key(pod);
+                if ("DELETED".equals(event.type)) {
+                    cache.remove(key);
+                    complete(key, pod);
+                } else {
+                    apply(key, pod);
+                }
+            }
+        } finally {
+            currentWatch = null;
+        }
+        return resourceVersion;
+    }
+
+    private void apply(String key, V1Pod pod) {
+        cache.put(key, pod);
+        Waiter waiter = waiters.get(key);
+        if (waiter != null) {
+            waiter.timeline.observe(pod, System.currentTimeMillis());
+        }
+        if (isTerminal(pod)) {
+            complete(key, pod);
+        }
+    }
+
+    private void complete(String key, V1Pod pod) {
+        Waiter waiter = waiters.remove(key);
+        if (waiter != null) {
+            waiter.future.complete(pod);
+        }
+    }
+
+    private void closeCurrentWatch() {
+        Watch<V1Pod> watch = currentWatch;
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                logger.debug("Error closing pod watch", e);
+            }
+        }
+    }
+
+    static boolean isTerminal(V1Pod pod) {
+        if (pod.getStatus() == null) {
+            return false;
+        }
+        String phase = pod.getStatus().getPhase();
+        return "Succeeded".equals(phase) || "Failed".equals(phase);
+    }
+
+    private static String key(V1Pod pod) {
+        return key(pod.getMetadata().getNamespace(), pod.getMetadata().getName());
+    }
+
+    private static String key(String namespace, String podName) {
+        return namespace + "/" + podName;
+    }
+
+    private static class Waiter {
+        private final CompletableFuture<V1Pod> future;
+        private final PodTimeline timeline;
+
+        Waiter(PodTimeline timeline) {
+            this.future = new CompletableFuture<>();
+            this.timeline = timeline;
+        }
+    }
+}
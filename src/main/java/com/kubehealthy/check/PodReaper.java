@@ -0,0 +1,233 @@
+package com.kuberhealthy.check;
+
+import com.kuberhealthy.metrics.MetricsCollector;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Deletes check pods in the background.
+ *
+ * Finished checks hand their pod's UUID to {@link #enqueue}; every batch
+ * interval the pending UUIDs are deleted per namespace with one
+ * deleteCollection call using a {@code check-uuid in (...)} selector, so
+ * cleanup costs a handful of API calls regardless of how many checks finished
+ * and never adds to a check's measured latency. A periodic sweep also deletes
+ * check pods left behind by a crash or restart.
+ */
+public class PodReaper implements MetricsCollector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PodReaper.class);
+    private static final String CHECK_POD_SELECTOR = "app=kuberhealthy,check-uuid";
+    private static final int MAX_UUIDS_PER_DELETE = 50;
+    
+    /**
+     * Terminal pods older than this are orphans even if their UUID is unknown
+     */
+    private static final long TERMINAL_ORPHAN_AGE_MILLIS = 120_000;
+    
+    private final CoreV1Api coreApi;
+    private final Map<String, ConcurrentLinkedQueue<String>> pending;
+    private final Predicate<String> isActive;
+    private final long batchIntervalMillis;
+    private final long sweepIntervalMillis;
+    private final long maxPodAgeMillis;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder pendingCount;
+    private final LongAdder deleteRequests;
+    private final LongAdder podsQueued;
+    private final LongAdder orphansDeleted;
+    // Bumped on every change to the exported values, so version() never repeats
+    private final AtomicLong changes;
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param isActive Whether a check UUID belongs to a run still in progress
+     * @param batchIntervalMillis Time between batched deletes
+     * @param sweepIntervalMillis Time between orphan sweeps
+     * @param maxPodAgeMillis Age after which any check pod is considered orphaned
+     */
+    public PodReaper(ApiClient apiClient, Predicate<String> isActive,
+                     long batchIntervalMillis, long sweepIntervalMillis, long maxPodAgeMillis) {
+        this.coreApi = new CoreV1Api(apiClient);
+        this.pending = new ConcurrentHashMap<>();
+        this.isActive = isActive;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.maxPodAgeMillis = maxPodAgeMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pod-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pendingCount = new LongAdder();
+        this.deleteRequests = new LongAdder();
+        this.podsQueued = new LongAdder();
+        this.orphansDeleted = new LongAdder();
+        this.changes = new AtomicLong();
+    }
+    
+    /**
+     * Start batched deletes and run the first orphan sweep right away
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sweepOrphans, 0, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::deletePending, batchIntervalMillis, batchIntervalMillis,
+            TimeUnit.MILLISECONDS);
+        logger.info("Pod reaper started: batch every {}ms, orphan sweep every {}ms",
+            batchIntervalMillis, sweepIntervalMillis);
+    }
+    
+    /**
+     * Queue the pod of a finished check run for deletion
+     */
+    public void enqueue(String namespace, String checkUUID) {
+        pending.computeIfAbsent(namespace, ns -> new ConcurrentLinkedQueue<>()).add(checkUUID);
+        pendingCount.increment();
+        podsQueued.increment();
+        changes.incrementAndGet();
+    }
+    
+    /**
+     * Stop background work after deleting whatever is still queued
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(batchIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deletePending();
+    }
+    
+    @Override
+    public long version() {
+        return changes.get();
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_pod_reaper_pending Check pods waiting for a batched delete\n");
+        out.append("# TYPE kuberhealthy_pod_reaper_pending gauge\n");
+        out.append("kuberhealthy_pod_reaper_pending ").append(pendingCount.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_pod_reaper_delete_requests_total Delete collection calls issued\n");
+        out.append("# TYPE kuberhealthy_pod_reaper_delete_requests_total counter\n");
+        out.append("kuberhealthy_pod_reaper_delete_requests_total ").append(deleteRequests.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_pod_reaper_pods_queued_total Check pods queued for deletion\n");
+        out.append("# TYPE kuberhealthy_pod_reaper_pods_queued_total counter\n");
+        out.append("kuberhealthy_pod_reaper_pods_queued_total ").append(podsQueued.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_pod_reaper_orphans_deleted_total Orphaned check pods found by sweeps\n");
+        out.append("# TYPE kuberhealthy_pod_reaper_orphans_deleted_total counter\n");
+        out.append("kuberhealthy_pod_reaper_orphans_deleted_total ").append(orphansDeleted.sum()).append("\n");
+    }
+    
+    private void deletePending() {
+        for (Map.Entry<String, ConcurrentLinkedQueue<String>> entry : pending.entrySet()) {
+            String namespace = entry.getKey();
+            ConcurrentLinkedQueue<String> queue = entry.getValue();
+            List<String> batch = new ArrayList<>(MAX_UUIDS_PER_DELETE);
+            String uuid;
+            while ((uuid = queue.poll()) != null) {
+                pendingCount.decrement();
+                changes.incrementAndGet();
+                batch.add(uuid);
+                if (batch.size() == MAX_UUIDS_PER_DELETE) {
+                    deleteBatch(namespace, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleteBatch(namespace, batch);
+            }
+        }
+    }
+    
+    private void deleteBatch(String namespace, List<String> uuids) {
+        String selector = "app=kuberhealthy,check-uuid in (" + String.join(",", uuids) + ")";
+        deleteRequests.increment();
+        changes.incrementAndGet();
+        try {
+            coreApi.deleteCollectionNamespacedPod(
+                namespace, null, null, null, null, null, selector,
+                null, null, "Background", null, null, null, null
+            );
+            logger.debug("Deleted {} check pods in {}", uuids.size(), namespace);
+        } catch (ApiException e) {
+            // The sweep picks up anything a failed batch left behind
+            logger.warn("Batched delete of {} check pods in {} failed: {} {}",
+                uuids.size(), namespace, e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("Batched delete of check pods in {} failed", namespace, e);
+        }
+    }
+    
+    /**
+     * Delete check pods no run is waiting on: finished pods of unknown runs, and
+     * any check pod older than the maximum age
+     */
+    private void sweepOrphans() {
+        V1PodList pods;
+        try {
+            pods = coreApi.listPodForAllNamespaces(
+                null, null, null, CHECK_POD_SELECTOR, null,
+                null, null, null, null, null
+            );
+        } catch (ApiException e) {
+            logger.warn("Orphaned pod sweep failed to list pods: {} {}", e.getCode(), e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.error("Orphaned pod sweep failed", e);
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        Set<String> namespaces = new HashSet<>();
+        int orphans = 0;
+        for (V1Pod pod : pods.getItems()) {
+            if (pod.getMetadata() == null || pod.getMetadata().getLabels() == null) {
+                continue;
+            }
+            String uuid = pod.getMetadata().getLabels().get("check-uuid");
+            if (uuid == null || isActive.test(uuid)) {
+                continue;
+            }
+            OffsetDateTime created = pod.getMetadata().getCreationTimestamp();
+            long ageMillis = created != null ? now - created.toInstant().toEpochMilli() : Long.MAX_VALUE;
+            boolean terminal = PodPhaseWatcher.isTerminal(pod);
+            if ((terminal && ageMillis > TERMINAL_ORPHAN_AGE_MILLIS) || ageMillis > maxPodAgeMillis) {
+                namespaces.add(pod.getMetadata().getNamespace());
+                enqueue(pod.getMetadata().getNamespace(), uuid);
+                orphans++;
+            }
+        }
+        if (orphans > 0) {
+            orphansDeleted.add(orphans);
+            changes.incrementAndGet();
+            logger.info("Found {} orphaned check pods in {} namespaces", orphans, namespaces.size());
+            deletePending();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.kuberhealthy.check;
+
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
+import io.kubernetes.client.openapi.models.V1Pod;
+
+/**
+ * Wall-clock times at which the pod watcher first observed a check pod reach each
+ * lifecycle point. Transitions that happen between two watch events are filled in
+ * with the later observation, so the times are always ordered.
+ */
+public class PodTimeline {
+    
+    private volatile long scheduledAtMillis;
+    private volatile long startedAtMillis;
+    private volatile long finishedAtMillis;
+    
+    /**
+     * Record the points the pod has reached, as observed at the given time
+     */
+    synchronized void observe(V1Pod pod, long nowMillis) {
+        boolean finished = PodPhaseWatcher.isTerminal(pod);
+        boolean started = finished || isContainerStarted(pod);
+        boolean scheduled = started || (pod.getSpec() != null && pod.getSpec().getNodeName() != null);
+        
+        if (scheduled && scheduledAtMillis == 0) {
+            scheduledAtMillis = nowMillis;
+        }
+        if (started && startedAtMillis == 0) {
+            startedAtMillis = nowMillis;
+        }
+        if (finished && finishedAtMillis == 0) {
+            finishedAtMillis = nowMillis;
+        }
+    }
+    
+    public long getScheduledAtMillis() {
+        return scheduledAtMillis;
+    }
+    
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+    
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+    
+    private static boolean isContainerStarted(V1Pod pod) {
+        if (pod.getStatus() == null) {
+            return false;
+        }
+        if ("Running".equals(pod.getStatus().getPhase())) {
+            return true;
+        }
+        if (pod.getStatus().getContainerStatuses() == null) {
+            return false;
+        }
+        for (V1ContainerStatus containerStatus : pod.getStatus().getContainerStatuses()) {
+            if (containerStatus.getState() != null
+                && (containerStatus.getState().getRunning() != null
+                    || containerStatus.getState().getTerminated() != null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.kuberhealthy.check;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled at a fixed rate. Callers reserve a token up front and
+ * sleep off any deficit, so waiting callers are served in arrival order.
+ */
+class TokenBucket {
+    
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+    
+    /**
+     * @param tokensPerSecond Sustained rate
+     * @param capacity Tokens available in a burst
+     */
+    TokenBucket(double tokensPerSecond, int capacity) {
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+    
+    /**
+     * Take a token, blocking until it is available
+     *
+     * @return nanoseconds spent waiting
+     */
+    long acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+}
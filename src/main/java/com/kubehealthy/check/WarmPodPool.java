@@ -0,0 +1,457 @@
+package com.kuberhealthy.check;
+
+import com.kuberhealthy.metrics.MetricsCollector;
+import com.kuberhealthy.model.CheckPhase;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import io.kubernetes.client.Exec;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1ContainerStatus;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a few idle, already running pods per check image and runs check
+ * commands in them with exec, so checks that set {@code podSpec.warmPool}
+ * skip scheduling, image pull and container start on every run.
+ *
+ * Pool pods run the check image with an idle shell loop (the image needs
+ * {@code sh} and {@code sleep}); the check's command and args are exec'd into
+ * the container and the exit code is the result. Pods are recycled after a
+ * fixed lifetime so leftovers from earlier runs don't accumulate, and a pod
+ * whose run times out is discarded. When no pod is ready, or exec fails, the
+ * check runs in a new pod as usual.
+ */
+public class WarmPodPool implements MetricsCollector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WarmPodPool.class);
+    public static final String POOL_LABEL = "kuberhealthy.io/warm-pool";
+    private static final String CONTAINER_NAME = "check";
+    private static final List<String> IDLE_COMMAND = List.of(
+        "sh", "-c", "trap 'exit 0' TERM; while true; do sleep 3600 & wait; done");
+    private static final long MAINTAIN_INTERVAL_MILLIS = 5000;
+    
+    /**
+     * Pods still not running after this are replaced
+     */
+    private static final long START_TIMEOUT_MILLIS = 300_000;
+    private static final int MAX_OUTPUT_BYTES = 4096;
+    
+    private final CoreV1Api coreApi;
+    private final Exec exec;
+    private final PodPhaseWatcher podWatcher;
+    private final PodReaper podReaper;
+    private final int podsPerImage;
+    private final long podLifetimeMillis;
+    private final Map<String, Pool> pools;
+    private final Set<String> podUUIDs;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger podCount;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder podsCreated;
+    private final LongAdder podsDiscarded;
+    // Bumped on every change to the exported values, so version() never repeats
+    private final AtomicLong changes;
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param podWatcher Watcher whose cache tells when pool pods are running
+     * @param podReaper Reaper that deletes discarded pool pods
+     * @param podsPerImage Pods kept per namespace and image
+     * @param podLifetimeMillis Age at which an idle pod is replaced
+     */
+    public WarmPodPool(ApiClient apiClient, PodPhaseWatcher podWatcher, PodReaper podReaper,
+                       int podsPerImage, long podLifetimeMillis) {
+        this.coreApi = new CoreV1Api(apiClient);
+        this.exec = new Exec(apiClient);
+        this.podWatcher = podWatcher;
+        this.podReaper = podReaper;
+        this.podsPerImage = podsPerImage;
+        this.podLifetimeMillis = podLifetimeMillis;
+        this.pools = new ConcurrentHashMap<>();
+        this.podUUIDs = ConcurrentHashMap.newKeySet();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "warm-pod-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.podCount = new AtomicInteger();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.podsCreated = new LongAdder();
+        this.podsDiscarded = new LongAdder();
+        this.changes = new AtomicLong();
+    }
+    
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::maintain, MAINTAIN_INTERVAL_MILLIS, MAINTAIN_INTERVAL_MILLIS,
+            TimeUnit.MILLISECONDS);
+        logger.info("Warm pod pool started: {} pods per image, recycled every {}ms",
+            podsPerImage, podLifetimeMillis);
+    }
+    
+    /**
+     * Whether a check UUID label belongs to one of this pool's pods
+     */
+    public boolean isPoolPod(String checkUUID) {
+        return podUUIDs.contains(checkUUID);
+    }
+    
+    /**
+     * Run a check in a warm pod. The first run of an image creates its pool and
+     * returns false, as does any run that finds no pod ready.
+     *
+     * @return true if the check ran and the result was filled in, false if it
+     *         should run in a new pod instead
+     */
+    public boolean tryRun(HealthCheck healthCheck, CheckResult result) {
+        HealthCheck.PodSpec spec = healthCheck.getPodSpec();
+        if (spec == null || !spec.isWarmPool() || spec.getImage() == null
+                || spec.getCommand() == null || spec.getCommand().isEmpty()) {
+            return false;
+        }
+        
+        String key = healthCheck.getNamespace() + "|" + spec.getImage() + "|" + spec.getImagePullPolicy();
+        Pool pool = pools.computeIfAbsent(key,
+            k -> new Pool(key, healthCheck.getNamespace(), spec.getImage(), spec.getImagePullPolicy()));
+        pool.lastUsedMillis = System.currentTimeMillis();
+        
+        WarmPod pod = acquire(pool);
+        if (pod == null) {
+            misses.increment();
+            changes.incrementAndGet();
+            return false;
+        }
+        hits.increment();
+        changes.incrementAndGet();
+        
+        List<String> command = new ArrayList<>(spec.getCommand());
+        if (spec.getArgs() != null) {
+            command.addAll(spec.getArgs());
+        }
+        
+        long execStart = System.currentTimeMillis();
+        Process process;
+        try {
+            process = exec.exec(pool.namespace, pod.name, command.toArray(new String[0]),
+                CONTAINER_NAME, false, false);
+        } catch (ApiException | IOException e) {
+            logger.warn("Exec into warm pod {} failed, running {} in a new pod: {}",
+                pod.name, healthCheck.getName(), e.getMessage());
+            discard(pool, pod);
+            return false;
+        }
+        
+        LogTail output = new LogTail(MAX_OUTPUT_BYTES);
+        Thread stdout = Thread.ofVirtual().start(() -> drain(process.getInputStream(), output));
+        Thread stderr = Thread.ofVirtual().start(() -> drain(process.getErrorStream(), output));
+        boolean reusable = false;
+        try {
+            if (process.waitFor(healthCheck.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+                int exitCode = process.exitValue();
+                result.setPhaseDurationMillis(CheckPhase.RUN, System.currentTimeMillis() - execStart);
+                result.setOk(exitCode == 0);
+                if (exitCode != 0) {
+                    result.addError("Check command in warm pod " + pod.name + " exited with code " + exitCode);
+                    stdout.join(1000);
+                    stderr.join(1000);
+                    String logs = output.toString();
+                    if (!logs.isEmpty()) {
+                        result.addError("Pod logs: " + logs);
+                    }
+                }
+                reusable = true;
+            } else {
+                // The command may still be running; don't hand this pod out again
+                result.addError("Check timed out after " + healthCheck.getTimeoutSeconds() + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.addError("Check interrupted while running in warm pod " + pod.name);
+        } finally {
+            process.destroy();
+        }
+        
+        if (reusable) {
+            release(pool, pod);
+        } else {
+            discard(pool, pod);
+        }
+        return true;
+    }
+    
+    /**
+     * Stop maintaining the pool and hand every pool pod to the reaper
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Pool pool : pools.values()) {
+            WarmPod pod;
+            while ((pod = pool.idle.poll()) != null) {
+                discard(pool, pod);
+            }
+        }
+        pools.clear();
+    }
+    
+    @Override
+    public long version() {
+        return changes.get();
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_warm_pool_pods Warm pool pods, idle or running a check\n");
+        out.append("# TYPE kuberhealthy_warm_pool_pods gauge\n");
+        out.append("kuberhealthy_warm_pool_pods ").append(podCount.get()).append("\n");
+        
+        out.append("# HELP kuberhealthy_warm_pool_hits_total Check runs served by a warm pod\n");
+        out.append("# TYPE kuberhealthy_warm_pool_hits_total counter\n");
+        out.append("kuberhealthy_warm_pool_hits_total ").append(hits.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_warm_pool_misses_total Warm pool check runs that found no ready pod\n");
+        out.append("# TYPE kuberhealthy_warm_pool_misses_total counter\n");
+        out.append("kuberhealthy_warm_pool_misses_total ").append(misses.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_warm_pool_pods_created_total Warm pool pods created\n");
+        out.append("# TYPE kuberhealthy_warm_pool_pods_created_total counter\n");
+        out.append("kuberhealthy_warm_pool_pods_created_total ").append(podsCreated.sum()).append("\n");
+        
+        out.append("# HELP kuberhealthy_warm_pool_pods_discarded_total Warm pool pods recycled or discarded\n");
+        out.append("# TYPE kuberhealthy_warm_pool_pods_discarded_total counter\n");
+        out.append("kuberhealthy_warm_pool_pods_discarded_total ").append(podsDiscarded.sum()).append("\n");
+    }
+    
+    /**
+     * Take the first ready pod, keeping pods that are still starting and
+     * discarding dead or expired ones along the way
+     */
+    private WarmPod acquire(Pool pool) {
+        for (int i = pool.idle.size(); i > 0; i--) {
+            WarmPod pod = pool.idle.poll();
+            if (pod == null) {
+                return null;
+            }
+            switch (stateOf(pool, pod)) {
+                case READY:
+                    return pod;
+                case STARTING:
+                    pool.idle.add(pod);
+                    break;
+                default:
+                    discard(pool, pod);
+            }
+        }
+        return null;
+    }
+    
+    private void release(Pool pool, WarmPod pod) {
+        // A pool dropped while this pod was busy no longer hands pods out
+        if (pools.get(pool.key) == pool && stateOf(pool, pod) != PodState.DEAD) {
+            pool.idle.add(pod);
+        } else {
+            discard(pool, pod);
+        }
+    }
+    
+    private void discard(Pool pool, WarmPod pod) {
+        pool.size.decrementAndGet();
+        podCount.decrementAndGet();
+        podsDiscarded.increment();
+        changes.incrementAndGet();
+        podUUIDs.remove(pod.uuid);
+        podReaper.enqueue(pool.namespace, pod.uuid);
+    }
+    
+    /**
+     * Drop pools nobody used for a pod lifetime, replace dead and expired idle
+     * pods, and top every pool back up
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (Pool pool : pools.values()) {
+            try {
+                if (now - pool.lastUsedMillis > podLifetimeMillis) {
+                    pools.remove(pool.key, pool);
+                    WarmPod pod;
+                    while ((pod = pool.idle.poll()) != null) {
+                        discard(pool, pod);
+                    }
+                    logger.info("Dropped unused warm pool for {} in {}", pool.image, pool.namespace);
+                    continue;
+                }
+                
+                for (int i = pool.idle.size(); i > 0; i--) {
+                    WarmPod pod = pool.idle.poll();
+                    if (pod == null) {
+                        break;
+                    }
+                    if (stateOf(pool, pod) == PodState.DEAD) {
+                        discard(pool, pod);
+                    } else {
+                        pool.idle.add(pod);
+                    }
+                }
+                
+                while (pool.size.get() < podsPerImage) {
+                    createPod(pool);
+                }
+            } catch (ApiException e) {
+                logger.warn("Failed to create warm pod for {} in {}: {} {}",
+                    pool.image, pool.namespace, e.getCode(), e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error maintaining warm pool for {} in {}", pool.image, pool.namespace, e);
+            }
+        }
+    }
+    
+    private void createPod(Pool pool) throws ApiException {
+        String uuid = UUID.randomUUID().toString();
+        String name = "khwarm-" + uuid.substring(0, 8);
+        
+        V1ObjectMeta metadata = new V1ObjectMeta();
+        metadata.setName(name);
+        metadata.setNamespace(pool.namespace);
+        // check-uuid lets the reaper delete the pod, and sweep it up after a crash
+        metadata.setLabels(Map.of(
+            "app", "kuberhealthy",
+            "check-uuid", uuid,
+            POOL_LABEL, "true"
+        ));
+        
+        V1Container container = new V1Container();
+        container.setName(CONTAINER_NAME);
+        container.setImage(pool.image);
+        container.setImagePullPolicy(pool.imagePullPolicy);
+        container.setCommand(IDLE_COMMAND);
+        
+        V1PodSpec spec = new V1PodSpec();
+        spec.setRestartPolicy("Never");
+        spec.addContainersItem(container);
+        
+        V1Pod pod = new V1Pod();
+        pod.setMetadata(metadata);
+        pod.setSpec(spec);
+        
+        podUUIDs.add(uuid);
+        try {
+            coreApi.createNamespacedPod(pool.namespace, pod, null, null, null, null);
+        } catch (ApiException e) {
+            podUUIDs.remove(uuid);
+            throw e;
+        }
+        pool.size.incrementAndGet();
+        podCount.incrementAndGet();
+        podsCreated.increment();
+        changes.incrementAndGet();
+        pool.idle.add(new WarmPod(name, uuid, System.currentTimeMillis()));
+        logger.debug("Created warm pod {} for {}", name, pool.image);
+    }
+    
+    private PodState stateOf(Pool pool, WarmPod pod) {
+        long age = System.currentTimeMillis() - pod.createdMillis;
+        if (age > podLifetimeMillis) {
+            return PodState.DEAD;
+        }
+        V1Pod cached = podWatcher.getCachedPod(pool.namespace, pod.name);
+        if (cached == null) {
+            return age > START_TIMEOUT_MILLIS ? PodState.DEAD : PodState.STARTING;
+        }
+        if (PodPhaseWatcher.isTerminal(cached) || cached.getMetadata().getDeletionTimestamp() != null) {
+            return PodState.DEAD;
+        }
+        if (isRunningAndReady(cached)) {
+            return PodState.READY;
+        }
+        return age > START_TIMEOUT_MILLIS ? PodState.DEAD : PodState.STARTING;
+    }
+    
+    private static boolean isRunningAndReady(V1Pod pod) {
+        if (pod.getStatus() == null || !"Running".equals(pod.getStatus().getPhase())
+                || pod.getStatus().getContainerStatuses() == null) {
+            return false;
+        }
+        for (V1ContainerStatus status : pod.getStatus().getContainerStatuses()) {
+            if (!Boolean.TRUE.equals(status.getReady())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Copy a stream into a shared tail buffer
+     */
+    private static void drain(InputStream in, LogTail output) {
+        byte[] buffer = new byte[4096];
+        try (in) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // Stream closed when the process was destroyed
+        }
+    }
+    
+    private enum PodState {
+        STARTING,
+        READY,
+        DEAD
+    }
+    
+    private static class Pool {
+        private final String key;
+        private final String namespace;
+        private final String image;
+        private final String imagePullPolicy;
+        private final Queue<WarmPod> idle;
+        private final AtomicInteger size;
+        private volatile long lastUsedMillis;
+        
+        Pool(String key, String namespace, String image, String imagePullPolicy) {
+            this.key = key;
+            this.namespace = namespace;
+            this.image = image;
+            this.imagePullPolicy = imagePullPolicy;
+            this.idle = new ConcurrentLinkedQueue<>();
+            this.size = new AtomicInteger();
+        }
+    }
+    
+    private static class WarmPod {
+        private final String name;
+        private final String uuid;
+        private final long createdMillis;
+        
+        WarmPod(String name, String uuid, long createdMillis) {
+            this.name = name;
+            this.uuid = uuid;
+            this.createdMillis = createdMillis;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.kuberhealthy.check.examples;
 
 import com.kuberhealthy.model.CheckResult;
 import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.check.CheckTask;
+import com.kuberhealthy.check.ExecutionMode;
 import com.kuberhealthy.check.HealthCheckExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,7 +11,10 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Example: Simple network connectivity check executor
@@ -19,17 +24,31 @@ public class NetworkCheckExecutor implements HealthCheckExecutor {
     
     private static final Logger logger = LoggerFactory.getLogger(NetworkCheckExecutor.class);
     private final Map<String, CompletableFuture<CheckResult>> runningChecks;
+    private final Map<String, CheckTask<CheckResult>> runningByUUID;
+    private final ExecutorService executorService;
     
     public NetworkCheckExecutor() {
+        this(ExecutionMode.VIRTUAL, 0);
+    }
+    
+    /**
+     * @param executionMode Threading model for the blocking lookups
+     * @param maxConcurrentChecks Maximum number of lookups in flight, or 0 for unbounded
+     */
+    public NetworkCheckExecutor(ExecutionMode executionMode, int maxConcurrentChecks) {
         this.runningChecks = new ConcurrentHashMap<>();
+        this.runningByUUID = new ConcurrentHashMap<>();
+        this.executorService = executionMode.newExecutorService("network-check", maxConcurrentChecks);
     }
     
     @Override
     public CompletableFuture<CheckResult> execute(HealthCheck healthCheck) {
+        String checkUUID = UUID.randomUUID().toString();
         logger.info("Starting network check: {}", healthCheck.getName());
         
-        CompletableFuture<CheckResult> future = CompletableFuture.supplyAsync(() -> {
+        CheckTask<CheckResult> task = CheckTask.submit(() -> {
             CheckResult result = new CheckResult(healthCheck.getName(), false);
+            result.setUuid(checkUUID);
             long startTime = System.currentTimeMillis();
             
             try {
@@ -49,27 +68,25 @@ public class NetworkCheckExecutor implements HealthCheckExecutor {
             } finally {
                 long endTime = System.currentTimeMillis();
                 result.setRunDurationMillis(endTime - startTime);
-                runningChecks.remove(healthCheck.getName());
             }
             
             return result;
-        });
+        }, executorService);
         
+        CompletableFuture<CheckResult> future = task.future();
         runningChecks.put(healthCheck.getName(), future);
+        runningByUUID.put(checkUUID, task);
+        future.whenComplete((result, error) -> {
+            runningChecks.remove(healthCheck.getName(), future);
+            runningByUUID.remove(checkUUID);
+        });
         return future;
     }
     
     @Override
     public boolean cancel(String checkUUID) {
-        for (Map.Entry<String, CompletableFuture<CheckResult>> entry : runningChecks.entrySet()) {
-            CompletableFuture<CheckResult> future = entry.getValue();
-            if (!future.isDone()) {
-                future.cancel(true);
-                runningChecks.remove(entry.getKey());
-                return true;
-            }
-        }
-        return false;
+        CheckTask<CheckResult> task = runningByUUID.get(checkUUID);
+        return task != null && task.cancel();
     }
     
     @Override
@@ -77,4 +94,16 @@ public class NetworkCheckExecutor implements HealthCheckExecutor {
         CompletableFuture<CheckResult> future = runningChecks.get(checkName);
         return future != null && !future.isDone();
     }
+    
+    public void shutdown() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
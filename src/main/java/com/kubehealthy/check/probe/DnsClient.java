@@ -0,0 +1,506 @@
+package com.kuberhealthy.check.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal non-blocking DNS stub resolver.
+ *
+ * Queries go out over one UDP channel and a single receiver thread matches
+ * answers to pending queries by ID, so any number of lookups can be in flight
+ * without a thread each (unlike {@link InetAddress#getByName}). Names are
+ * looked up in /etc/hosts first, then expanded with the resolv.conf search
+ * list the same way libc does. An answer too large for UDP, marked truncated
+ * by the server, is asked for again over TCP.
+ */
+class DnsClient {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DnsClient.class);
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final int TYPE_A = 1;
+    private static final int TYPE_AAAA = 28;
+    private static final int RCODE_OK = 0;
+    private static final int RCODE_NXDOMAIN = 3;
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final long QUERY_TIMEOUT_MILLIS = 2000;
+    // UDP may drop the query or the answer; send it once more before giving up
+    private static final long RETRANSMIT_MILLIS = 700;
+    private static final int MAX_RESPONSE_BYTES = 4096;
+    
+    private final InetSocketAddress defaultServer;
+    private final List<String> searchDomains;
+    private final int ndots;
+    private final Map<String, List<InetAddress>> hosts;
+    private final DatagramChannel channel;
+    private final Map<Integer, Query> pending;
+    private final Thread receiver;
+    private volatile boolean running;
+    
+    DnsClient(InetSocketAddress defaultServer, List<String> searchDomains, int ndots,
+              Map<String, List<InetAddress>> hosts) throws IOException {
+        this.defaultServer = defaultServer;
+        this.searchDomains = searchDomains;
+        this.ndots = ndots;
+        this.hosts = hosts;
+        this.channel = DatagramChannel.open();
+        this.channel.bind(null);
+        this.pending = new ConcurrentHashMap<>();
+        this.running = true;
+        this.receiver = new Thread(this::receiveLoop, "probe-dns");
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+    
+    /**
+     * Resolver configured from /etc/resolv.conf and /etc/hosts
+     */
+    static DnsClient fromSystem() throws IOException {
+        InetSocketAddress server = null;
+        List<String> search = new ArrayList<>();
+        int ndots = 1;
+        for (String line : readLines(Paths.get("/etc/resolv.conf"))) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 2 || fields[0].startsWith("#") || fields[0].startsWith(";")) {
+                continue;
+            }
+            if ("nameserver".equals(fields[0])) {
+                InetAddress address = literal(fields[1]);
+                if (server == null && address != null) {
+                    server = new InetSocketAddress(address, 53);
+                }
+            } else if ("search".equals(fields[0]) || "domain".equals(fields[0])) {
+                search.clear();
+                for (int i = 1; i < fields.length; i++) {
+                    search.add(trimDot(fields[i]));
+                }
+            } else if ("options".equals(fields[0])) {
+                for (int i = 1; i < fields.length; i++) {
+                    if (fields[i].startsWith("ndots:")) {
+                        try {
+                            ndots = Integer.parseInt(fields[i].substring("ndots:".length()));
+                        } catch (NumberFormatException e) {
+                            // Keep the default, like libc does for a value it can't read
+                            logger.warn("Ignoring invalid resolv.conf option {}", fields[i]);
+                        }
+                    }
+                }
+            }
+        }
+        
+        Map<String, List<InetAddress>> hosts = new HashMap<>();
+        for (String line : readLines(Paths.get("/etc/hosts"))) {
+            int comment = line.indexOf('#');
+            String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (fields.length < 2) {
+                continue;
+            }
+            InetAddress address = literal(fields[0]);
+            if (address == null) {
+                continue;
+            }
+            for (int i = 1; i < fields.length; i++) {
+                hosts.computeIfAbsent(fields[i].toLowerCase(Locale.ROOT), name -> new ArrayList<>()).add(address);
+            }
+        }
+        
+        if (server == null) {
+            server = new InetSocketAddress(InetAddress.getLoopbackAddress(), 53);
+        }
+        return new DnsClient(server, search, ndots, hosts);
+    }
+    
+    /**
+     * Resolve a name through the default server
+     */
+    CompletableFuture<List<InetAddress>> resolve(String name) {
+        return resolve(name, null);
+    }
+    
+    /**
+     * Resolve a name to its A records, or AAAA records if it has none
+     *
+     * @param server Server to ask, or null for the configured nameserver and /etc/hosts
+     */
+    CompletableFuture<List<InetAddress>> resolve(String name, InetSocketAddress server) {
+        InetAddress address = literal(name);
+        if (address != null) {
+            return CompletableFuture.completedFuture(List.of(address));
+        }
+        if (server == null) {
+            List<InetAddress> fromHosts = hosts.get(trimDot(name).toLowerCase(Locale.ROOT));
+            if (fromHosts != null) {
+                return CompletableFuture.completedFuture(fromHosts);
+            }
+        }
+        return lookup(name, candidates(name), 0, server != null ? server : defaultServer);
+    }
+    
+    void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing DNS channel", e);
+        }
+        pending.values().forEach(query -> query.future.cancel(false));
+        pending.clear();
+    }
+    
+    private CompletableFuture<List<InetAddress>> lookup(String name, List<String> candidates, int index,
+                                                        InetSocketAddress server) {
+        String fqdn = candidates.get(index);
+        return query(fqdn, TYPE_A, server)
+            .thenCompose(answer -> answer.rcode == RCODE_OK && answer.addresses.isEmpty()
+                ? query(fqdn, TYPE_AAAA, server)
+                : CompletableFuture.completedFuture(answer))
+            .thenCompose(answer -> {
+                if (!answer.addresses.isEmpty()) {
+                    return CompletableFuture.completedFuture(answer.addresses);
+                }
+                if (answer.rcode != RCODE_OK && answer.rcode != RCODE_NXDOMAIN) {
+                    return CompletableFuture.failedFuture(
+                        new UnknownHostException("server returned " + rcodeName(answer.rcode) + " for " + fqdn));
+                }
+                if (index + 1 < candidates.size()) {
+                    return lookup(name, candidates, index + 1, server);
+                }
+                return CompletableFuture.failedFuture(new UnknownHostException("no such host"));
+            });
+    }
+    
+    private CompletableFuture<Answer> query(String fqdn, int type, InetSocketAddress server) {
+        Query query = new Query(server);
+        int id;
+        do {
+            id = ThreadLocalRandom.current().nextInt(0x10000);
+        } while (pending.putIfAbsent(id, query) != null);
+        int queryId = id;
+        query.future.whenComplete((answer, error) -> pending.remove(queryId, query));
+        
+        ByteBuffer packet;
+        try {
+            packet = encodeQuery(queryId, fqdn, type);
+        } catch (IllegalArgumentException e) {
+            query.future.completeExceptionally(e);
+            return query.future;
+        }
+        send(query, packet);
+        CompletableFuture.delayedExecutor(RETRANSMIT_MILLIS, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!query.future.isDone()) {
+                send(query, packet.rewind());
+            }
+        });
+        return query.future
+            .orTimeout(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .exceptionallyCompose(error -> CompletableFuture.failedFuture(error instanceof TimeoutException
+                ? new UnknownHostException("no answer from " + server.getHostString() + " for " + fqdn)
+                : error))
+            .thenCompose(answer -> answer.truncated
+                ? queryTcp(fqdn, type, server)
+                : CompletableFuture.completedFuture(answer));
+    }
+    
+    /**
+     * Ask again over a TCP connection of its own, for answers that didn't fit
+     * in a UDP response
+     */
+    private CompletableFuture<Answer> queryTcp(String fqdn, int type, InetSocketAddress server) {
+        int id = ThreadLocalRandom.current().nextInt(0x10000);
+        ByteBuffer packet = encodeQuery(id, fqdn, type);
+        ByteBuffer request = ByteBuffer.allocate(2 + packet.remaining());
+        request.putShort((short) packet.remaining()).put(packet).flip();
+        
+        AsynchronousSocketChannel socket;
+        try {
+            socket = AsynchronousSocketChannel.open();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        socket.connect(server, null, completing(connected));
+        CompletableFuture<Answer> answer = connected
+            .thenCompose(ignored -> writeFully(socket, request))
+            .thenCompose(ignored -> readFully(socket, ByteBuffer.allocate(2)))
+            .thenCompose(length -> readFully(socket, ByteBuffer.allocate(length.getShort(0) & 0xFFFF)))
+            .thenApply(response -> {
+                response.flip();
+                try {
+                    int flags = response.getShort(2) & 0xFFFF;
+                    if ((response.getShort(0) & 0xFFFF) == id && (flags & FLAG_RESPONSE) != 0) {
+                        return parseAnswer(response, flags);
+                    }
+                } catch (IndexOutOfBoundsException | BufferUnderflowException | UnknownHostException e) {
+                    // Reported below
+                }
+                throw new CompletionException(new IOException("Malformed DNS response over TCP for " + fqdn));
+            })
+            .orTimeout(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .exceptionallyCompose(error -> CompletableFuture.failedFuture(error instanceof TimeoutException
+                ? new UnknownHostException("no answer over TCP from " + server.getHostString() + " for " + fqdn)
+                : error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+        answer.whenComplete((result, error) -> {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing DNS TCP connection", e);
+            }
+        });
+        return answer;
+    }
+    
+    private static CompletableFuture<Void> writeFully(AsynchronousSocketChannel socket, ByteBuffer buffer) {
+        CompletableFuture<Integer> written = new CompletableFuture<>();
+        socket.write(buffer, null, completing(written));
+        return written.thenCompose(count -> buffer.hasRemaining()
+            ? writeFully(socket, buffer)
+            : CompletableFuture.completedFuture(null));
+    }
+    
+    private static CompletableFuture<ByteBuffer> readFully(AsynchronousSocketChannel socket, ByteBuffer buffer) {
+        CompletableFuture<Integer> read = new CompletableFuture<>();
+        socket.read(buffer, null, completing(read));
+        return read.thenCompose(count -> {
+            if (count < 0) {
+                return CompletableFuture.failedFuture(new EOFException("DNS server closed the connection"));
+            }
+            return buffer.hasRemaining()
+                ? readFully(socket, buffer)
+                : CompletableFuture.completedFuture(buffer);
+        });
+    }
+    
+    private static <V> CompletionHandler<V, Void> completing(CompletableFuture<V> future) {
+        return new CompletionHandler<>() {
+            @Override
+            public void completed(V result, Void attachment) {
+                future.complete(result);
+            }
+            
+            @Override
+            public void failed(Throwable error, Void attachment) {
+                future.completeExceptionally(error);
+            }
+        };
+    }
+    
+    private void send(Query query, ByteBuffer packet) {
+        try {
+            if (channel.send(packet, query.server) == 0) {
+                query.future.completeExceptionally(new IOException("DNS send buffer full"));
+            }
+        } catch (IOException e) {
+            query.future.completeExceptionally(e);
+        }
+    }
+    
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_RESPONSE_BYTES);
+        while (running) {
+            try {
+                buffer.clear();
+                SocketAddress from = channel.receive(buffer);
+                buffer.flip();
+                handleResponse(buffer, from);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                logger.debug("DNS receive failed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void handleResponse(ByteBuffer buffer, SocketAddress from) {
+        try {
+            int id = buffer.getShort(0) & 0xFFFF;
+            Query query = pending.get(id);
+            // Ignore late, stray and spoofed answers
+            if (query == null || !query.server.equals(from)) {
+                return;
+            }
+            int flags = buffer.getShort(2) & 0xFFFF;
+            if ((flags & FLAG_RESPONSE) == 0) {
+                return;
+            }
+            if ((flags & FLAG_TRUNCATED) != 0) {
+                // The records that did fit may not be all of them
+                query.future.complete(Answer.TRUNCATED);
+                return;
+            }
+            query.future.complete(parseAnswer(buffer, flags));
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | UnknownHostException e) {
+            logger.debug("Malformed DNS response from {}", from);
+        }
+    }
+    
+    private static Answer parseAnswer(ByteBuffer buffer, int flags) throws UnknownHostException {
+        int questions = buffer.getShort(4) & 0xFFFF;
+        int answers = buffer.getShort(6) & 0xFFFF;
+        int position = 12;
+        for (int i = 0; i < questions; i++) {
+            position = skipName(buffer, position) + 4;
+        }
+        List<InetAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < answers; i++) {
+            position = skipName(buffer, position);
+            int type = buffer.getShort(position) & 0xFFFF;
+            int length = buffer.getShort(position + 8) & 0xFFFF;
+            position += 10;
+            if ((type == TYPE_A && length == 4) || (type == TYPE_AAAA && length == 16)) {
+                byte[] raw = new byte[length];
+                buffer.get(position, raw);
+                addresses.add(InetAddress.getByAddress(raw));
+            }
+            position += length;
+        }
+        return new Answer(flags & 0xF, addresses, false);
+    }
+    
+    private List<String> candidates(String name) {
+        if (name.endsWith(".")) {
+            return List.of(trimDot(name));
+        }
+        List<String> candidates = new ArrayList<>();
+        long dots = name.chars().filter(c -> c == '.').count();
+        if (dots >= ndots) {
+            candidates.add(name);
+        }
+        for (String domain : searchDomains) {
+            candidates.add(name + "." + domain);
+        }
+        if (dots < ndots) {
+            candidates.add(name);
+        }
+        return candidates;
+    }
+    
+    private static ByteBuffer encodeQuery(int id, String fqdn, int type) {
+        ByteBuffer packet = ByteBuffer.allocate(12 + fqdn.length() + 2 + 4);
+        packet.putShort((short) id);
+        packet.putShort((short) 0x0100); // recursion desired
+        packet.putShort((short) 1);
+        packet.putShort((short) 0);
+        packet.putShort((short) 0);
+        packet.putShort((short) 0);
+        for (String label : fqdn.split("\\.")) {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0 || bytes.length > 63) {
+                throw new IllegalArgumentException("Invalid DNS name: " + fqdn);
+            }
+            packet.put((byte) bytes.length);
+            packet.put(bytes);
+        }
+        packet.put((byte) 0);
+        packet.putShort((short) type);
+        packet.putShort((short) 1); // class IN
+        packet.flip();
+        return packet;
+    }
+    
+    private static int skipName(ByteBuffer buffer, int position) {
+        while (true) {
+            int length = buffer.get(position) & 0xFF;
+            if ((length & 0xC0) == 0xC0) {
+                return position + 2;
+            }
+            if (length == 0) {
+                return position + 1;
+            }
+            position += length + 1;
+        }
+    }
+    
+    /**
+     * The address for an IP literal, without a lookup, or null for a host name
+     */
+    static InetAddress literal(String host) {
+        if (host == null || !(IPV4_LITERAL.matcher(host).matches() || host.indexOf(':') >= 0)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+    
+    private static String rcodeName(int rcode) {
+        switch (rcode) {
+            case 1:
+                return "FORMERR";
+            case 2:
+                return "SERVFAIL";
+            case 4:
+                return "NOTIMP";
+            case 5:
+                return "REFUSED";
+            default:
+                return "RCODE " + rcode;
+        }
+    }
+    
+    private static String trimDot(String name) {
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+    
+    private static List<String> readLines(Path path) {
+        try {
+            return Files.readAllLines(path);
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+    
+    private static class Query {
+        private final CompletableFuture<Answer> future;
+        private final InetSocketAddress server;
+        
+        Query(InetSocketAddress server) {
+            this.future = new CompletableFuture<>();
+            this.server = server;
+        }
+    }
+    
+    private static class Answer {
+        private static final Answer TRUNCATED = new Answer(RCODE_OK, List.of(), true);
+        
+        private final int rcode;
+        private final List<InetAddress> addresses;
+        private final boolean truncated;
+        
+        Answer(int rcode, List<InetAddress> addresses, boolean truncated) {
+            this.rcode = rcode;
+            this.addresses = addresses;
+            this.truncated = truncated;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Resolves every name in {@code names}, optionally against a specific
+ * {@code server}; fails if any of them doesn't resolve
+ */
+class DnsProbe implements Probe {
+    
+    private final DnsClient dnsClient;
+    
+    DnsProbe(DnsClient dnsClient) {
+        this.dnsClient = dnsClient;
+    }
+    
+    @Override
+    public CompletableFuture<Void> run(HealthCheck.ProbeSpec spec, Duration timeout) {
+        if (spec.getNames() == null || spec.getNames().isEmpty()) {
+            return CompletableFuture.failedFuture(new ProbeException("dns probe needs at least one name"));
+        }
+        InetSocketAddress server = null;
+        if (spec.getServer() != null && !spec.getServer().isEmpty()) {
+            server = parseServer(spec.getServer());
+            if (server == null) {
+                return CompletableFuture.failedFuture(
+                    new ProbeException("dns probe server must be an IP address with an optional port"));
+            }
+        }
+        
+        List<String> names = spec.getNames();
+        List<CompletableFuture<List<InetAddress>>> lookups = new ArrayList<>(names.size());
+        for (String name : names) {
+            lookups.add(dnsClient.resolve(name, server));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, error) -> {
+                List<String> failures = new ArrayList<>();
+                for (int i = 0; i < lookups.size(); i++) {
+                    CompletableFuture<List<InetAddress>> lookup = lookups.get(i);
+                    if (lookup.isCancelled()) {
+                        failures.add(names.get(i) + " (cancelled)");
+                    } else if (lookup.isCompletedExceptionally()) {
+                        failures.add(names.get(i) + " (" + lookup.exceptionNow().getMessage() + ")");
+                    }
+                }
+                if (!failures.isEmpty()) {
+                    throw new CompletionException(
+                        new ProbeException("Failed to resolve " + String.join(", ", failures)));
+                }
+                return null;
+            });
+    }
+    
+    /**
+     * Parse {@code address}, {@code address:port} or {@code [v6address]:port}
+     */
+    private static InetSocketAddress parseServer(String server) {
+        String host = server;
+        int port = 53;
+        int colon = server.lastIndexOf(':');
+        if (server.startsWith("[")) {
+            int close = server.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            host = server.substring(1, close);
+            if (close + 1 < server.length()) {
+                if (server.charAt(close + 1) != ':') {
+                    return null;
+                }
+                port = parsePort(server.substring(close + 2));
+            }
+        } else if (colon >= 0 && server.indexOf(':') == colon) {
+            host = server.substring(0, colon);
+            port = parsePort(server.substring(colon + 1));
+        }
+        InetAddress address = DnsClient.literal(host);
+        return address != null && port > 0 ? new InetSocketAddress(address, port) : null;
+    }
+    
+    private static int parsePort(String port) {
+        try {
+            int value = Integer.parseInt(port);
+            return value > 0 && value <= 65535 ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * GETs {@code url} and checks the status code, and optionally that the body
+ * contains {@code bodyContains}
+ */
+class HttpProbe implements Probe {
+    
+    private final HttpClient httpClient;
+    
+    HttpProbe(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+    
+    @Override
+    public CompletableFuture<Void> run(HealthCheck.ProbeSpec spec, Duration timeout) {
+        if (spec.getUrl() == null || spec.getUrl().isEmpty()) {
+            return CompletableFuture.failedFuture(new ProbeException("http probe needs a url"));
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(spec.getUrl()))
+                .timeout(timeout)
+                .GET()
+                .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new ProbeException("Invalid url " + spec.getUrl(), e));
+        }
+        
+        String expectedText = spec.getBodyContains();
+        if (expectedText == null || expectedText.isEmpty()) {
+            CompletableFuture<HttpResponse<Void>> sent =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+            return abortWhenDone(sent, sent.thenAccept(response -> checkStatus(spec, response)));
+        }
+        CompletableFuture<HttpResponse<String>> sent =
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        return abortWhenDone(sent, sent.thenAccept(response -> {
+            checkStatus(spec, response);
+            if (response.body() == null || !response.body().contains(expectedText)) {
+                throw new CompletionException(new ProbeException(
+                    "Response body from " + spec.getUrl() + " does not contain '" + expectedText + "'"));
+            }
+        }));
+    }
+    
+    /**
+     * Abort the exchange if the probe is completed first, on timeout or cancel
+     */
+    private static CompletableFuture<Void> abortWhenDone(CompletableFuture<?> sent, CompletableFuture<Void> probe) {
+        probe.whenComplete((ignored, error) -> sent.cancel(true));
+        return probe;
+    }
+    
+    private static void checkStatus(HealthCheck.ProbeSpec spec, HttpResponse<?> response) {
+        int status = response.statusCode();
+        boolean ok = spec.getExpectedStatus() > 0
+            ? status == spec.getExpectedStatus()
+            : status >= 200 && status < 300;
+        if (!ok) {
+            String expected = spec.getExpectedStatus() > 0 ? String.valueOf(spec.getExpectedStatus()) : "2xx";
+            throw new CompletionException(new ProbeException(
+                spec.getUrl() + " returned HTTP " + status + ", expected " + expected));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One kind of in-process probe.
+ *
+ * Implementations must not block the calling thread. The returned future
+ * completes when the target passes and exceptionally with a
+ * {@link ProbeException} when it fails. The executor may complete it first on
+ * timeout, so implementations release their connections when it completes
+ * rather than when their own I/O finishes.
+ */
+public interface Probe {
+    
+    CompletableFuture<Void> run(HealthCheck.ProbeSpec spec, Duration timeout);
+}
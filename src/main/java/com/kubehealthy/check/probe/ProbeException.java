@@ -0,0 +1,17 @@
+package com.kuberhealthy.check.probe;
+
+/**
+ * A probe ran and the target failed it; the message is reported as the check error
+ */
+public class ProbeException extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ProbeException(String message) {
+        super(message);
+    }
+    
+    public ProbeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,166 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.check.HealthCheckExecutor;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a check's {@link HealthCheck.ProbeSpec} in-process instead of in a pod.
+ *
+ * Every probe type does non-blocking I/O, so a handful of I/O threads can keep
+ * thousands of probes in flight; none of them holds a thread while waiting on
+ * the network.
+ */
+public class ProbeExecutor implements HealthCheckExecutor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProbeExecutor.class);
+    private static final long DEFAULT_TIMEOUT_SECONDS = 10;
+    
+    private final AsynchronousChannelGroup channelGroup;
+    private final ExecutorService httpExecutor;
+    private final HttpClient httpClient;
+    private final DnsClient dnsClient;
+    private final Map<String, Probe> probes;
+    private final Map<String, CompletableFuture<CheckResult>> runningChecks;
+    // The probe's own future, so cancelling reaches the probe and releases its connection
+    private final Map<String, CompletableFuture<Void>> runningByUUID;
+    
+    /**
+     * @param ioThreads Threads completing probe I/O
+     */
+    public ProbeExecutor(int ioThreads) throws IOException, NoSuchAlgorithmException {
+        int threads = Math.max(1, ioThreads);
+        this.channelGroup = AsynchronousChannelGroup.withFixedThreadPool(threads,
+            Thread.ofPlatform().name("probe-io-", 0).daemon(true).factory());
+        this.httpExecutor = Executors.newFixedThreadPool(threads,
+            Thread.ofPlatform().name("probe-http-", 0).daemon(true).factory());
+        this.httpClient = HttpClient.newBuilder()
+            .executor(httpExecutor)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.dnsClient = DnsClient.fromSystem();
+        this.probes = new ConcurrentHashMap<>();
+        this.runningChecks = new ConcurrentHashMap<>();
+        this.runningByUUID = new ConcurrentHashMap<>();
+        
+        TcpProbe tcpProbe = new TcpProbe(channelGroup, dnsClient);
+        // Straight into the map: register() is overridable, so it is not called from here
+        probes.put("http", new HttpProbe(httpClient));
+        probes.put("tcp", tcpProbe);
+        probes.put("tls", new TlsProbe(channelGroup, tcpProbe, SSLContext.getDefault()));
+        probes.put("dns", new DnsProbe(dnsClient));
+    }
+    
+    /**
+     * Add or replace the probe run for checks whose {@code probe.type} matches
+     */
+    public void register(String type, Probe probe) {
+        probes.put(type.toLowerCase(Locale.ROOT), probe);
+    }
+    
+    @Override
+    public CompletableFuture<CheckResult> execute(HealthCheck healthCheck) {
+        String checkUUID = UUID.randomUUID().toString();
+        HealthCheck.ProbeSpec spec = healthCheck.getProbe();
+        Probe probe = spec != null && spec.getType() != null
+            ? probes.get(spec.getType().toLowerCase(Locale.ROOT))
+            : null;
+        long timeoutSeconds = healthCheck.getTimeoutSeconds() > 0
+            ? healthCheck.getTimeoutSeconds()
+            : DEFAULT_TIMEOUT_SECONDS;
+        long startTime = System.currentTimeMillis();
+        
+        CompletableFuture<Void> run;
+        if (probe == null) {
+            run = CompletableFuture.failedFuture(new ProbeException(spec == null
+                ? "Check has no probe"
+                : "Unknown probe type: " + spec.getType()));
+        } else {
+            try {
+                run = probe.run(spec, Duration.ofSeconds(timeoutSeconds));
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+        }
+        
+        CompletableFuture<CheckResult> future = run
+            .orTimeout(timeoutSeconds, TimeUnit.SECONDS)
+            .handle((ignored, error) -> {
+                CheckResult result = new CheckResult(healthCheck.getName(), error == null);
+                result.setUuid(checkUUID);
+                result.setRunDurationMillis(System.currentTimeMillis() - startTime);
+                if (error != null) {
+                    result.addError(describe(error, timeoutSeconds));
+                    logger.debug("Probe {} failed: {}", healthCheck.getName(), result.getErrors());
+                }
+                return result;
+            });
+        
+        runningChecks.put(healthCheck.getName(), future);
+        runningByUUID.put(checkUUID, run);
+        future.whenComplete((result, error) -> {
+            runningChecks.remove(healthCheck.getName(), future);
+            runningByUUID.remove(checkUUID);
+        });
+        return future;
+    }
+    
+    @Override
+    public boolean cancel(String checkUUID) {
+        CompletableFuture<Void> run = runningByUUID.get(checkUUID);
+        return run != null && run.cancel(true);
+    }
+    
+    @Override
+    public boolean isRunning(String checkName) {
+        CompletableFuture<CheckResult> future = runningChecks.get(checkName);
+        return future != null && !future.isDone();
+    }
+    
+    public void shutdown() {
+        dnsClient.close();
+        httpClient.shutdownNow();
+        httpExecutor.shutdownNow();
+        try {
+            channelGroup.shutdownNow();
+        } catch (IOException e) {
+            logger.warn("Error shutting down probe I/O threads", e);
+        }
+    }
+    
+    private static String describe(Throwable error, long timeoutSeconds) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof CancellationException) {
+            return "Probe cancelled";
+        }
+        if (error instanceof TimeoutException) {
+            return "Probe timed out after " + timeoutSeconds + " seconds";
+        }
+        if (error instanceof ProbeException) {
+            return error.getMessage();
+        }
+        return "Probe error: " + TcpProbe.rootMessage(error);
+    }
+}
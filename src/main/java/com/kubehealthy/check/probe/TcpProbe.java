@@ -0,0 +1,89 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opens a TCP connection to {@code host:port} and closes it again
+ */
+class TcpProbe implements Probe {
+    
+    private final AsynchronousChannelGroup channelGroup;
+    private final DnsClient dnsClient;
+    
+    TcpProbe(AsynchronousChannelGroup channelGroup, DnsClient dnsClient) {
+        this.channelGroup = channelGroup;
+        this.dnsClient = dnsClient;
+    }
+    
+    @Override
+    public CompletableFuture<Void> run(HealthCheck.ProbeSpec spec, Duration timeout) {
+        if (spec.getHost() == null || spec.getHost().isEmpty() || spec.getPort() <= 0) {
+            return CompletableFuture.failedFuture(new ProbeException("tcp probe needs a host and port"));
+        }
+        AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open(channelGroup);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> future = connect(channel, spec.getHost(), spec.getPort());
+        future.whenComplete((ignored, error) -> closeQuietly(channel));
+        return future;
+    }
+    
+    /**
+     * Resolve the host without blocking and connect the channel to its first address
+     */
+    CompletableFuture<Void> connect(AsynchronousSocketChannel channel, String host, int port) {
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        dnsClient.resolve(host).whenComplete((addresses, error) -> {
+            if (error != null) {
+                connected.completeExceptionally(
+                    new ProbeException("Failed to resolve " + host + ": " + rootMessage(error)));
+                return;
+            }
+            try {
+                channel.connect(new InetSocketAddress(addresses.get(0), port), null,
+                    new CompletionHandler<Void, Void>() {
+                        @Override
+                        public void completed(Void result, Void attachment) {
+                            connected.complete(null);
+                        }
+                        
+                        @Override
+                        public void failed(Throwable e, Void attachment) {
+                            connected.completeExceptionally(new ProbeException(
+                                "Failed to connect to " + host + ":" + port + ": " + rootMessage(e)));
+                        }
+                    });
+            } catch (RuntimeException e) {
+                // Thrown if the channel was already closed by a timeout
+                connected.completeExceptionally(e);
+            }
+        });
+        return connected;
+    }
+    
+    static String rootMessage(Throwable error) {
+        while (error.getCause() != null && error.getCause() != error) {
+            error = error.getCause();
+        }
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+    
+    static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing more to release
+        }
+    }
+}
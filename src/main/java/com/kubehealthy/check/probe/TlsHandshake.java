@@ -0,0 +1,140 @@
+package com.kuberhealthy.check.probe;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives a client TLS handshake over an asynchronous channel, so it runs on
+ * the I/O threads as data arrives instead of blocking a thread per connection
+ */
+class TlsHandshake {
+    
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    
+    private final AsynchronousSocketChannel channel;
+    private final SSLEngine engine;
+    private final CompletableFuture<SSLSession> future;
+    private final ByteBuffer netIn;
+    private final ByteBuffer netOut;
+    private final ByteBuffer appIn;
+    
+    TlsHandshake(AsynchronousSocketChannel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+        this.future = new CompletableFuture<>();
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+    }
+    
+    /**
+     * Start the handshake; the future completes with the negotiated session
+     */
+    CompletableFuture<SSLSession> start() {
+        try {
+            engine.beginHandshake();
+            step();
+        } catch (SSLException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Advance the handshake as far as possible without I/O, then issue the
+     * read or write it is waiting for; its completion calls back in here
+     */
+    private void step() throws SSLException {
+        while (!future.isDone()) {
+            SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+            switch (status) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    netOut.clear();
+                    SSLEngineResult wrapped = engine.wrap(EMPTY, netOut);
+                    netOut.flip();
+                    if (wrapped.getStatus() == SSLEngineResult.Status.CLOSED && !netOut.hasRemaining()) {
+                        future.completeExceptionally(new SSLException("Connection closed during handshake"));
+                        return;
+                    }
+                    write();
+                    return;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    netIn.flip();
+                    SSLEngineResult unwrapped = engine.unwrap(netIn, appIn);
+                    netIn.compact();
+                    if (unwrapped.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                        read();
+                        return;
+                    }
+                    if (unwrapped.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        future.completeExceptionally(new SSLException("Connection closed during handshake"));
+                        return;
+                    }
+                    // Application data isn't expected during a handshake; drop it
+                    appIn.clear();
+                    break;
+                default:
+                    future.complete(engine.getSession());
+                    return;
+            }
+        }
+    }
+    
+    private void write() {
+        channel.write(netOut, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer written, Void attachment) {
+                if (netOut.hasRemaining()) {
+                    write();
+                } else {
+                    resume();
+                }
+            }
+            
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+    
+    private void read() {
+        channel.read(netIn, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read < 0) {
+                    future.completeExceptionally(new SSLException("Connection closed during handshake"));
+                } else {
+                    resume();
+                }
+            }
+            
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+    
+    private void resume() {
+        try {
+            step();
+        } catch (SSLException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
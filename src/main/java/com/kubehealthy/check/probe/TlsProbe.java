@@ -0,0 +1,87 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.IOException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Completes a TLS handshake with {@code host:port} (default 443), verifying the
+ * certificate chain and host name, and fails if the server certificate expires
+ * within {@code minValidDays}
+ */
+class TlsProbe implements Probe {
+    
+    private static final int DEFAULT_PORT = 443;
+    
+    private final AsynchronousChannelGroup channelGroup;
+    private final TcpProbe tcpProbe;
+    private final SSLContext sslContext;
+    
+    TlsProbe(AsynchronousChannelGroup channelGroup, TcpProbe tcpProbe, SSLContext sslContext) {
+        this.channelGroup = channelGroup;
+        this.tcpProbe = tcpProbe;
+        this.sslContext = sslContext;
+    }
+    
+    @Override
+    public CompletableFuture<Void> run(HealthCheck.ProbeSpec spec, Duration timeout) {
+        if (spec.getHost() == null || spec.getHost().isEmpty()) {
+            return CompletableFuture.failedFuture(new ProbeException("tls probe needs a host"));
+        }
+        String host = spec.getHost();
+        int port = spec.getPort() > 0 ? spec.getPort() : DEFAULT_PORT;
+        AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open(channelGroup);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        engine.setSSLParameters(parameters);
+        
+        CompletableFuture<Void> future = tcpProbe.connect(channel, host, port)
+            .thenCompose(ignored -> new TlsHandshake(channel, engine).start()
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(new ProbeException(
+                    "TLS handshake with " + host + ":" + port + " failed: " + TcpProbe.rootMessage(error)))))
+            .thenAccept(session -> {
+                try {
+                    checkExpiry(host, port, session.getPeerCertificates(), spec.getMinValidDays());
+                } catch (SSLPeerUnverifiedException e) {
+                    throw new CompletionException(new ProbeException(host + ":" + port + " sent no certificate"));
+                }
+            });
+        future.whenComplete((ignored, error) -> {
+            engine.closeOutbound();
+            TcpProbe.closeQuietly(channel);
+        });
+        return future;
+    }
+    
+    private static void checkExpiry(String host, int port, Certificate[] chain, int minValidDays) {
+        if (chain.length == 0 || !(chain[0] instanceof X509Certificate)) {
+            throw new CompletionException(new ProbeException(host + ":" + port + " sent no X.509 certificate"));
+        }
+        Instant notAfter = ((X509Certificate) chain[0]).getNotAfter().toInstant();
+        long daysLeft = Duration.between(Instant.now(), notAfter).toDays();
+        if (daysLeft < minValidDays) {
+            throw new CompletionException(new ProbeException("Certificate for " + host + ":" + port
+                + " expires in " + daysLeft + " days (" + notAfter + "), need at least " + minValidDays));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.kuberhealthy.cluster;
+
+import com.kuberhealthy.controller.CheckOwnership;
+import com.kuberhealthy.controller.HealthCheckController;
+import io.kubernetes.client.extended.leaderelection.LeaderElectionConfig;
+import io.kubernetes.client.extended.leaderelection.LeaderElector;
+import io.kubernetes.client.extended.leaderelection.resourcelock.LeaseLock;
+import io.kubernetes.client.openapi.ApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Lease-based leader election: the replica holding the lease runs every check
+ * and the others stand by, taking over within one lease duration if the
+ * leader goes away
+ */
+public class LeaderElection implements CheckOwnership {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElection.class);
+    private static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(15);
+    private static final Duration DEFAULT_RENEW_DEADLINE = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_RETRY_PERIOD = Duration.ofSeconds(2);
+    
+    private final HealthCheckController controller;
+    private final LeaderElector elector;
+    private final String identity;
+    private final Duration retryPeriod;
+    private volatile boolean leader;
+    private volatile boolean running;
+    private Thread electionThread;
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param controller Controller to notify when leadership changes
+     * @param namespace Namespace of the lease
+     * @param leaseName Name of the lease shared by all replicas
+     * @param identity Unique identity of this replica, usually the pod name
+     */
+    public LeaderElection(ApiClient apiClient, HealthCheckController controller,
+                          String namespace, String leaseName, String identity) {
+        this(apiClient, controller, namespace, leaseName, identity,
+            DEFAULT_LEASE_DURATION, DEFAULT_RENEW_DEADLINE, DEFAULT_RETRY_PERIOD);
+    }
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param controller Controller to notify when leadership changes
+     * @param namespace Namespace of the lease
+     * @param leaseName Name of the lease shared by all replicas
+     * @param identity Unique identity of this replica, usually the pod name
+     * @param leaseDuration Time a standby waits for an unrenewed lease before taking it
+     * @param renewDeadline Time the leader keeps retrying a renewal before stepping down; under the lease duration
+     * @param retryPeriod Time between attempts to acquire or renew the lease
+     */
+    public LeaderElection(ApiClient apiClient, HealthCheckController controller,
+                          String namespace, String leaseName, String identity,
+                          Duration leaseDuration, Duration renewDeadline, Duration retryPeriod) {
+        this.controller = controller;
+        this.identity = identity;
+        this.retryPeriod = retryPeriod;
+        LeaseLock lock = new LeaseLock(namespace, leaseName, identity, apiClient);
+        this.elector = new LeaderElector(
+            new LeaderElectionConfig(lock, leaseDuration, renewDeadline, retryPeriod));
+    }
+    
+    @Override
+    public boolean owns(String checkName) {
+        return leader;
+    }
+    
+    public boolean isLeader() {
+        return leader;
+    }
+    
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        electionThread = new Thread(this::electionLoop, "leader-election");
+        electionThread.setDaemon(true);
+        electionThread.start();
+        logger.info("Leader election started as {}", identity);
+    }
+    
+    public void shutdown() {
+        running = false;
+        try {
+            // Releases the lease if we hold it so a standby takes over immediately
+            elector.close();
+        } catch (Exception e) {
+            logger.debug("Error closing leader elector", e);
+        }
+        if (electionThread != null) {
+            electionThread.interrupt();
+        }
+    }
+    
+    private void electionLoop() {
+        // run() returns after leadership is lost; go back to candidacy until shut down
+        while (running) {
+            try {
+                elector.run(this::startedLeading, this::stoppedLeading);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Leader election failed, retrying: {}", e.getMessage());
+            }
+            if (leader) {
+                stoppedLeading();
+            }
+            try {
+                Thread.sleep(retryPeriod.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+    
+    private void startedLeading() {
+        logger.info("{} is now the leader and runs all checks", identity);
+        leader = true;
+        controller.ownershipChanged();
+    }
+    
+    private void stoppedLeading() {
+        logger.info("{} is no longer the leader", identity);
+        leader = false;
+        controller.ownershipChanged();
+    }
+}
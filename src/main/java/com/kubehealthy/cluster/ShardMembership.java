@@ -0,0 +1,278 @@
+package com.kuberhealthy.cluster;
+
+import com.kuberhealthy.controller.CheckOwnership;
+import com.kuberhealthy.controller.HealthCheckController;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoordinationV1Api;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads checks across live replicas.
+ *
+ * Each replica keeps its own membership Lease renewed; the live members are
+ * those whose lease hasn't expired. A check belongs to the member with the
+ * highest rendezvous hash of (member, check), so every replica computes the
+ * same owner without coordination, and when a member joins or leaves only
+ * the checks it gains or held move.
+ *
+ * A replica owns nothing until it has renewed its own lease and listed the
+ * others, and stops owning anything once its last successful renewal is a
+ * lease duration old: by then the others treat it as gone and take over its
+ * checks, so running them too would run them twice. For the same reason a
+ * replica that joins, or rejoins after losing its lease, waits until every
+ * other member has listed its lease and given up the checks it gains.
+ */
+public class ShardMembership implements CheckOwnership {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ShardMembership.class);
+    private static final String MEMBER_LABEL = "kuberhealthy.io/shard-member";
+    private static final int DEFAULT_LEASE_DURATION_SECONDS = 15;
+    private static final long DEFAULT_RENEW_INTERVAL_MILLIS = 5000;
+    
+    private final CoordinationV1Api coordinationApi;
+    private final HealthCheckController controller;
+    private final String namespace;
+    private final String group;
+    private final String identity;
+    private final String leaseName;
+    private final int leaseDurationSeconds;
+    private final long renewIntervalMillis;
+    private final ScheduledExecutorService renewer;
+    private volatile List<String> members;
+    // System.nanoTime() at the start of the last renew + list that succeeded
+    private volatile long renewedAtNanos;
+    // Start of the first renewal since we last had no live lease
+    private volatile long liveSinceNanos;
+    private volatile boolean renewed;
+    private boolean current;
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param controller Controller to notify when membership changes
+     * @param namespace Namespace of the membership leases
+     * @param group Name shared by all replicas, used to label and name their leases
+     * @param identity Unique identity of this replica, usually the pod name
+     */
+    public ShardMembership(ApiClient apiClient, HealthCheckController controller,
+                           String namespace, String group, String identity) {
+        this(apiClient, controller, namespace, group, identity,
+            DEFAULT_LEASE_DURATION_SECONDS, DEFAULT_RENEW_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param controller Controller to notify when membership changes
+     * @param namespace Namespace of the membership leases
+     * @param group Name shared by all replicas, used to label and name their leases
+     * @param identity Unique identity of this replica, usually the pod name
+     * @param leaseDurationSeconds Time a lease stays live without renewal; the same on every replica
+     * @param renewIntervalMillis Time between renewals; the same on every replica and well under the lease duration
+     */
+    public ShardMembership(ApiClient apiClient, HealthCheckController controller,
+                           String namespace, String group, String identity,
+                           int leaseDurationSeconds, long renewIntervalMillis) {
+        this.coordinationApi = new CoordinationV1Api(apiClient);
+        this.controller = controller;
+        this.namespace = namespace;
+        this.group = group;
+        this.identity = identity;
+        this.leaseName = group + "-" + identity;
+        this.leaseDurationSeconds = leaseDurationSeconds;
+        this.renewIntervalMillis = renewIntervalMillis;
+        this.members = List.of();
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-membership");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public boolean owns(String checkName) {
+        return isCurrent() && identity.equals(ownerOf(checkName, members));
+    }
+    
+    /**
+     * Whether this replica runs its share of checks: its lease was renewed, and
+     * members listed, less than a lease duration ago, and it has been live long
+     * enough for every other member to have seen it
+     */
+    public boolean isCurrent() {
+        long now = System.nanoTime();
+        // Others list members every renew interval, plus however long their renew takes
+        return isLive(now) && now - liveSinceNanos >= TimeUnit.MILLISECONDS.toNanos(2 * renewIntervalMillis);
+    }
+    
+    private boolean isLive(long nowNanos) {
+        return renewed && nowNanos - renewedAtNanos < TimeUnit.SECONDS.toNanos(leaseDurationSeconds);
+    }
+    
+    /**
+     * Current live members, sorted
+     */
+    public List<String> getMembers() {
+        return members;
+    }
+    
+    public void start() {
+        renewer.scheduleWithFixedDelay(this::renewAndRefresh, 0, renewIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Shard membership started as {} in group {}", identity, group);
+    }
+    
+    public void shutdown() {
+        renewed = false;
+        renewer.shutdown();
+        try {
+            renewer.awaitTermination(renewIntervalMillis, TimeUnit.MILLISECONDS);
+            // Leave promptly so the others pick up our checks without waiting for expiry
+            coordinationApi.deleteNamespacedLease(leaseName, namespace, null, null, null, null, null, null);
+        } catch (ApiException e) {
+            logger.debug("Failed to delete membership lease {}: {}", leaseName, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * The member that owns a check: highest rendezvous score wins
+     */
+    static String ownerOf(String checkName, List<String> members) {
+        String owner = null;
+        long best = 0;
+        for (String member : members) {
+            long score = score(member, checkName);
+            if (owner == null || Long.compareUnsigned(score, best) > 0) {
+                owner = member;
+                best = score;
+            }
+        }
+        return owner;
+    }
+    
+    private void renewAndRefresh() {
+        long startedNanos = System.nanoTime();
+        boolean changed = false;
+        try {
+            renew();
+            List<String> live = liveMembers();
+            if (!isLive(startedNanos)) {
+                liveSinceNanos = startedNanos;
+            }
+            renewedAtNanos = startedNanos;
+            renewed = true;
+            if (!live.equals(members)) {
+                logger.info("Shard members changed: {} -> {}", members, live);
+                members = live;
+                changed = true;
+            }
+        } catch (ApiException e) {
+            logger.warn("Shard membership update failed: {} {}", e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("Shard membership update failed", e);
+        }
+        
+        boolean nowCurrent = isCurrent();
+        if (nowCurrent != current) {
+            if (nowCurrent) {
+                logger.info("Membership lease of {} is live, running its share of checks", identity);
+            } else {
+                logger.warn("Membership lease of {} could not be renewed, running no checks until it is", identity);
+            }
+            current = nowCurrent;
+            changed = true;
+        }
+        if (changed) {
+            controller.ownershipChanged();
+        }
+    }
+    
+    private void renew() throws ApiException {
+        OffsetDateTime now = OffsetDateTime.now();
+        V1Lease lease;
+        try {
+            lease = coordinationApi.readNamespacedLease(leaseName, namespace, null);
+        } catch (ApiException e) {
+            if (e.getCode() != 404) {
+                throw e;
+            }
+            lease = new V1Lease()
+                .metadata(new V1ObjectMeta()
+                    .name(leaseName)
+                    .namespace(namespace)
+                    .labels(Map.of(MEMBER_LABEL, group)))
+                .spec(new V1LeaseSpec()
+                    .holderIdentity(identity)
+                    .leaseDurationSeconds(leaseDurationSeconds)
+                    .acquireTime(now)
+                    .renewTime(now));
+            coordinationApi.createNamespacedLease(namespace, lease, null, null, null, null);
+            return;
+        }
+        lease.getSpec().holderIdentity(identity).leaseDurationSeconds(leaseDurationSeconds).renewTime(now);
+        coordinationApi.replaceNamespacedLease(leaseName, namespace, lease, null, null, null, null);
+    }
+    
+    /**
+     * Holders of unexpired membership leases, sorted; our own lease only counts
+     * if it is live like anyone else's
+     */
+    private List<String> liveMembers() throws ApiException {
+        V1LeaseList leases = coordinationApi.listNamespacedLease(
+            namespace, null, null, null, null, MEMBER_LABEL + "=" + group,
+            null, null, null, null, null
+        );
+        
+        OffsetDateTime now = OffsetDateTime.now();
+        List<String> live = new ArrayList<>();
+        for (V1Lease lease : leases.getItems()) {
+            V1LeaseSpec spec = lease.getSpec();
+            if (spec == null || spec.getHolderIdentity() == null || spec.getRenewTime() == null) {
+                continue;
+            }
+            int duration = spec.getLeaseDurationSeconds() != null
+                ? spec.getLeaseDurationSeconds()
+                : leaseDurationSeconds;
+            if (spec.getRenewTime().plusSeconds(duration).isAfter(now)) {
+                live.add(spec.getHolderIdentity());
+            }
+        }
+        Collections.sort(live);
+        return List.copyOf(live);
+    }
+    
+    /**
+     * 64-bit FNV-1a over member and check, finished with the Murmur3 mixer
+     */
+    private static long score(String member, String checkName) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : member.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xff) * 0x100000001b3L;
+        for (byte b : checkName.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
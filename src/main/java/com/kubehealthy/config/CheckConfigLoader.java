@@ -0,0 +1,195 @@
+package com.kuberhealthy.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.model.HealthCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses check configuration documents and applies them to the controller.
+ *
+ * Each load is diffed against the checks this loader registered last time:
+ * new checks are registered, checks that are no longer present are
+ * unregistered, and only checks whose definition changed are re-registered
+ * (keeping their current status). Unchanged checks keep their schedules, so
+ * reloading a large config touches only what actually changed. Names already
+ * registered by another source are skipped rather than taken over.
+ */
+public class CheckConfigLoader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CheckConfigLoader.class);
+    
+    private final HealthCheckController controller;
+    private final ObjectMapper objectMapper;
+    private final Set<String> managedChecks;
+    private String lastDocument;
+    
+    public CheckConfigLoader(HealthCheckController controller) {
+        this.controller = controller;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.managedChecks = new HashSet<>();
+    }
+    
+    /**
+     * Parse a checks.json document and apply it
+     *
+     * @param document The JSON document, {@code {"checks": [...]}}
+     * @param source Where the document came from, for logging
+     * @return The changes applied, or null if the document was unchanged or invalid
+     */
+    public synchronized Diff load(String document, String source) {
+        if (document == null) {
+            logger.warn("No check configuration found in {}", source);
+            return null;
+        }
+        if (document.equals(lastDocument)) {
+            logger.debug("Check configuration from {} is unchanged", source);
+            return null;
+        }
+        
+        List<HealthCheck> checks;
+        try {
+            checks = parse(document);
+        } catch (IOException | IllegalArgumentException e) {
+            // Keep running the last good configuration
+            logger.error("Invalid check configuration in {}: {}", source, e.getMessage());
+            return null;
+        }
+        
+        Diff diff = apply(checks);
+        lastDocument = document;
+        logger.info("Applied check configuration from {}: {} added, {} changed, {} removed, {} skipped, {} unchanged",
+            source, diff.added.size(), diff.changed.size(), diff.removed.size(), diff.skipped.size(), diff.unchanged);
+        return diff;
+    }
+    
+    /**
+     * Parse and validate a checks.json document
+     */
+    public List<HealthCheck> parse(String document) throws IOException {
+        CheckConfig config = objectMapper.readValue(document, CheckConfig.class);
+        List<HealthCheck> checks = config.checks != null ? config.checks : List.of();
+        
+        Set<String> names = new HashSet<>();
+        for (HealthCheck check : checks) {
+            if (check.getName() == null || check.getName().isEmpty()) {
+                throw new IllegalArgumentException("Check without a name");
+            }
+            if (!names.add(check.getName())) {
+                throw new IllegalArgumentException("Duplicate check name: " + check.getName());
+            }
+            if (check.getRunIntervalSeconds() <= 0) {
+                throw new IllegalArgumentException("Check " + check.getName() + " has no runInterval");
+            }
+            if (check.getTimeoutSeconds() < 0) {
+                throw new IllegalArgumentException("Check " + check.getName() + " has a negative timeout");
+            }
+            if (check.getTimeoutSeconds() == 0) {
+                // Omitted; a zero timeout would fail every run immediately
+                check.setTimeoutSeconds(HealthCheck.DEFAULT_TIMEOUT_SECONDS);
+            }
+            if (HealthCheck.TYPE_POD.equals(check.getType())
+                    && (check.getPodSpec() == null || check.getPodSpec().getImage() == null)) {
+                throw new IllegalArgumentException("Check " + check.getName() + " has no podSpec image");
+            }
+            if (HealthCheck.TYPE_PROBE.equals(check.getType())
+                    && (check.getProbe() == null || check.getProbe().getType() == null)) {
+                throw new IllegalArgumentException("Check " + check.getName() + " has no probe type");
+            }
+        }
+        return checks;
+    }
+    
+    private Diff apply(List<HealthCheck> checks) {
+        Diff diff = new Diff();
+        Map<String, HealthCheck> desired = new LinkedHashMap<>();
+        for (HealthCheck check : checks) {
+            desired.put(check.getName(), check);
+        }
+        
+        for (String name : new ArrayList<>(managedChecks)) {
+            if (!desired.containsKey(name)) {
+                controller.unregisterHealthCheck(name);
+                managedChecks.remove(name);
+                diff.removed.add(name);
+            }
+        }
+        
+        for (HealthCheck check : desired.values()) {
+            HealthCheck existing = controller.getHealthCheck(check.getName());
+            if (existing != null && !managedChecks.contains(check.getName())) {
+                // Registered by another source, e.g. a KuberHealthyCheck resource; leave it to that source
+                logger.warn("Skipping configured check {}: a check with that name is already registered",
+                    check.getName());
+                diff.skipped.add(check.getName());
+                continue;
+            }
+            if (existing == null) {
+                controller.registerHealthCheck(check);
+                diff.added.add(check.getName());
+            } else if (!existing.hasSameDefinition(check)) {
+                // Carry the status over so a config edit doesn't reset the check to NEW
+                check.setStatus(existing.getStatus().lastCompleted());
+                controller.registerHealthCheck(check);
+                diff.changed.add(check.getName());
+            } else {
+                diff.unchanged++;
+            }
+            managedChecks.add(check.getName());
+        }
+        return diff;
+    }
+    
+    /**
+     * Names of checks added, changed and removed by one load
+     */
+    public static class Diff {
+        private final List<String> added = new ArrayList<>();
+        private final List<String> changed = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private final List<String> skipped = new ArrayList<>();
+        private int unchanged;
+        
+        public List<String> getAdded() {
+            return added;
+        }
+        
+        public List<String> getChanged() {
+            return changed;
+        }
+        
+        public List<String> getRemoved() {
+            return removed;
+        }
+        
+        /**
+         * Configured checks left alone because another source registered the name
+         */
+        public List<String> getSkipped() {
+            return skipped;
+        }
+        
+        public int getUnchanged() {
+            return unchanged;
+        }
+    }
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class CheckConfig {
+        @JsonProperty("checks")
+        private List<HealthCheck> checks;
+    }
+}
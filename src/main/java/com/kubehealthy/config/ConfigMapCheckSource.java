@@ -0,0 +1,180 @@
+package com.kuberhealthy.config;
+
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.util.Watch;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the check ConfigMap and feeds its checks.json to a {@link CheckConfigLoader}
+ * whenever it changes
+ */
+public class ConfigMapCheckSource {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ConfigMapCheckSource.class);
+    public static final String DEFAULT_KEY = "checks.json";
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+    private static final Type WATCH_TYPE = new TypeToken<Watch.Response<V1ConfigMap>>() {}.getType();
+    
+    private final ApiClient apiClient;
+    private final CoreV1Api coreApi;
+    private final OkHttpClient watchHttpClient;
+    private final CheckConfigLoader loader;
+    private final String namespace;
+    private final String name;
+    private final String key;
+    private final String fieldSelector;
+    private volatile boolean running;
+    private volatile Watch<V1ConfigMap> currentWatch;
+    private Thread watchThread;
+    
+    public ConfigMapCheckSource(ApiClient apiClient, CheckConfigLoader loader, String namespace, String name) {
+        this(apiClient, loader, namespace, name, DEFAULT_KEY);
+    }
+    
+    public ConfigMapCheckSource(ApiClient apiClient, CheckConfigLoader loader,
+                                String namespace, String name, String key) {
+        this.apiClient = apiClient;
+        this.coreApi = new CoreV1Api(apiClient);
+        // Watches are long-lived; the default client read timeout would tear them down
+        this.watchHttpClient = apiClient.getHttpClient().newBuilder()
+            .readTimeout(0, TimeUnit.SECONDS)
+            .build();
+        this.loader = loader;
+        this.namespace = namespace;
+        this.name = name;
+        this.key = key;
+        this.fieldSelector = "metadata.name=" + name;
+    }
+    
+    /**
+     * Load the current ConfigMap, then keep watching it in the background.
+     * A missing or unreadable ConfigMap is logged and retried by the watch loop.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        
+        String resourceVersion = null;
+        try {
+            resourceVersion = relist();
+        } catch (ApiException e) {
+            logger.error("Failed to read check ConfigMap {}/{}: {}", namespace, name, e.getMessage());
+        }
+        
+        String initialVersion = resourceVersion;
+        watchThread = new Thread(() -> watchLoop(initialVersion), "check-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching check ConfigMap {}/{} key {}", namespace, name, key);
+    }
+    
+    public void shutdown() {
+        running = false;
+        Watch<V1ConfigMap> watch = currentWatch;
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                logger.debug("Error closing ConfigMap watch", e);
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+    }
+    
+    private void watchLoop(String initialVersion) {
+        String resourceVersion = initialVersion;
+        
+        while (running) {
+            try {
+                if (resourceVersion == null) {
+                    resourceVersion = relist();
+                }
+                resourceVersion = watchFrom(resourceVersion);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("ConfigMap watch interrupted, re-listing: {}", e.getMessage());
+                resourceVersion = null;
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        logger.info("Check ConfigMap watcher stopped");
+    }
+    
+    private String relist() throws ApiException {
+        V1ConfigMapList list = coreApi.listNamespacedConfigMap(
+            namespace, null, null, null, fieldSelector, null,
+            null, null, null, null, null
+        );
+        if (list.getItems().isEmpty()) {
+            logger.warn("Check ConfigMap {}/{} not found", namespace, name);
+        } else {
+            apply(list.getItems().get(0));
+        }
+        return list.getMetadata() != null ? list.getMetadata().getResourceVersion() : null;
+    }
+    
+    private String watchFrom(String resourceVersion) throws Exception {
+        Call listCall = coreApi.listNamespacedConfigMapCall(
+            namespace, null, true, null, fieldSelector, null,
+            null, resourceVersion, null, WATCH_TIMEOUT_SECONDS, true, null
+        );
+        Call watchCall = watchHttpClient.newCall(listCall.request());
+        
+        try (Watch<V1ConfigMap> watch = Watch.createWatch(apiClient, watchCall, WATCH_TYPE)) {
+            currentWatch = watch;
+            for (Watch.Response<V1ConfigMap> event : watch) {
+                if ("ERROR".equals(event.type)) {
+                    logger.debug("ConfigMap watch returned error status: {}", event.status);
+                    return null;
+                }
+                V1ConfigMap configMap = event.object;
+                if (configMap == null || configMap.getMetadata() == null) {
+                    continue;
+                }
+                if (configMap.getMetadata().getResourceVersion() != null) {
+                    resourceVersion = configMap.getMetadata().getResourceVersion();
+                }
+                if ("BOOKMARK".equals(event.type)) {
+                    continue;
+                }
+                if ("DELETED".equals(event.type)) {
+                    // Keep running the last configuration rather than dropping every check
+                    logger.warn("Check ConfigMap {}/{} was deleted, keeping current checks", namespace, name);
+                    continue;
+                }
+                apply(configMap);
+            }
+        } finally {
+            currentWatch = null;
+        }
+        return resourceVersion;
+    }
+    
+    private void apply(V1ConfigMap configMap) {
+        String document = configMap.getData() != null ? configMap.getData().get(key) : null;
+        loader.load(document, "ConfigMap " + namespace + "/" + name);
+    }
+}
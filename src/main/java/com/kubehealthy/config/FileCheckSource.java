@@ -0,0 +1,99 @@
+package com.kuberhealthy.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Loads checks from a local checks.json file and reloads it when it changes.
+ *
+ * The file's directory is watched rather than the file itself, so replacing
+ * the file (editors, or a ConfigMap volume's symlink swap) is picked up too;
+ * any event triggers a re-read and the loader ignores unchanged content.
+ */
+public class FileCheckSource {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FileCheckSource.class);
+    
+    private final Path file;
+    private final CheckConfigLoader loader;
+    private WatchService watchService;
+    private Thread watchThread;
+    
+    public FileCheckSource(Path file, CheckConfigLoader loader) {
+        this.file = file.toAbsolutePath();
+        this.loader = loader;
+    }
+    
+    /**
+     * Load the file, then keep watching it in the background
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        reload();
+        
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        
+        watchThread = new Thread(this::watchLoop, "check-config-file-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching check configuration file {}", file);
+    }
+    
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing file watch service", e);
+            }
+        }
+    }
+    
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Drain the batch; one reload covers every event in it
+                key.pollEvents();
+                reload();
+                if (!key.reset()) {
+                    logger.warn("Check configuration directory {} is no longer watchable", file.getParent());
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+        logger.info("Check configuration file watcher stopped");
+    }
+    
+    private void reload() {
+        if (!Files.isRegularFile(file)) {
+            logger.warn("Check configuration file {} does not exist, keeping current checks", file);
+            return;
+        }
+        try {
+            loader.load(Files.readString(file, StandardCharsets.UTF_8), "file " + file);
+        } catch (IOException e) {
+            logger.error("Failed to read check configuration file {}: {}", file, e.getMessage());
+        }
+    }
+}
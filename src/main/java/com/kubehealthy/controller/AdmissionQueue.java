@@ -0,0 +1,287 @@
+package com.kuberhealthy.controller;
+
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission layer in front of check execution.
+ *
+ * Bounds the number of checks in flight globally and per namespace. Checks that
+ * cannot start immediately wait in a priority queue ordered by how overdue they
+ * are, so a check that has not run for several intervals goes ahead of one that
+ * ran a moment ago. {@link RoutingCheckExecutor} keeps one per check type and
+ * exports its counters.
+ */
+public class AdmissionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionQueue.class);
+
+    private final int maxInFlight;
+    private final int maxInFlightPerNamespace;
+    private final PriorityQueue<Pending> queue;
+    private final Map<String, Pending> queuedByName;
+    // Admitted but not finished; covers the gap before the executor reports the check running
+    private final Set<String> admittedNames;
+    private final Map<String, Integer> inFlightByNamespace;
+    private int inFlight;
+    private long sequence;
+    private boolean draining;
+    private volatile long modCount;
+
+    private final LongAdder admittedTotal;
+    private final LongAdder waitMillisTotal;
+
+    /**
+     * @param maxInFlight Maximum checks running at once, or 0 for unbounded
+     * @param maxInFlightPerNamespace Maximum checks running at once in one namespace, or 0 for unbounded
+     */
+    public AdmissionQueue(int maxInFlight, int maxInFlightPerNamespace) {
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerNamespace = maxInFlightPerNamespace;
+        this.queue = new PriorityQueue<>();
+        this.queuedByName = new HashMap<>();
+        this.admittedNames = new HashSet<>();
+        this.inFlightByNamespace = new HashMap<>();
+        this.admittedTotal = new LongAdder();
+        this.waitMillisTotal = new LongAdder();
+    }
+
+    /**
+     * Queue a check for execution. The task is started once capacity is available.
+     *
+     * @param healthCheck The check being admitted
+     * @param task Starts the check and returns its result future
+     * @return A future completed with the task's result, or with null if the check
+     *         was already queued or running here or was removed before it started
+     */
+    public CompletableFuture<CheckResult> submit(HealthCheck healthCheck,
+                                                 Supplier<CompletableFuture<CheckResult>> task) {
+        Pending pending;
+        synchronized (this) {
+            if (isQueued(healthCheck.getName())) {
+                logger.debug("Health check already queued: {}", healthCheck.getName());
+                return CompletableFuture.completedFuture(null);
+            }
+            pending = new Pending(healthCheck, task, dueAtMillis(healthCheck), sequence++);
+            queue.add(pending);
+            queuedByName.put(healthCheck.getName(), pending);
+            modCount++;
+        }
+        drain();
+        return pending.result;
+    }
+
+    /**
+     * Whether a check is waiting for admission, or was admitted and hasn't finished yet
+     */
+    public synchronized boolean isQueued(String checkName) {
+        return queuedByName.containsKey(checkName) || admittedNames.contains(checkName);
+    }
+
+    /**
+     * Drop a queued check, completing its future with null
+     *
+     * @return true if the check was queued
+     */
+    public boolean remove(String checkName) {
+        Pending pending;
+        synchronized (this) {
+            pending = queuedByName.remove(checkName);
+            if (pending == null) {
+                return false;
+            }
+            queue.remove(pending);
+            modCount++;
+        }
+        pending.result.complete(null);
+        return true;
+    }
+
+    /**
+     * Drop every queued check
+     */
+    public void clear() {
+        List<Pending> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            queuedByName.clear();
+            modCount++;
+        }
+        dropped.forEach(pending -> pending.result.complete(null));
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized Map<String, Integer> getInFlightByNamespace() {
+        return Map.copyOf(inFlightByNamespace);
+    }
+
+    /**
+     * Total number of checks admitted since startup
+     */
+    public long getAdmittedTotal() {
+        return admittedTotal.sum();
+    }
+
+    /**
+     * Total time admitted checks spent queued, in milliseconds
+     */
+    public long getWaitMillisTotal() {
+        return waitMillisTotal.sum();
+    }
+
+    /**
+     * Changes whenever the queue or the in-flight counts change
+     */
+    public long version() {
+        return modCount;
+    }
+
+    private void drain() {
+        synchronized (this) {
+            // Completions that land synchronously re-enter here; let the outer loop pick them up
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        while (true) {
+            List<Pending> admitted;
+            synchronized (this) {
+                admitted = admitReady();
+                if (admitted.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+            }
+            for (Pending pending : admitted) {
+                start(pending);
+            }
+        }
+    }
+
+    /**
+     * Pull every check that fits the current limits off the queue, in priority order.
+     * Checks whose namespace is full stay queued. Must hold the lock.
+     */
+    private List<Pending> admitReady() {
+        List<Pending> admitted = new ArrayList<>();
+        List<Pending> blocked = new ArrayList<>();
+        while (!queue.isEmpty() && hasGlobalCapacity()) {
+            Pending pending = queue.poll();
+            String namespace = pending.healthCheck.getNamespace();
+            if (!hasNamespaceCapacity(namespace)) {
+                blocked.add(pending);
+                continue;
+            }
+            queuedByName.remove(pending.healthCheck.getName());
+            admittedNames.add(pending.healthCheck.getName());
+            inFlight++;
+            inFlightByNamespace.merge(namespace, 1, Integer::sum);
+            admittedTotal.increment();
+            waitMillisTotal.add(System.currentTimeMillis() - pending.enqueuedAtMillis);
+            admitted.add(pending);
+        }
+        queue.addAll(blocked);
+        if (!admitted.isEmpty()) {
+            modCount++;
+        }
+        return admitted;
+    }
+
+    private void start(Pending pending) {
+        CompletableFuture<CheckResult> future;
+        try {
+            future = pending.task.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                pending.result.completeExceptionally(throwable);
+            } else {
+                pending.result.complete(result);
+            }
+            release(pending.healthCheck);
+        });
+    }
+
+    private void release(HealthCheck healthCheck) {
+        String namespace = healthCheck.getNamespace();
+        synchronized (this) {
+            admittedNames.remove(healthCheck.getName());
+            inFlight--;
+            inFlightByNamespace.computeIfPresent(namespace, (ns, count) -> count > 1 ? count - 1 : null);
+            modCount++;
+        }
+        drain();
+    }
+
+    private boolean hasGlobalCapacity() {
+        return maxInFlight <= 0 || inFlight < maxInFlight;
+    }
+
+    private boolean hasNamespaceCapacity(String namespace) {
+        return maxInFlightPerNamespace <= 0
+            || inFlightByNamespace.getOrDefault(namespace, 0) < maxInFlightPerNamespace;
+    }
+
+    /**
+     * When the check was due: one interval after its last run, or the epoch if it never ran
+     */
+    private static long dueAtMillis(HealthCheck healthCheck) {
+        Instant lastRun = healthCheck.getStatus().getLastRun();
+        if (lastRun == null) {
+            return 0;
+        }
+        return lastRun.toEpochMilli() + healthCheck.getRunIntervalSeconds() * 1000;
+    }
+
+    private static class Pending implements Comparable<Pending> {
+        private final HealthCheck healthCheck;
+        private final Supplier<CompletableFuture<CheckResult>> task;
+        private final long dueAtMillis;
+        private final long sequence;
+        private final long enqueuedAtMillis;
+        private final CompletableFuture<CheckResult> result;
+
+        Pending(HealthCheck healthCheck, Supplier<CompletableFuture<CheckResult>> task,
+                long dueAtMillis, long sequence) {
+            this.healthCheck = healthCheck;
+            this.task = task;
+            this.dueAtMillis = dueAtMillis;
+            this.sequence = sequence;
+            this.enqueuedAtMillis = System.currentTimeMillis();
+            this.result = new CompletableFuture<>();
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int byDue = Long.compare(dueAtMillis, other.dueAtMillis);
+            return byDue != 0 ? byDue : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.kuberhealthy.controller;
+
+/**
+ * Decides which registered checks this replica runs. Every replica keeps the
+ * full registry and schedule; a scheduled run only executes on the replica
+ * that owns the check.
+ */
+public interface CheckOwnership {
+    
+    /**
+     * Ownership for a single replica, which runs every check
+     */
+    CheckOwnership ALL = checkName -> true;
+    
+    /**
+     * Whether this replica should run the given check
+     */
+    boolean owns(String checkName);
+}
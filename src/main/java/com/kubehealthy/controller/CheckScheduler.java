@@ -0,0 +1,250 @@
+package com.kuberhealthy.controller;
+
+import com.kuberhealthy.metrics.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Schedules periodic check runs spread evenly across their interval.
+ *
+ * Each check gets a deterministic phase offset within its interval, derived from a
+ * hash of its name and anchored to the wall clock, so a bulk registration does not
+ * fire every check in the same instant and a re-registered check keeps its slot, plus a
+ * small per-run jitter so checks that hash close together drift apart. Runs are
+ * anchored to the original phase, so the jitter never accumulates into drift.
+ *
+ * The first run is not held back for the phase slot, which can be a whole interval
+ * away: it is spread over a short startup window instead, so new checks report a
+ * result soon after registration. Later runs settle onto the phase slot.
+ */
+public class CheckScheduler implements MetricsCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckScheduler.class);
+    private static final int DEFAULT_THREADS = 2;
+    private static final double DEFAULT_JITTER_FRACTION = 0.05;
+    private static final long MAX_JITTER_MILLIS = 5000;
+    private static final long MAX_STARTUP_WINDOW_MILLIS = 30000;
+
+    /**
+     * Number of one-second slots in the start histogram (one minute)
+     */
+    public static final int START_SLOTS = 60;
+
+    private final ScheduledExecutorService timer;
+    private final double jitterFraction;
+    private final Map<String, ScheduledCheck> scheduledChecks;
+    private final AtomicLongArray startsBySecond;
+    private final AtomicLong startsTotal;
+
+    public CheckScheduler() {
+        this(DEFAULT_THREADS, DEFAULT_JITTER_FRACTION);
+    }
+
+    /**
+     * @param threads Number of timer threads; tasks should only dispatch work
+     * @param jitterFraction Maximum per-run jitter as a fraction of the interval
+     */
+    public CheckScheduler(int threads, double jitterFraction) {
+        AtomicInteger counter = new AtomicInteger();
+        this.timer = Executors.newScheduledThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "check-scheduler-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jitterFraction = jitterFraction;
+        this.scheduledChecks = new ConcurrentHashMap<>();
+        this.startsBySecond = new AtomicLongArray(START_SLOTS);
+        this.startsTotal = new AtomicLong();
+    }
+
+    /**
+     * Schedule a task to run every interval, replacing any existing schedule for the name
+     */
+    public void schedule(String name, long intervalSeconds, Runnable task) {
+        long intervalMillis = Math.max(1, intervalSeconds) * 1000;
+        long offsetMillis = phaseOffsetMillis(name, intervalMillis);
+
+        // First run within a short window, spread by the same hash
+        long now = System.currentTimeMillis();
+        long firstRun = now + Math.floorMod(offsetMillis, Math.min(intervalMillis, MAX_STARTUP_WINDOW_MILLIS));
+
+        // Later runs anchor to wall-clock phase so re-registering a check keeps its slot,
+        // starting with the first slot at least half an interval after the first run
+        long firstAnchor = now - Math.floorMod(now, intervalMillis) + offsetMillis;
+        while (firstAnchor < firstRun + intervalMillis / 2) {
+            firstAnchor += intervalMillis;
+        }
+
+        ScheduledCheck scheduledCheck = new ScheduledCheck(name, intervalMillis, task, firstRun, firstAnchor);
+        ScheduledCheck previous = scheduledChecks.put(name, scheduledCheck);
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        logger.debug("Scheduled {} every {}ms with phase offset {}ms", name, intervalMillis, offsetMillis);
+        scheduledCheck.scheduleNext();
+    }
+
+    /**
+     * Cancel the schedule for a name
+     *
+     * @return true if a schedule was cancelled
+     */
+    public boolean cancel(String name) {
+        ScheduledCheck scheduledCheck = scheduledChecks.remove(name);
+        if (scheduledCheck != null) {
+            scheduledCheck.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether a schedule exists for the name
+     */
+    public boolean isScheduled(String name) {
+        return scheduledChecks.containsKey(name);
+    }
+
+    /**
+     * Cumulative count of dispatched runs per second-of-minute, for verifying that
+     * start times are spread evenly
+     */
+    public long[] getStartsBySecond() {
+        long[] counts = new long[START_SLOTS];
+        for (int i = 0; i < START_SLOTS; i++) {
+            counts[i] = startsBySecond.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public long version() {
+        return startsTotal.get();
+    }
+
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_scheduler_starts_total Scheduled check starts by second of minute\n");
+        out.append("# TYPE kuberhealthy_scheduler_starts_total counter\n");
+        for (int second = 0; second < START_SLOTS; second++) {
+            out.append("kuberhealthy_scheduler_starts_total{second=\"").append(second).append("\"} ")
+               .append(startsBySecond.get(second)).append("\n");
+        }
+    }
+
+    public void cancelAll() {
+        scheduledChecks.values().forEach(ScheduledCheck::cancel);
+        scheduledChecks.clear();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        timer.shutdown();
+        try {
+            if (!timer.awaitTermination(60, TimeUnit.SECONDS)) {
+                timer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            timer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deterministic offset in [0, interval) for a check name
+     */
+    static long phaseOffsetMillis(String name, long intervalMillis) {
+        // Murmur3 finalizer to spread String.hashCode across the whole range
+        long h = name.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return Math.floorMod(h, intervalMillis);
+    }
+
+    private long jitterMillis(long intervalMillis) {
+        long bound = Math.min(MAX_JITTER_MILLIS, (long) (intervalMillis * jitterFraction));
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(-bound, bound + 1) : 0;
+    }
+
+    private void recordStart(long timeMillis) {
+        startsBySecond.incrementAndGet((int) ((timeMillis / 1000) % START_SLOTS));
+        startsTotal.incrementAndGet();
+    }
+
+    private class ScheduledCheck implements Runnable {
+        private final String name;
+        private final long intervalMillis;
+        private final Runnable task;
+        private long firstRunMillis;
+        private long nextAnchorMillis;
+        private ScheduledFuture<?> future;
+        private boolean cancelled;
+
+        ScheduledCheck(String name, long intervalMillis, Runnable task, long firstRunMillis,
+                       long firstAnchorMillis) {
+            this.name = name;
+            this.intervalMillis = intervalMillis;
+            this.task = task;
+            this.firstRunMillis = firstRunMillis;
+            this.nextAnchorMillis = firstAnchorMillis;
+        }
+
+        synchronized void scheduleNext() {
+            if (cancelled) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (firstRunMillis > 0) {
+                future = timer.schedule(this, Math.max(0, firstRunMillis - now), TimeUnit.MILLISECONDS);
+                firstRunMillis = 0;
+                return;
+            }
+            // Skip anchors we have fallen behind on rather than firing a burst to catch up
+            while (nextAnchorMillis + intervalMillis <= now) {
+                nextAnchorMillis += intervalMillis;
+            }
+            long delay = Math.max(0, nextAnchorMillis + jitterMillis(intervalMillis) - now);
+            nextAnchorMillis += intervalMillis;
+            future = timer.schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+            }
+            try {
+                recordStart(System.currentTimeMillis());
+                task.run();
+            } catch (Exception e) {
+                logger.error("Scheduled run failed for {}", name, e);
+            } finally {
+                scheduleNext();
+            }
+        }
+    }
+}
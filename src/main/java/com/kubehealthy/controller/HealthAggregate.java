@@ -0,0 +1,117 @@
+package com.kuberhealthy.controller;
+
+import com.kuberhealthy.model.HealthCheck;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Running totals of registered and failing checks, maintained incrementally
+ * as checks are added, removed and change status, so aggregate health is a
+ * pair of volatile reads instead of a walk over every check.
+ *
+ * Only checks owned by this replica are counted as failing; the status of a
+ * check another replica runs is never updated here.
+ *
+ * Each check carries a flag recording whether it is currently counted as
+ * failing. Updates reconcile that flag with the check's current status using
+ * CAS and re-read until they agree, so concurrent updates for the same check
+ * converge on its latest status without locking.
+ */
+class HealthAggregate {
+    
+    private final Map<HealthCheck, Entry> entries;
+    private final AtomicInteger total;
+    private final AtomicInteger failing;
+    private volatile CheckOwnership ownership;
+    
+    HealthAggregate() {
+        // Keyed by identity: a replaced check with the same name is a different entry
+        this.entries = new ConcurrentHashMap<>();
+        this.total = new AtomicInteger();
+        this.failing = new AtomicInteger();
+        this.ownership = CheckOwnership.ALL;
+    }
+    
+    /**
+     * Start counting a newly registered check
+     */
+    void add(HealthCheck healthCheck) {
+        Entry entry = new Entry();
+        if (entries.putIfAbsent(healthCheck, entry) == null) {
+            total.incrementAndGet();
+            reconcile(healthCheck, entry);
+        }
+    }
+    
+    /**
+     * Stop counting a check that was unregistered or replaced
+     */
+    void remove(HealthCheck healthCheck) {
+        Entry entry = entries.remove(healthCheck);
+        if (entry != null) {
+            entry.removed = true;
+            total.decrementAndGet();
+            reconcile(healthCheck, entry);
+        }
+    }
+    
+    /**
+     * Account for a status change; checks that aren't counted are ignored
+     */
+    void update(HealthCheck healthCheck) {
+        Entry entry = entries.get(healthCheck);
+        if (entry != null) {
+            reconcile(healthCheck, entry);
+        }
+    }
+    
+    /**
+     * Switch ownership and recount every check. Linear, but only runs when
+     * replica membership changes.
+     */
+    void setOwnership(CheckOwnership ownership) {
+        this.ownership = ownership;
+        refresh();
+    }
+    
+    /**
+     * Re-evaluate every check, e.g. after ownership changed
+     */
+    void refresh() {
+        for (Map.Entry<HealthCheck, Entry> entry : entries.entrySet()) {
+            reconcile(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    int getTotalCount() {
+        return total.get();
+    }
+    
+    int getFailingCount() {
+        return failing.get();
+    }
+    
+    private void reconcile(HealthCheck healthCheck, Entry entry) {
+        while (true) {
+            boolean shouldCount = !entry.removed
+                && !healthCheck.getStatus().isOk()
+                && ownership.owns(healthCheck.getName());
+            boolean counted = entry.failing.get();
+            if (counted == shouldCount) {
+                return;
+            }
+            if (entry.failing.compareAndSet(counted, shouldCount)) {
+                failing.addAndGet(shouldCount ? 1 : -1);
+            }
+            // Loop to re-read: another thread may have changed the status meanwhile
+        }
+    }
+    
+    private static class Entry {
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private volatile boolean removed;
+    }
+}
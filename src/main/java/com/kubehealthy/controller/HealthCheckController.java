@@ -1,16 +1,23 @@
 package com.kuberhealthy.controller;
 
 import com.kuberhealthy.check.HealthCheckExecutor;
+import com.kuberhealthy.metrics.CheckLatencyMetrics;
+import com.kuberhealthy.metrics.CheckSloRollups;
+import com.kuberhealthy.metrics.CheckStatusMetrics;
+import com.kuberhealthy.metrics.MetricsRegistry;
 import com.kuberhealthy.model.CheckResult;
 import com.kuberhealthy.model.HealthCheck;
 import com.kuberhealthy.model.HealthCheckStatus;
+import com.kuberhealthy.store.ResultLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Controller that manages the lifecycle of health checks
@@ -20,15 +27,122 @@ public class HealthCheckController {
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckController.class);
     
     private final HealthCheckExecutor executor;
-    private final Map<String, HealthCheck> healthChecks;
-    private final ScheduledExecutorService scheduler;
-    private final Map<String, ScheduledFuture<?>> scheduledChecks;
+    private final NavigableMap<String, HealthCheck> healthChecks;
+    private final CheckScheduler scheduler;
+    private final MetricsRegistry metricsRegistry;
+    private final CheckSloRollups sloRollups;
+    private final HealthAggregate aggregate;
+    private final List<HealthCheckListener> listeners;
+    private final AtomicLong stateVersion;
+    private final Object stateVersionLock;
+    private CompletableFuture<Long> nextStateChange;
+    private volatile ResultLog resultLog;
+    private volatile CheckOwnership ownership;
     
-    public HealthCheckController(HealthCheckExecutor executor) {
+    /**
+     * Create a controller with the default scheduler
+     */
+    public static HealthCheckController create(HealthCheckExecutor executor) {
+        return create(executor, new CheckScheduler());
+    }
+    
+    /**
+     * Create a controller with its built-in metrics wired up
+     * 
+     * @param executor Runs checks; bound how many run at once by routing them
+     *                 through a {@link RoutingCheckExecutor}
+     * @param scheduler Decides when each check runs
+     */
+    public static HealthCheckController create(HealthCheckExecutor executor, CheckScheduler scheduler) {
+        HealthCheckController controller = new HealthCheckController(executor, scheduler);
+        
+        // Status gauges are kept up to date from controller events rather than
+        // recomputed from every check on each scrape
+        CheckStatusMetrics checkStatusMetrics = new CheckStatusMetrics();
+        CheckLatencyMetrics checkLatencyMetrics = new CheckLatencyMetrics();
+        controller.addListener(checkStatusMetrics);
+        controller.addListener(checkLatencyMetrics);
+        controller.addListener(controller.sloRollups);
+        controller.metricsRegistry.register(checkStatusMetrics);
+        controller.metricsRegistry.register(checkLatencyMetrics);
+        controller.metricsRegistry.register(controller.sloRollups);
+        controller.metricsRegistry.register(scheduler);
+        return controller;
+    }
+    
+    private HealthCheckController(HealthCheckExecutor executor, CheckScheduler scheduler) {
         this.executor = executor;
-        this.healthChecks = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newScheduledThreadPool(10);
-        this.scheduledChecks = new ConcurrentHashMap<>();
+        // Sorted by name so API clients can page through checks with a stable cursor
+        this.healthChecks = new ConcurrentSkipListMap<>();
+        this.scheduler = scheduler;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.stateVersion = new AtomicLong();
+        this.stateVersionLock = new Object();
+        this.nextStateChange = new CompletableFuture<>();
+        this.aggregate = new HealthAggregate();
+        this.ownership = CheckOwnership.ALL;
+        this.sloRollups = new CheckSloRollups();
+        this.metricsRegistry = new MetricsRegistry();
+    }
+    
+    /**
+     * Add a listener for check lifecycle events
+     */
+    public void addListener(HealthCheckListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Persist results to the given log and restore the last known status of
+     * checks from it when they are registered
+     */
+    public void setResultLog(ResultLog resultLog) {
+        ResultLog previous = this.resultLog;
+        if (previous != null) {
+            removeListener(previous);
+        }
+        this.resultLog = resultLog;
+        if (resultLog != null) {
+            addListener(resultLog);
+        }
+    }
+    
+    /**
+     * Get the result log, or null if results are not persisted
+     */
+    public ResultLog getResultLog() {
+        return resultLog;
+    }
+    
+    /**
+     * Set which checks this replica runs when several replicas share the registry
+     */
+    public void setOwnership(CheckOwnership ownership) {
+        this.ownership = ownership;
+        ownershipChanged();
+    }
+    
+    /**
+     * Called by the ownership implementation when the set of checks this
+     * replica owns may have changed, e.g. on leadership or membership changes
+     */
+    public void ownershipChanged() {
+        aggregate.setOwnership(ownership);
+        bumpStateVersion();
+    }
+    
+    /**
+     * Whether this replica currently runs the given check
+     */
+    public boolean ownsCheck(String checkName) {
+        return ownership.owns(checkName);
+    }
+    
+    /**
+     * Remove a previously added listener
+     */
+    public void removeListener(HealthCheckListener listener) {
+        listeners.remove(listener);
     }
     
     /**
@@ -37,23 +151,32 @@ public class HealthCheckController {
     public void registerHealthCheck(HealthCheck healthCheck) {
         logger.info("Registering health check: {}", healthCheck.getName());
         
-        healthChecks.put(healthCheck.getName(), healthCheck);
+        // Warm restart: pick up where the last run before a restart left off
+        ResultLog log = resultLog;
+        HealthCheckStatus current = healthCheck.getStatus();
+        if (log != null && current.getState() == HealthCheckStatus.CheckState.NEW) {
+            HealthCheckStatus restored = log.getLatestStatus(healthCheck.getName());
+            if (restored != null && healthCheck.compareAndSetStatus(current, restored)) {
+                logger.info("Restored status of {} from result log: ok={}", healthCheck.getName(), restored.isOk());
+            }
+        }
         
-        // Cancel existing schedule if present
-        ScheduledFuture<?> existingSchedule = scheduledChecks.get(healthCheck.getName());
-        if (existingSchedule != null) {
-            existingSchedule.cancel(false);
+        HealthCheck replaced = healthChecks.put(healthCheck.getName(), healthCheck);
+        if (replaced != null) {
+            aggregate.remove(replaced);
         }
+        aggregate.add(healthCheck);
+        bumpStateVersion();
+        fireEvent(listener -> listener.onCheckRegistered(healthCheck));
         
-        // Schedule the health check
-        ScheduledFuture<?> scheduledFuture = scheduler.scheduleAtFixedRate(
-            () -> runHealthCheck(healthCheck.getName()),
-            0,
+        // Schedule the health check, replacing any existing schedule. The first run is
+        // spread over a short startup window and later runs across the interval, so
+        // bulk registrations don't fire all at once.
+        scheduler.schedule(
+            healthCheck.getName(),
             healthCheck.getRunIntervalSeconds(),
-            TimeUnit.SECONDS
+            () -> runHealthCheck(healthCheck.getName())
         );
-        
-        scheduledChecks.put(healthCheck.getName(), scheduledFuture);
     }
     
     /**
@@ -62,12 +185,14 @@ public class HealthCheckController {
     public void unregisterHealthCheck(String checkName) {
         logger.info("Unregistering health check: {}", checkName);
         
-        ScheduledFuture<?> scheduledFuture = scheduledChecks.remove(checkName);
-        if (scheduledFuture != null) {
-            scheduledFuture.cancel(false);
+        scheduler.cancel(checkName);
+        executor.dequeue(checkName);
+        HealthCheck removed = healthChecks.remove(checkName);
+        if (removed != null) {
+            aggregate.remove(removed);
+            bumpStateVersion();
+            fireEvent(listener -> listener.onCheckUnregistered(checkName));
         }
-        
-        healthChecks.remove(checkName);
     }
     
     /**
@@ -80,30 +205,36 @@ public class HealthCheckController {
             return CompletableFuture.completedFuture(null);
         }
         
-        // Check if already running
+        // Another replica runs this check
+        if (!ownership.owns(checkName)) {
+            logger.debug("Skipping health check owned by another replica: {}", checkName);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        // Check if already running or waiting for admission
         if (executor.isRunning(checkName)) {
             logger.info("Health check already running: {}", checkName);
             return CompletableFuture.completedFuture(null);
         }
         
-        logger.info("Running health check: {}", checkName);
-        
-        // Update status to running
-        HealthCheckStatus status = healthCheck.getStatus();
-        status.setState(HealthCheckStatus.CheckState.RUNNING);
-        status.setLastRun(Instant.now());
-        
-        // Execute the check
-        CompletableFuture<CheckResult> future = executor.execute(healthCheck);
+        // The check only shows as running, and lastRun only moves, once the
+        // executor actually starts it; a check waiting for its type's budget
+        // keeps its previous status and stays overdue in the queue
+        CompletableFuture<CheckResult> future = executor.execute(healthCheck, () -> {
+            logger.info("Running health check: {}", checkName);
+            Instant startedAt = Instant.now();
+            healthCheck.updateStatus(status -> status.running(startedAt));
+            fireStatusChanged(healthCheck);
+        });
         
         // Handle the result
         future.whenComplete((result, throwable) -> {
             if (throwable != null) {
                 logger.error("Error executing health check: " + checkName, throwable);
-                status.setState(HealthCheckStatus.CheckState.FAILED);
-                status.setOk(false);
-                status.addError("Execution error: " + throwable.getMessage());
-                status.setConsecutiveFailures(status.getConsecutiveFailures() + 1);
+                String error = "Execution error: " + throwable.getMessage();
+                healthCheck.updateStatus(status -> status.withExecutionError(error));
+                fireStatusChanged(healthCheck);
+                recordExecutionError(healthCheck, error);
             } else if (result != null) {
                 handleCheckResult(healthCheck, result);
             }
@@ -113,22 +244,66 @@ public class HealthCheckController {
     }
     
     private void handleCheckResult(HealthCheck healthCheck, CheckResult result) {
-        HealthCheckStatus status = healthCheck.getStatus();
-        
         if (result.isOk()) {
             logger.info("Health check passed: {}", healthCheck.getName());
-            status.setState(HealthCheckStatus.CheckState.COMPLETED);
-            status.setOk(true);
-            status.setLastSuccess(Instant.now());
-            status.setConsecutiveFailures(0);
-            status.getErrors().clear();
         } else {
             logger.warn("Health check failed: {} - Errors: {}", 
                 healthCheck.getName(), result.getErrors());
-            status.setState(HealthCheckStatus.CheckState.FAILED);
-            status.setOk(false);
-            status.setErrors(result.getErrors());
-            status.setConsecutiveFailures(status.getConsecutiveFailures() + 1);
+        }
+        
+        Instant completedAt = Instant.now();
+        healthCheck.updateStatus(status -> status.withResult(result, completedAt));
+        
+        fireStatusChanged(healthCheck);
+        if (isRegistered(healthCheck)) {
+            fireEvent(listener -> listener.onCheckResult(healthCheck, result));
+        }
+    }
+    
+    /**
+     * Log a failed run that produced no result, so a warm restart and the
+     * check's history reflect it like any other failure
+     */
+    private void recordExecutionError(HealthCheck healthCheck, String error) {
+        ResultLog log = resultLog;
+        if (log == null || !isRegistered(healthCheck)) {
+            return;
+        }
+        CheckResult failed = new CheckResult(healthCheck.getName(), false);
+        failed.addError(error);
+        log.append(failed, healthCheck.getStatus());
+    }
+    
+    private boolean isRegistered(HealthCheck healthCheck) {
+        return healthChecks.get(healthCheck.getName()) == healthCheck;
+    }
+    
+    private void fireStatusChanged(HealthCheck healthCheck) {
+        aggregate.update(healthCheck);
+        // Results that land after a check was unregistered or replaced are not reported
+        if (isRegistered(healthCheck)) {
+            bumpStateVersion();
+            fireEvent(listener -> listener.onStatusChanged(healthCheck));
+        }
+    }
+    
+    private void bumpStateVersion() {
+        long version = stateVersion.incrementAndGet();
+        CompletableFuture<Long> changed;
+        synchronized (stateVersionLock) {
+            changed = nextStateChange;
+            nextStateChange = new CompletableFuture<>();
+        }
+        changed.complete(version);
+    }
+    
+    private void fireEvent(Consumer<HealthCheckListener> event) {
+        for (HealthCheckListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (Exception e) {
+                logger.error("Health check listener failed", e);
+            }
         }
     }
     
@@ -147,24 +322,89 @@ public class HealthCheckController {
     }
     
     /**
-     * Get the overall health status
+     * Get the state version, which increases whenever a check is registered,
+     * unregistered or changes status
      */
-    public boolean isHealthy() {
-        if (healthChecks.isEmpty()) {
-            return true; // No checks means healthy
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+    
+    /**
+     * Wait for the state version to move past the given version
+     * 
+     * @return A future completed with the new version; already complete if the
+     *         state has changed since afterVersion
+     */
+    public CompletableFuture<Long> awaitStateChange(long afterVersion) {
+        CompletableFuture<Long> changed;
+        synchronized (stateVersionLock) {
+            changed = nextStateChange;
         }
-        
-        return healthChecks.values().stream()
-            .allMatch(check -> check.getStatus().isOk());
+        // Checked after taking the future: a bump that already incremented the
+        // version is seen here, and one that hasn't will complete this future
+        long current = stateVersion.get();
+        if (current > afterVersion) {
+            return CompletableFuture.completedFuture(current);
+        }
+        // Callers get their own copy so timeouts applied to it stay private
+        return changed.copy();
+    }
+    
+    /**
+     * Iterate registered checks in name order, starting after the given name.
+     * This is a live, weakly consistent view; nothing is copied.
+     * 
+     * @param afterName Name to start after, or null to start from the first check
+     */
+    public Iterable<HealthCheck> getHealthChecksAfter(String afterName) {
+        return afterName == null
+            ? healthChecks.values()
+            : healthChecks.tailMap(afterName, false).values();
+    }
+    
+    /**
+     * Get the overall health status of the checks this replica owns. Constant
+     * time: failing checks are counted as they change status rather than on
+     * each call.
+     */
+    public boolean isHealthy() {
+        // No checks means healthy
+        return aggregate.getFailingCount() == 0;
     }
     
     /**
      * Get count of failing checks
      */
     public long getFailingChecksCount() {
-        return healthChecks.values().stream()
-            .filter(check -> !check.getStatus().isOk())
-            .count();
+        return aggregate.getFailingCount();
+    }
+    
+    /**
+     * Get count of registered checks
+     */
+    public int getHealthCheckCount() {
+        return aggregate.getTotalCount();
+    }
+    
+    /**
+     * Get the check scheduler
+     */
+    public CheckScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * Get the metrics registry backing /metrics
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    /**
+     * Get the per-check SLO window rollups
+     */
+    public CheckSloRollups getSloRollups() {
+        return sloRollups;
     }
     
     /**
@@ -173,18 +413,7 @@ public class HealthCheckController {
     public void shutdown() {
         logger.info("Shutting down health check controller");
         
-        // Cancel all scheduled checks
-        scheduledChecks.values().forEach(future -> future.cancel(false));
-        scheduledChecks.clear();
-        
+        // Cancel all scheduled checks; checks queued in the executor are dropped by its owner
         scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(60, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.kuberhealthy.controller;
+
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+
+/**
+ * Callback for observing health check lifecycle events in the controller.
+ * Callbacks run on the thread that caused the event and must not block.
+ */
+public interface HealthCheckListener {
+    
+    /**
+     * A check was registered or its definition replaced
+     */
+    default void onCheckRegistered(HealthCheck healthCheck) {
+    }
+    
+    /**
+     * A check was removed
+     */
+    default void onCheckUnregistered(String checkName) {
+    }
+    
+    /**
+     * A check's status changed (started running, passed or failed)
+     */
+    default void onStatusChanged(HealthCheck healthCheck) {
+    }
+    
+    /**
+     * A check run completed with a result
+     */
+    default void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+    }
+}
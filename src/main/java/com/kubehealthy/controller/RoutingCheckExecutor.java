@@ -0,0 +1,166 @@
+package com.kuberhealthy.controller;
+
+import com.kuberhealthy.check.HealthCheckExecutor;
+import com.kuberhealthy.metrics.MetricsCollector;
+import com.kuberhealthy.metrics.MetricsRegistry;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dispatches each check to the executor registered for its {@link HealthCheck#getType() type}.
+ *
+ * Every type gets its own admission lane with its own concurrency budget in
+ * front of its own executor, so a backlog of slow pod checks can't hold up
+ * in-process probes. Within a lane, the most overdue check starts first.
+ */
+public class RoutingCheckExecutor implements HealthCheckExecutor, MetricsCollector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RoutingCheckExecutor.class);
+    
+    private final Map<String, Lane> lanes;
+    
+    public RoutingCheckExecutor() {
+        this.lanes = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Route checks of a type to an executor
+     *
+     * @param type Check type, as in {@link HealthCheck#getType()}
+     * @param executor Executor for checks of this type
+     * @param maxInFlight Maximum checks of this type running at once, or 0 for unbounded
+     * @param maxInFlightPerNamespace Maximum checks of this type running at once in one namespace, or 0 for unbounded
+     */
+    public void register(String type, HealthCheckExecutor executor, int maxInFlight, int maxInFlightPerNamespace) {
+        lanes.put(type, new Lane(executor, new AdmissionQueue(maxInFlight, maxInFlightPerNamespace)));
+        logger.info("Routing {} checks: max in flight {}, per namespace {}", type,
+            maxInFlight > 0 ? maxInFlight : "unbounded",
+            maxInFlightPerNamespace > 0 ? maxInFlightPerNamespace : "unbounded");
+    }
+    
+    @Override
+    public CompletableFuture<CheckResult> execute(HealthCheck healthCheck) {
+        return execute(healthCheck, () -> { });
+    }
+    
+    @Override
+    public CompletableFuture<CheckResult> execute(HealthCheck healthCheck, Runnable onStart) {
+        Lane lane = lanes.get(healthCheck.getType());
+        if (lane == null) {
+            CheckResult result = new CheckResult(healthCheck.getName(), false);
+            result.setUuid(UUID.randomUUID().toString());
+            result.addError("No executor registered for check type: " + healthCheck.getType());
+            return CompletableFuture.completedFuture(result);
+        }
+        return lane.admission.submit(healthCheck, () -> lane.executor.execute(healthCheck, onStart));
+    }
+    
+    @Override
+    public boolean cancel(String checkUUID) {
+        for (Lane lane : lanes.values()) {
+            if (lane.executor.cancel(checkUUID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean isRunning(String checkName) {
+        for (Lane lane : lanes.values()) {
+            if (lane.admission.isQueued(checkName) || lane.executor.isRunning(checkName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean dequeue(String checkName) {
+        boolean dropped = false;
+        for (Lane lane : lanes.values()) {
+            dropped |= lane.admission.remove(checkName) | lane.executor.dequeue(checkName);
+        }
+        return dropped;
+    }
+    
+    /**
+     * Drop every check still waiting in a lane; executors are shut down by their owners
+     */
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.admission.clear());
+    }
+    
+    @Override
+    public long version() {
+        long version = 0;
+        for (Lane lane : lanes.values()) {
+            version += lane.admission.version();
+        }
+        return version;
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        Map<String, Lane> sorted = new TreeMap<>(lanes);
+        
+        out.append("# HELP kuberhealthy_executor_queue_depth Checks waiting for their type's concurrency budget\n");
+        out.append("# TYPE kuberhealthy_executor_queue_depth gauge\n");
+        for (Map.Entry<String, Lane> entry : sorted.entrySet()) {
+            appendSample(out, "kuberhealthy_executor_queue_depth", entry.getKey(),
+                String.valueOf(entry.getValue().admission.getQueueDepth()));
+        }
+        
+        out.append("# HELP kuberhealthy_executor_in_flight Checks of each type currently running\n");
+        out.append("# TYPE kuberhealthy_executor_in_flight gauge\n");
+        for (Map.Entry<String, Lane> entry : sorted.entrySet()) {
+            appendSample(out, "kuberhealthy_executor_in_flight", entry.getKey(),
+                String.valueOf(entry.getValue().admission.getInFlight()));
+        }
+        
+        out.append("# HELP kuberhealthy_executor_in_flight_by_namespace Checks of each type currently running per namespace\n");
+        out.append("# TYPE kuberhealthy_executor_in_flight_by_namespace gauge\n");
+        for (Map.Entry<String, Lane> entry : sorted.entrySet()) {
+            Map<String, Integer> byNamespace = new TreeMap<>(entry.getValue().admission.getInFlightByNamespace());
+            for (Map.Entry<String, Integer> namespace : byNamespace.entrySet()) {
+                out.append("kuberhealthy_executor_in_flight_by_namespace{type=\"")
+                   .append(MetricsRegistry.escapeLabelValue(entry.getKey())).append("\",namespace=\"")
+                   .append(MetricsRegistry.escapeLabelValue(namespace.getKey())).append("\"} ")
+                   .append(namespace.getValue()).append("\n");
+            }
+        }
+        
+        out.append("# HELP kuberhealthy_executor_wait_seconds Time checks waited for their type's concurrency budget\n");
+        out.append("# TYPE kuberhealthy_executor_wait_seconds summary\n");
+        for (Map.Entry<String, Lane> entry : sorted.entrySet()) {
+            AdmissionQueue admission = entry.getValue().admission;
+            appendSample(out, "kuberhealthy_executor_wait_seconds_sum", entry.getKey(),
+                String.valueOf(admission.getWaitMillisTotal() / 1000.0));
+            appendSample(out, "kuberhealthy_executor_wait_seconds_count", entry.getKey(),
+                String.valueOf(admission.getAdmittedTotal()));
+        }
+    }
+    
+    private static void appendSample(StringBuilder out, String name, String type, String value) {
+        out.append(name).append("{type=\"").append(MetricsRegistry.escapeLabelValue(type)).append("\"} ")
+           .append(value).append("\n");
+    }
+    
+    private static class Lane {
+        private final HealthCheckExecutor executor;
+        private final AdmissionQueue admission;
+        
+        Lane(HealthCheckExecutor executor, AdmissionQueue admission) {
+            this.executor = executor;
+            this.admission = admission;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.kuberhealthy.crd;
+
+import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.model.HealthCheck;
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers a controller check for every KuberHealthyCheck resource in the
+ * cluster, kept in sync by a shared informer.
+ *
+ * Updates that don't change a check's definition, including the ones caused
+ * by our own status patches, are ignored, so only real spec edits re-schedule
+ * a check.
+ */
+public class CheckResourceSource {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CheckResourceSource.class);
+    
+    private final HealthCheckController controller;
+    private final CheckStatusPatcher statusPatcher;
+    private final SharedInformerFactory informerFactory;
+    private final SharedIndexInformer<KuberHealthyCheck> informer;
+    
+    public CheckResourceSource(ApiClient apiClient, HealthCheckController controller,
+                               CheckStatusPatcher statusPatcher) {
+        this.controller = controller;
+        this.statusPatcher = statusPatcher;
+        
+        GenericKubernetesApi<KuberHealthyCheck, KuberHealthyCheckList> api = new GenericKubernetesApi<>(
+            KuberHealthyCheck.class,
+            KuberHealthyCheckList.class,
+            KuberHealthyCheck.GROUP,
+            KuberHealthyCheck.VERSION,
+            KuberHealthyCheck.PLURAL,
+            apiClient
+        );
+        this.informerFactory = new SharedInformerFactory(apiClient);
+        // No periodic resync: the controller already holds the desired state
+        this.informer = informerFactory.sharedIndexInformerFor(api, KuberHealthyCheck.class, 0);
+        this.informer.addEventHandler(new ResourceEventHandler<KuberHealthyCheck>() {
+            @Override
+            public void onAdd(KuberHealthyCheck resource) {
+                apply(resource);
+            }
+            
+            @Override
+            public void onUpdate(KuberHealthyCheck oldResource, KuberHealthyCheck newResource) {
+                apply(newResource);
+            }
+            
+            @Override
+            public void onDelete(KuberHealthyCheck resource, boolean deletedFinalStateUnknown) {
+                remove(resource);
+            }
+        });
+    }
+    
+    public void start() {
+        informerFactory.startAllRegisteredInformers();
+        logger.info("Watching {} resources", KuberHealthyCheck.KIND);
+    }
+    
+    /**
+     * Whether the informer has completed its initial list
+     */
+    public boolean hasSynced() {
+        return informer.hasSynced();
+    }
+    
+    public void shutdown() {
+        informerFactory.stopAllRegisteredInformers();
+    }
+    
+    private void apply(KuberHealthyCheck resource) {
+        String namespace = resource.getMetadata().getNamespace();
+        String name = resource.getMetadata().getName();
+        KuberHealthyCheck.Spec spec = resource.getSpec();
+        if (spec == null || spec.getRunInterval() <= 0) {
+            logger.warn("Ignoring {} {}/{}: spec needs runInterval", KuberHealthyCheck.KIND, namespace, name);
+            return;
+        }
+        if (spec.getTimeout() < 0) {
+            logger.warn("Ignoring {} {}/{}: timeout must be positive", KuberHealthyCheck.KIND, namespace, name);
+            return;
+        }
+        
+        HealthCheck desired = resource.toHealthCheck();
+        boolean podReady = desired.getPodSpec() != null && desired.getPodSpec().getImage() != null;
+        boolean probeReady = desired.getProbe() != null && desired.getProbe().getType() != null;
+        if ((HealthCheck.TYPE_POD.equals(desired.getType()) && !podReady)
+                || (HealthCheck.TYPE_PROBE.equals(desired.getType()) && !probeReady)) {
+            logger.warn("Ignoring {} {}/{}: {} checks need {}", KuberHealthyCheck.KIND, namespace, name,
+                desired.getType(), HealthCheck.TYPE_POD.equals(desired.getType()) ? "podSpec.image" : "probe.type");
+            return;
+        }
+        HealthCheck existing = controller.getHealthCheck(desired.getName());
+        if (existing != null) {
+            if (existing.hasSameDefinition(desired)) {
+                return;
+            }
+            // Carry the status over so a spec edit doesn't reset the check to NEW
+            desired.setStatus(existing.getStatus().lastCompleted());
+        }
+        statusPatcher.track(desired.getName(), namespace, name);
+        controller.registerHealthCheck(desired);
+    }
+    
+    private void remove(KuberHealthyCheck resource) {
+        String checkName = KuberHealthyCheck.checkName(
+            resource.getMetadata().getNamespace(), resource.getMetadata().getName());
+        statusPatcher.untrack(checkName);
+        controller.unregisterHealthCheck(checkName);
+    }
+}
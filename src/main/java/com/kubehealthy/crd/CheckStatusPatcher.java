@@ -0,0 +1,208 @@
+package com.kuberhealthy.crd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+import io.kubernetes.client.custom.V1Patch;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.util.PatchUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes check status back to the status subresource of KuberHealthyCheck resources.
+ *
+ * Status changes are coalesced per check, so a check that changes several
+ * times between flushes costs one patch with its latest status. A background
+ * flush sends at most a fixed number of patches per interval, in the order
+ * checks first became dirty, and skips statuses identical to the last one
+ * written; anything over the limit waits for the next flush.
+ */
+public class CheckStatusPatcher implements HealthCheckListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CheckStatusPatcher.class);
+    private static final String FIELD_MANAGER = "kuberhealthy";
+    
+    private final ApiClient apiClient;
+    private final CustomObjectsApi customObjectsApi;
+    private final ObjectMapper objectMapper;
+    private final long flushIntervalMillis;
+    private final int maxPatchesPerFlush;
+    private final Map<String, ResourceRef> tracked;
+    private final Map<String, HealthCheckStatus> pending;
+    private final Queue<String> dirty;
+    private final Map<String, HealthCheckStatus> lastWritten;
+    private final ScheduledExecutorService flusher;
+    
+    /**
+     * @param apiClient Kubernetes API client
+     * @param flushIntervalMillis Time between flushes
+     * @param maxPatchesPerSecond Upper bound on the status patch rate
+     */
+    public CheckStatusPatcher(ApiClient apiClient, long flushIntervalMillis, int maxPatchesPerSecond) {
+        this.apiClient = apiClient;
+        this.customObjectsApi = new CustomObjectsApi(apiClient);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPatchesPerFlush = (int) Math.max(1, maxPatchesPerSecond * flushIntervalMillis / 1000);
+        this.tracked = new ConcurrentHashMap<>();
+        this.pending = new ConcurrentHashMap<>();
+        this.dirty = new ConcurrentLinkedQueue<>();
+        // Only touched by the flusher thread
+        this.lastWritten = new HashMap<>();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "crd-status-patcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Start writing status for a check to the given resource
+     */
+    public void track(String checkName, String namespace, String name) {
+        tracked.put(checkName, new ResourceRef(namespace, name));
+    }
+    
+    /**
+     * Stop writing status for a check whose resource was deleted
+     */
+    public void untrack(String checkName) {
+        tracked.remove(checkName);
+        pending.remove(checkName);
+    }
+    
+    @Override
+    public void onStatusChanged(HealthCheck healthCheck) {
+        String checkName = healthCheck.getName();
+        if (!tracked.containsKey(checkName)) {
+            return;
+        }
+        if (pending.put(checkName, healthCheck.getStatus()) == null) {
+            dirty.add(checkName);
+        }
+    }
+    
+    /**
+     * Send up to one flush worth of pending status patches
+     */
+    void flush() {
+        int attempts = 0;
+        while (attempts < maxPatchesPerFlush) {
+            String checkName = dirty.poll();
+            if (checkName == null) {
+                break;
+            }
+            HealthCheckStatus status = pending.remove(checkName);
+            ResourceRef ref = tracked.get(checkName);
+            if (ref == null) {
+                lastWritten.remove(checkName);
+                continue;
+            }
+            if (status == null || sameStatus(status, lastWritten.get(checkName))) {
+                continue;
+            }
+            
+            attempts++;
+            try {
+                patchStatus(ref, status);
+                lastWritten.put(checkName, status);
+            } catch (ApiException e) {
+                if (e.getCode() == 404) {
+                    logger.debug("Resource for {} is gone, dropping status", checkName);
+                    continue;
+                }
+                logger.warn("Failed to patch status of {}/{}: {} {}", ref.namespace, ref.name,
+                    e.getCode(), e.getMessage());
+                requeue(checkName, status);
+                if (e.getCode() == 429) {
+                    break;
+                }
+            } catch (Exception e) {
+                logger.error("Failed to patch status of {}/{}", ref.namespace, ref.name, e);
+                requeue(checkName, status);
+            }
+        }
+        if (!dirty.isEmpty()) {
+            logger.debug("{} check status patches deferred to the next flush", dirty.size());
+        }
+    }
+    
+    /**
+     * Retry a failed patch with a later flush, unless a newer status arrived meanwhile
+     */
+    private void requeue(String checkName, HealthCheckStatus status) {
+        if (pending.putIfAbsent(checkName, status) == null) {
+            dirty.add(checkName);
+        }
+    }
+    
+    /**
+     * Stop the background flush and send one last batch
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS)) {
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void patchStatus(ResourceRef ref, HealthCheckStatus status) throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", status);
+        V1Patch patch = new V1Patch(objectMapper.writeValueAsString(body));
+        PatchUtils.patch(
+            Object.class,
+            () -> customObjectsApi.patchNamespacedCustomObjectStatusCall(
+                KuberHealthyCheck.GROUP, KuberHealthyCheck.VERSION, ref.namespace,
+                KuberHealthyCheck.PLURAL, ref.name, patch, null, FIELD_MANAGER, null, null),
+            V1Patch.PATCH_FORMAT_JSON_MERGE_PATCH,
+            apiClient
+        );
+    }
+    
+    private static boolean sameStatus(HealthCheckStatus a, HealthCheckStatus b) {
+        return b != null
+            && a.getState() == b.getState()
+            && a.isOk() == b.isOk()
+            && a.getConsecutiveFailures() == b.getConsecutiveFailures()
+            && Objects.equals(a.getLastRun(), b.getLastRun())
+            && Objects.equals(a.getCurrentCheckUUID(), b.getCurrentCheckUUID())
+            && Objects.equals(a.getErrors(), b.getErrors());
+    }
+    
+    private static class ResourceRef {
+        private final String namespace;
+        private final String name;
+        
+        ResourceRef(String namespace, String name) {
+            this.namespace = namespace;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.kuberhealthy.crd;
+
+import com.google.gson.annotations.SerializedName;
+import com.kuberhealthy.model.HealthCheck;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+
+/**
+ * The KuberHealthyCheck custom resource, as read by the Kubernetes client.
+ * Only the spec is read; status is written back with patches.
+ */
+public class KuberHealthyCheck implements KubernetesObject {
+    
+    public static final String GROUP = "kuberhealthy.io";
+    public static final String VERSION = "v1";
+    public static final String PLURAL = "kuberhealthychecks";
+    public static final String KIND = "KuberHealthyCheck";
+    
+    @SerializedName("apiVersion")
+    private String apiVersion;
+    
+    @SerializedName("kind")
+    private String kind;
+    
+    @SerializedName("metadata")
+    private V1ObjectMeta metadata;
+    
+    @SerializedName("spec")
+    private Spec spec;
+    
+    @Override
+    public String getApiVersion() {
+        return apiVersion;
+    }
+    
+    public void setApiVersion(String apiVersion) {
+        this.apiVersion = apiVersion;
+    }
+    
+    @Override
+    public String getKind() {
+        return kind;
+    }
+    
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+    
+    @Override
+    public V1ObjectMeta getMetadata() {
+        return metadata;
+    }
+    
+    public void setMetadata(V1ObjectMeta metadata) {
+        this.metadata = metadata;
+    }
+    
+    public Spec getSpec() {
+        return spec;
+    }
+    
+    public void setSpec(Spec spec) {
+        this.spec = spec;
+    }
+    
+    /**
+     * Name of the controller check backing a resource. Resources in different
+     * namespaces may share a name, so the namespace is part of it.
+     */
+    public static String checkName(String namespace, String name) {
+        return namespace + "." + name;
+    }
+    
+    /**
+     * Build the controller check for this resource; check pods run in the
+     * resource's namespace. An unset timeout gets the default, since a zero
+     * timeout would fail every run immediately.
+     */
+    public HealthCheck toHealthCheck() {
+        HealthCheck check = new HealthCheck(
+            checkName(metadata.getNamespace(), metadata.getName()),
+            metadata.getNamespace(),
+            spec.runInterval,
+            spec.timeout > 0 ? spec.timeout : HealthCheck.DEFAULT_TIMEOUT_SECONDS
+        );
+        check.setType(spec.type);
+        check.setPodSpec(spec.podSpec);
+        check.setProbe(spec.probe);
+        return check;
+    }
+    
+    /**
+     * Desired check configuration
+     */
+    public static class Spec {
+        @SerializedName("type")
+        private String type;
+        
+        @SerializedName("runInterval")
+        private long runInterval;
+        
+        @SerializedName("timeout")
+        private long timeout;
+        
+        @SerializedName("podSpec")
+        private HealthCheck.PodSpec podSpec;
+        
+        @SerializedName("probe")
+        private HealthCheck.ProbeSpec probe;
+        
+        public String getType() {
+            return type;
+        }
+        
+        public void setType(String type) {
+            this.type = type;
+        }
+        
+        public long getRunInterval() {
+            return runInterval;
+        }
+        
+        public void setRunInterval(long runInterval) {
+            this.runInterval = runInterval;
+        }
+        
+        public long getTimeout() {
+            return timeout;
+        }
+        
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+        
+        public HealthCheck.PodSpec getPodSpec() {
+            return podSpec;
+        }
+        
+        public void setPodSpec(HealthCheck.PodSpec podSpec) {
+            this.podSpec = podSpec;
+        }
+        
+        public HealthCheck.ProbeSpec getProbe() {
+            return probe;
+        }
+        
+        public void setProbe(HealthCheck.ProbeSpec probe) {
+            this.probe = probe;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kuberhealthy.crd;
+
+import com.google.gson.annotations.SerializedName;
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List type for {@link KuberHealthyCheck}, needed by the generic API and informer
+ */
+public class KuberHealthyCheckList implements KubernetesListObject {
+    
+    @SerializedName("apiVersion")
+    private String apiVersion;
+    
+    @SerializedName("kind")
+    private String kind;
+    
+    @SerializedName("metadata")
+    private V1ListMeta metadata;
+    
+    @SerializedName("items")
+    private List<KuberHealthyCheck> items = new ArrayList<>();
+    
+    @Override
+    public String getApiVersion() {
+        return apiVersion;
+    }
+    
+    public void setApiVersion(String apiVersion) {
+        this.apiVersion = apiVersion;
+    }
+    
+    @Override
+    public String getKind() {
+        return kind;
+    }
+    
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+    
+    @Override
+    public V1ListMeta getMetadata() {
+        return metadata;
+    }
+    
+    public void setMetadata(V1ListMeta metadata) {
+        this.metadata = metadata;
+    }
+    
+    @Override
+    public List<KuberHealthyCheck> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<KuberHealthyCheck> items) {
+        this.items = items;
+    }
+}
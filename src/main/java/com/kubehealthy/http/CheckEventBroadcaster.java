@@ -0,0 +1,234 @@
+package com.kuberhealthy.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.metrics.MetricsCollector;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans check results and state transitions out to Server-Sent Events subscribers.
+ *
+ * Each subscriber has a bounded ring buffer and at most one event handed to its
+ * connection at a time. When a subscriber falls behind, the oldest buffered
+ * events are dropped, so publishing never waits on a slow consumer.
+ */
+public class CheckEventBroadcaster implements HealthCheckListener, MetricsCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckEventBroadcaster.class);
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+    private static final long KEEP_ALIVE_MILLIS = 15000;
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final Set<Subscriber> subscribers;
+    private final Map<String, HealthCheckStatus.CheckState> lastStates;
+    private final AtomicLong eventIds;
+    private final LongAdder publishedTotal;
+    private final LongAdder droppedTotal;
+    // Bumped on every change to the exported values, so version() never repeats
+    private final AtomicLong changes;
+
+    public CheckEventBroadcaster(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CheckEventBroadcaster(ObjectMapper objectMapper, int bufferSize) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.subscribers = ConcurrentHashMap.newKeySet();
+        this.lastStates = new ConcurrentHashMap<>();
+        this.eventIds = new AtomicLong();
+        this.publishedTotal = new LongAdder();
+        this.droppedTotal = new LongAdder();
+        this.changes = new AtomicLong();
+    }
+
+    /**
+     * Attach a new SSE connection, optionally only receiving events for one check
+     */
+    public void subscribe(ServerSentEventConnection connection, String checkName) {
+        Subscriber subscriber = new Subscriber(connection, checkName);
+        subscribers.add(subscriber);
+        changes.incrementAndGet();
+        connection.setKeepAliveTime(KEEP_ALIVE_MILLIS);
+        connection.addCloseTask(closed -> unsubscribe(subscriber));
+        logger.debug("SSE subscriber connected (check filter: {})", checkName != null ? checkName : "none");
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            changes.incrementAndGet();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onCheckRegistered(HealthCheck healthCheck) {
+        lastStates.put(healthCheck.getName(), healthCheck.getStatus().getState());
+    }
+
+    @Override
+    public void onCheckUnregistered(String checkName) {
+        lastStates.remove(checkName);
+    }
+
+    @Override
+    public void onStatusChanged(HealthCheck healthCheck) {
+        HealthCheckStatus status = healthCheck.getStatus();
+        HealthCheckStatus.CheckState state = status.getState();
+        HealthCheckStatus.CheckState previous = lastStates.put(healthCheck.getName(), state);
+        if (previous == state || subscribers.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> transition = new LinkedHashMap<>();
+        transition.put("checkName", healthCheck.getName());
+        transition.put("from", previous != null ? previous : HealthCheckStatus.CheckState.NEW);
+        transition.put("to", state);
+        transition.put("ok", status.isOk());
+        transition.put("consecutiveFailures", status.getConsecutiveFailures());
+        transition.put("timestamp", System.currentTimeMillis());
+        publish("transition", healthCheck.getName(), transition);
+    }
+
+    @Override
+    public void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+        if (!subscribers.isEmpty()) {
+            publish("result", healthCheck.getName(), result);
+        }
+    }
+
+    @Override
+    public long version() {
+        return changes.get();
+    }
+
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_events_subscribers Connected /events subscribers\n");
+        out.append("# TYPE kuberhealthy_events_subscribers gauge\n");
+        out.append("kuberhealthy_events_subscribers ").append(subscribers.size()).append("\n");
+
+        out.append("# HELP kuberhealthy_events_published_total Events published to /events\n");
+        out.append("# TYPE kuberhealthy_events_published_total counter\n");
+        out.append("kuberhealthy_events_published_total ").append(publishedTotal.sum()).append("\n");
+
+        out.append("# HELP kuberhealthy_events_dropped_total Events dropped for slow /events subscribers\n");
+        out.append("# TYPE kuberhealthy_events_dropped_total counter\n");
+        out.append("kuberhealthy_events_dropped_total ").append(droppedTotal.sum()).append("\n");
+    }
+
+    private void publish(String type, String checkName, Object payload) {
+        String data;
+        try {
+            // Serialized once and shared by every subscriber
+            data = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize {} event for {}", type, checkName, e);
+            return;
+        }
+
+        Event event = new Event(type, String.valueOf(eventIds.incrementAndGet()), checkName, data);
+        publishedTotal.increment();
+        changes.incrementAndGet();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private static class Event {
+        private final String type;
+        private final String id;
+        private final String checkName;
+        private final String data;
+
+        Event(String type, String id, String checkName, String data) {
+            this.type = type;
+            this.id = id;
+            this.checkName = checkName;
+            this.data = data;
+        }
+    }
+
+    private class Subscriber implements ServerSentEventConnection.EventCallback {
+        private final ServerSentEventConnection connection;
+        private final String checkFilter;
+        private final ArrayDeque<Event> buffer;
+        private boolean sending;
+
+        Subscriber(ServerSentEventConnection connection, String checkFilter) {
+            this.connection = connection;
+            this.checkFilter = checkFilter;
+            this.buffer = new ArrayDeque<>(bufferSize);
+        }
+
+        void offer(Event event) {
+            if (checkFilter != null && !checkFilter.equals(event.checkName)) {
+                return;
+            }
+            synchronized (this) {
+                if (buffer.size() == bufferSize) {
+                    buffer.pollFirst();
+                    droppedTotal.increment();
+                    changes.incrementAndGet();
+                }
+                buffer.addLast(event);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sendNext();
+        }
+
+        private void sendNext() {
+            Event next;
+            synchronized (this) {
+                next = buffer.pollFirst();
+                if (next == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            connection.send(next.data, next.type, next.id, this);
+        }
+
+        @Override
+        public void done(ServerSentEventConnection connection, String data, String event, String id) {
+            sendNext();
+        }
+
+        @Override
+        public void failed(ServerSentEventConnection connection, String data, String event, String id,
+                           IOException e) {
+            logger.debug("SSE send failed, dropping subscriber: {}", e.getMessage());
+            unsubscribe(this);
+            synchronized (this) {
+                buffer.clear();
+            }
+            try {
+                connection.close();
+            } catch (IOException closeError) {
+                logger.debug("Error closing SSE connection", closeError);
+            }
+        }
+    }
+}
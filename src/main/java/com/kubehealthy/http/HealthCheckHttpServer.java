@@ -1,21 +1,46 @@
 package com.kuberhealthy.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kuberhealthy.controller.HealthCheckController;
+import com.kuberhealthy.metrics.CheckSloRollups;
+import com.kuberhealthy.metrics.MetricsRegistry;
+import com.kuberhealthy.model.CheckResult;
 import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+import com.kuberhealthy.store.PodLogStore;
+import com.kuberhealthy.store.ResultLog;
+import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
 import io.undertow.util.StatusCodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * HTTP server for exposing health check status and metrics
@@ -24,10 +49,19 @@ public class HealthCheckHttpServer {
     
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckHttpServer.class);
     private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_LONG_POLL_SECONDS = 30;
+    private static final long MAX_LONG_POLL_SECONDS = 120;
+    private static final int DEFAULT_HISTORY_LIMIT = 100;
+    private static final AttachmentKey<Long> STATE_VERSION = AttachmentKey.create(Long.class);
     
     private final HealthCheckController controller;
     private final ObjectMapper objectMapper;
+    private final ObjectWriter checkWriter;
+    private final CheckEventBroadcaster eventBroadcaster;
     private final int port;
+    private final int ioThreads;
+    private final int workerThreads;
+    private volatile PodLogStore podLogStore;
     private Undertow server;
     
     public HealthCheckHttpServer(HealthCheckController controller) {
@@ -35,23 +69,61 @@ public class HealthCheckHttpServer {
     }
     
     public HealthCheckHttpServer(HealthCheckController controller, int port) {
+        this(controller, port, 0, 0, false);
+    }
+    
+    /**
+     * @param controller The health check controller to expose
+     * @param port Port to listen on
+     * @param ioThreads Number of non-blocking IO threads, or 0 for the Undertow default
+     * @param workerThreads Number of worker threads for heavy endpoints, or 0 for the Undertow default
+     * @param prettyJson Whether to indent JSON responses
+     */
+    public HealthCheckHttpServer(HealthCheckController controller, int port,
+                                 int ioThreads, int workerThreads, boolean prettyJson) {
         this.controller = controller;
         this.port = port;
+        this.ioThreads = ioThreads;
+        this.workerThreads = workerThreads;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        if (prettyJson) {
+            this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        }
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Checks are streamed one at a time; let the response buffer decide when to flush
+        this.checkWriter = objectMapper.writerFor(HealthCheck.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        // Events are compact single-line JSON regardless of prettyJson
+        ObjectMapper eventMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+        this.eventBroadcaster = new CheckEventBroadcaster(eventMapper);
+        controller.addListener(eventBroadcaster);
+        controller.getMetricsRegistry().register(eventBroadcaster);
+    }
+    
+    /**
+     * Serve stored logs of failed check pods from /checks/{name}/logs/{uuid}
+     */
+    public void setPodLogStore(PodLogStore podLogStore) {
+        this.podLogStore = podLogStore;
     }
     
     /**
      * Start the HTTP server
      */
     public void start() {
-        server = Undertow.builder()
+        Undertow.Builder builder = Undertow.builder()
             .addHttpListener(port, "0.0.0.0")
-            .setHandler(this::handleRequest)
-            .build();
+            .setHandler(buildRoutes());
+        if (ioThreads > 0) {
+            builder.setIoThreads(ioThreads);
+        }
+        if (workerThreads > 0) {
+            builder.setWorkerThreads(workerThreads);
+        }
         
+        server = builder.build();
         server.start();
         logger.info("HTTP server started on port {}", port);
     }
@@ -66,44 +138,145 @@ public class HealthCheckHttpServer {
         }
     }
     
-    private void handleRequest(HttpServerExchange exchange) {
-        String path = exchange.getRequestPath();
-        String method = exchange.getRequestMethod().toString();
-        
-        logger.debug("Received {} request for {}", method, path);
+    /**
+     * Probe endpoints answer from in-memory state and stay on the IO threads so
+     * they are never queued behind serialization of a large check list; endpoints
+     * that walk or serialize every check are dispatched to the worker pool.
+     */
+    private HttpHandler buildRoutes() {
+        return Handlers.routing()
+            .get("/healthz", onIoThread(this::handleHealthEndpoint))
+            .get("/health", onIoThread(this::handleHealthEndpoint))
+            .get("/ready", onIoThread(this::handleReadinessEndpoint))
+            .get("/readyz", onIoThread(this::handleReadinessEndpoint))
+            .get("/metrics", onWorker(this::handleMetricsEndpoint))
+            .get("/status", onWorker(conditional(this::handleStatusEndpoint)))
+            .get("/checks", onWorker(conditional(this::handleChecksEndpoint)))
+            .get("/checks/{name}/history", onWorker(this::handleHistoryEndpoint))
+            .get("/checks/{name}/logs/{uuid}", onWorker(this::handlePodLogEndpoint))
+            .get("/checks/{name}/slo", onWorker(this::handleCheckSloEndpoint))
+            .get("/slo", onWorker(this::handleSloEndpoint))
+            .get("/events", Handlers.serverSentEvents(this::handleEventsConnection))
+            .setFallbackHandler(this::sendNotFound)
+            .setInvalidMethodHandler(this::sendMethodNotAllowed);
+    }
+    
+    private HttpHandler onIoThread(HttpHandler handler) {
+        return exchange -> handleRequest(exchange, handler);
+    }
+    
+    private HttpHandler onWorker(HttpHandler handler) {
+        HttpHandler guarded = onIoThread(handler);
+        return exchange -> {
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(guarded);
+            } else {
+                guarded.handleRequest(exchange);
+            }
+        };
+    }
+    
+    /**
+     * Adds state-version based conditional GET and long-polling to an endpoint.
+     * 
+     * Responses carry an ETag derived from the controller's state version, and a
+     * request whose If-None-Match matches gets 304. With
+     * {@code ?waitForChangeAfter=<version>} the request is parked without holding
+     * a thread until the state moves past that version or the wait times out.
+     */
+    private HttpHandler conditional(HttpHandler handler) {
+        HttpHandler conditionalResponse = exchange -> {
+            // Read the version before rendering, so the ETag is never newer than the body
+            long version = controller.getStateVersion();
+            exchange.putAttachment(STATE_VERSION, version);
+            String etag = "W/\"" + version + "\"";
+            exchange.getResponseHeaders().put(Headers.ETAG, etag);
+            
+            if (matchesIfNoneMatch(exchange, etag)) {
+                exchange.setStatusCode(StatusCodes.NOT_MODIFIED);
+                exchange.endExchange();
+                return;
+            }
+            handler.handleRequest(exchange);
+        };
+        HttpHandler respond = exchange -> handleRequest(exchange, conditionalResponse);
         
-        try {
-            if ("GET".equals(method)) {
-                switch (path) {
-                    case "/healthz":
-                    case "/health":
-                        handleHealthEndpoint(exchange);
-                        break;
-                    case "/ready":
-                    case "/readyz":
-                        handleReadinessEndpoint(exchange);
-                        break;
-                    case "/metrics":
-                        handleMetricsEndpoint(exchange);
-                        break;
-                    case "/status":
-                        handleStatusEndpoint(exchange);
-                        break;
-                    case "/checks":
-                        handleChecksEndpoint(exchange);
-                        break;
-                    default:
-                        sendNotFound(exchange);
+        return exchange -> {
+            String waitParam = getQueryParam(exchange, "waitForChangeAfter");
+            if (waitParam == null) {
+                respond.handleRequest(exchange);
+                return;
+            }
+            
+            long afterVersion;
+            long timeoutSeconds;
+            try {
+                afterVersion = Long.parseLong(waitParam);
+                String timeoutParam = getQueryParam(exchange, "timeout");
+                timeoutSeconds = timeoutParam != null
+                    ? Math.min(Long.parseLong(timeoutParam), MAX_LONG_POLL_SECONDS)
+                    : DEFAULT_LONG_POLL_SECONDS;
+            } catch (NumberFormatException e) {
+                sendError(exchange, StatusCodes.BAD_REQUEST, "Invalid query parameter: " + e.getMessage());
+                return;
+            }
+            
+            CompletableFuture<Long> changed = controller.awaitStateChange(afterVersion);
+            if (changed.isDone()) {
+                respond.handleRequest(exchange);
+                return;
+            }
+            
+            // Park the exchange; on change or timeout resume on a worker thread and
+            // answer with the current state (or 304 if the client's ETag still matches)
+            CompletableFuture<Long> bounded = changed.completeOnTimeout(afterVersion, timeoutSeconds, TimeUnit.SECONDS);
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () ->
+                bounded.whenComplete((version, throwable) -> exchange.dispatch(respond)));
+        };
+    }
+    
+    private static boolean matchesIfNoneMatch(HttpServerExchange exchange, String etag) {
+        HeaderValues values = exchange.getRequestHeaders().get(Headers.IF_NONE_MATCH);
+        if (values == null) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String value : values) {
+            for (String candidate : value.split(",")) {
+                String trimmed = candidate.trim();
+                if ("*".equals(trimmed) || opaqueTag.equals(stripWeak(trimmed))) {
+                    return true;
                 }
-            } else {
-                sendMethodNotAllowed(exchange);
             }
+        }
+        return false;
+    }
+    
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+    
+    private void handleRequest(HttpServerExchange exchange, HttpHandler handler) {
+        logger.debug("Received {} request for {}", exchange.getRequestMethod(), exchange.getRequestPath());
+        
+        try {
+            handler.handleRequest(exchange);
         } catch (Exception e) {
             logger.error("Error handling request", e);
             sendError(exchange, StatusCodes.INTERNAL_SERVER_ERROR, "Internal server error");
         }
     }
     
+    /**
+     * Subscribe a Server-Sent Events connection to check results and state
+     * transitions, optionally filtered to one check with {@code ?check=<name>}
+     */
+    private void handleEventsConnection(ServerSentEventConnection connection, String lastEventId) {
+        Deque<String> checkParam = connection.getQueryParameters().get("check");
+        String checkName = checkParam != null && !checkParam.isEmpty() ? checkParam.peekFirst() : null;
+        eventBroadcaster.subscribe(connection, checkName);
+    }
+    
     private void handleHealthEndpoint(HttpServerExchange exchange) throws Exception {
         boolean healthy = controller.isHealthy();
         
@@ -128,60 +301,246 @@ public class HealthCheckHttpServer {
     }
     
     private void handleMetricsEndpoint(HttpServerExchange exchange) throws Exception {
-        List<HealthCheck> checks = controller.getAllHealthChecks();
+        // Sections are cached pre-encoded and only re-rendered when their state changed
+        boolean gzip = acceptsGzip(exchange);
+        ByteBuffer[] body = controller.getMetricsRegistry().scrape(gzip);
         
-        StringBuilder metrics = new StringBuilder();
-        metrics.append("# HELP kuberhealthy_check_total Total number of health checks\n");
-        metrics.append("# TYPE kuberhealthy_check_total gauge\n");
-        metrics.append("kuberhealthy_check_total ").append(checks.size()).append("\n");
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, MetricsRegistry.CONTENT_TYPE);
+        exchange.getResponseHeaders().put(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        if (gzip) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
+        }
+        exchange.setStatusCode(StatusCodes.OK);
+        exchange.getResponseSender().send(body);
+    }
+    
+    private boolean acceptsGzip(HttpServerExchange exchange) {
+        HeaderValues values = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+        if (values == null) {
+            return false;
+        }
+        // An explicit gzip entry, even q=0, takes precedence over a wildcard
+        double gzipQuality = -1;
+        double wildcardQuality = -1;
+        for (String value : values) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzipQuality = Math.max(gzipQuality, quality(parts));
+                } else if (name.equals("*")) {
+                    wildcardQuality = Math.max(wildcardQuality, quality(parts));
+                }
+            }
+        }
+        return gzipQuality >= 0 ? gzipQuality > 0 : wildcardQuality > 0;
+    }
+    
+    /**
+     * The q weight of one Accept-Encoding coding split on ';', 1 if absent
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // A malformed weight doesn't count as accepting the coding
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+    
+    private void handleStatusEndpoint(HttpServerExchange exchange) throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("healthy", controller.isHealthy());
+        response.put("totalChecks", controller.getHealthCheckCount());
+        response.put("failingChecks", controller.getFailingChecksCount());
+        response.put("version", getStateVersion(exchange));
+        response.put("timestamp", System.currentTimeMillis());
+        
+        sendJsonResponse(exchange, StatusCodes.OK, response);
+    }
+    
+    /**
+     * Stream checks as JSON straight to the response, optionally filtered by
+     * {@code namespace} and {@code state} and paged with {@code limit} and
+     * {@code cursor}. Checks are returned in name order; when more remain,
+     * {@code nextCursor} is included for the following request.
+     */
+    private void handleChecksEndpoint(HttpServerExchange exchange) throws Exception {
+        String namespace = getQueryParam(exchange, "namespace");
+        HealthCheckStatus.CheckState state;
+        int limit;
+        String afterName;
+        try {
+            String stateParam = getQueryParam(exchange, "state");
+            state = stateParam != null ? HealthCheckStatus.CheckState.valueOf(stateParam.toUpperCase(Locale.ROOT)) : null;
+            String limitParam = getQueryParam(exchange, "limit");
+            limit = limitParam != null ? Integer.parseInt(limitParam) : Integer.MAX_VALUE;
+            if (limit <= 0) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+            String cursor = getQueryParam(exchange, "cursor");
+            afterName = cursor != null ? decodeCursor(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, StatusCodes.BAD_REQUEST, "Invalid query parameter: " + e.getMessage());
+            return;
+        }
+        
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+        exchange.setStatusCode(StatusCodes.OK);
+        exchange.startBlocking();
         
-        metrics.append("# HELP kuberhealthy_check_ok Health check OK status (1=ok, 0=failed)\n");
-        metrics.append("# TYPE kuberhealthy_check_ok gauge\n");
+        try (JsonGenerator generator = objectMapper.createGenerator(exchange.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("checks");
+            
+            int count = 0;
+            String lastName = null;
+            boolean more = false;
+            for (HealthCheck check : controller.getHealthChecksAfter(afterName)) {
+                if (namespace != null && !namespace.equals(check.getNamespace())) {
+                    continue;
+                }
+                if (state != null && state != check.getStatus().getState()) {
+                    continue;
+                }
+                if (count == limit) {
+                    more = true;
+                    break;
+                }
+                checkWriter.writeValue(generator, check);
+                lastName = check.getName();
+                count++;
+            }
+            
+            generator.writeEndArray();
+            generator.writeNumberField("count", count);
+            generator.writeNumberField("version", getStateVersion(exchange));
+            if (more) {
+                generator.writeStringField("nextCursor", encodeCursor(lastName));
+            }
+            generator.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            // Part of the body may already be sent, so no error response can follow it;
+            // closing the connection leaves the client with a truncated body, not a valid one
+            logger.warn("Error streaming /checks response, closing connection", e);
+            IoUtils.safeClose(exchange.getConnection());
+        }
+    }
+    
+    /**
+     * Recent results for one check from the result log, newest first
+     */
+    private void handleHistoryEndpoint(HttpServerExchange exchange) throws Exception {
+        ResultLog resultLog = controller.getResultLog();
+        if (resultLog == null) {
+            sendError(exchange, StatusCodes.NOT_FOUND, "Result history is not enabled");
+            return;
+        }
         
-        for (HealthCheck check : checks) {
-            String checkName = check.getName();
-            int okValue = check.getStatus().isOk() ? 1 : 0;
-            metrics.append("kuberhealthy_check_ok{check=\"").append(checkName).append("\"} ")
-                   .append(okValue).append("\n");
+        String checkName = getQueryParam(exchange, "name");
+        int limit;
+        try {
+            String limitParam = getQueryParam(exchange, "limit");
+            limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_HISTORY_LIMIT;
+        } catch (NumberFormatException e) {
+            sendError(exchange, StatusCodes.BAD_REQUEST, "Invalid query parameter: " + e.getMessage());
+            return;
         }
         
-        metrics.append("# HELP kuberhealthy_check_failures Consecutive failures for health check\n");
-        metrics.append("# TYPE kuberhealthy_check_failures gauge\n");
+        List<CheckResult> results = resultLog.getHistory(checkName, limit);
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("checkName", checkName);
+        response.put("results", results);
+        response.put("count", results.size());
         
-        for (HealthCheck check : checks) {
-            String checkName = check.getName();
-            int failures = check.getStatus().getConsecutiveFailures();
-            metrics.append("kuberhealthy_check_failures{check=\"").append(checkName).append("\"} ")
-                   .append(failures).append("\n");
+        sendJsonResponse(exchange, StatusCodes.OK, response);
+    }
+    
+    /**
+     * Full log of one failed run from the pod log store, as plain text
+     */
+    private void handlePodLogEndpoint(HttpServerExchange exchange) throws Exception {
+        PodLogStore store = podLogStore;
+        if (store == null) {
+            sendError(exchange, StatusCodes.NOT_FOUND, "Pod log storage is not enabled");
+            return;
+        }
+        
+        String checkName = getQueryParam(exchange, "name");
+        String checkUUID = getQueryParam(exchange, "uuid");
+        Path path = store.find(checkName, checkUUID);
+        if (path == null) {
+            sendError(exchange, StatusCodes.NOT_FOUND, "No stored log for check " + checkName + " run " + checkUUID);
+            return;
         }
         
         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain; charset=utf-8");
         exchange.setStatusCode(StatusCodes.OK);
-        exchange.getResponseSender().send(metrics.toString());
+        exchange.getResponseSender().send(ByteBuffer.wrap(Files.readAllBytes(path)));
     }
     
-    private void handleStatusEndpoint(HttpServerExchange exchange) throws Exception {
-        List<HealthCheck> checks = controller.getAllHealthChecks();
+    /**
+     * Success ratio and duration quantiles over the SLO windows for every check
+     */
+    private void handleSloEndpoint(HttpServerExchange exchange) throws Exception {
+        Map<String, List<CheckSloRollups.WindowSummary>> summaries =
+            controller.getSloRollups().getAllSummaries();
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("healthy", controller.isHealthy());
-        response.put("totalChecks", checks.size());
-        response.put("failingChecks", controller.getFailingChecksCount());
-        response.put("timestamp", System.currentTimeMillis());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("checks", summaries);
+        response.put("count", summaries.size());
         
         sendJsonResponse(exchange, StatusCodes.OK, response);
     }
     
-    private void handleChecksEndpoint(HttpServerExchange exchange) throws Exception {
-        List<HealthCheck> checks = controller.getAllHealthChecks();
+    /**
+     * Success ratio and duration quantiles over the SLO windows for one check
+     */
+    private void handleCheckSloEndpoint(HttpServerExchange exchange) throws Exception {
+        String checkName = getQueryParam(exchange, "name");
+        List<CheckSloRollups.WindowSummary> summaries = controller.getSloRollups().getSummaries(checkName);
+        if (summaries == null) {
+            sendError(exchange, StatusCodes.NOT_FOUND, "No results recorded for check: " + checkName);
+            return;
+        }
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("checks", checks);
-        response.put("count", checks.size());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("checkName", checkName);
+        response.put("windows", summaries);
         
         sendJsonResponse(exchange, StatusCodes.OK, response);
     }
     
+    private long getStateVersion(HttpServerExchange exchange) {
+        Long version = exchange.getAttachment(STATE_VERSION);
+        return version != null ? version : controller.getStateVersion();
+    }
+    
+    private static String getQueryParam(HttpServerExchange exchange, String name) {
+        Deque<String> values = exchange.getQueryParameters().get(name);
+        if (values == null || values.isEmpty() || values.peekFirst().isEmpty()) {
+            return null;
+        }
+        return values.peekFirst();
+    }
+    
+    private static String encodeCursor(String checkName) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(checkName.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String decodeCursor(String cursor) {
+        // Base64 decoding failures surface as IllegalArgumentException
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+    
     private void sendJsonResponse(HttpServerExchange exchange, int statusCode, Object data) throws Exception {
         String json = objectMapper.writeValueAsString(data);
         
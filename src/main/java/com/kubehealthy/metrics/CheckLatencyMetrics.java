@@ -0,0 +1,96 @@
+package com.kuberhealthy.metrics;
+
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.model.CheckPhase;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-check duration histograms, total and broken down by {@link CheckPhase}
+ */
+public class CheckLatencyMetrics implements HealthCheckListener, MetricsCollector {
+    
+    // POD_DELETE is no longer measured, so it gets no histogram
+    private static final Set<CheckPhase> PHASES = EnumSet.complementOf(EnumSet.of(CheckPhase.POD_DELETE));
+    
+    private final Map<String, CheckHistograms> histograms;
+    private final LongAdder updates;
+    
+    public CheckLatencyMetrics() {
+        this.histograms = new ConcurrentSkipListMap<>();
+        this.updates = new LongAdder();
+    }
+    
+    @Override
+    public void onCheckUnregistered(String checkName) {
+        if (histograms.remove(checkName) != null) {
+            updates.increment();
+        }
+    }
+    
+    @Override
+    public void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+        CheckHistograms checkHistograms = histograms.get(healthCheck.getName());
+        if (checkHistograms == null) {
+            checkHistograms = histograms.computeIfAbsent(healthCheck.getName(), name -> new CheckHistograms());
+        }
+        
+        checkHistograms.total.record(result.getRunDurationMillis());
+        for (CheckPhase phase : PHASES) {
+            long millis = result.getPhaseDurationMillis(phase);
+            if (millis >= 0) {
+                checkHistograms.phases[phase.ordinal()].record(millis);
+            }
+        }
+        updates.increment();
+    }
+    
+    @Override
+    public long version() {
+        return updates.sum();
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_check_duration_seconds Health check run duration\n");
+        out.append("# TYPE kuberhealthy_check_duration_seconds histogram\n");
+        for (Map.Entry<String, CheckHistograms> entry : histograms.entrySet()) {
+            String labels = "check=\"" + MetricsRegistry.escapeLabelValue(entry.getKey()) + "\",";
+            entry.getValue().total.collect(out, "kuberhealthy_check_duration_seconds", labels);
+        }
+        
+        out.append("# HELP kuberhealthy_check_phase_duration_seconds Health check duration by phase\n");
+        out.append("# TYPE kuberhealthy_check_phase_duration_seconds histogram\n");
+        for (Map.Entry<String, CheckHistograms> entry : histograms.entrySet()) {
+            String check = MetricsRegistry.escapeLabelValue(entry.getKey());
+            for (CheckPhase phase : PHASES) {
+                LatencyHistogram histogram = entry.getValue().phases[phase.ordinal()];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                String labels = "check=\"" + check + "\",phase=\"" + phase.getLabel() + "\",";
+                histogram.collect(out, "kuberhealthy_check_phase_duration_seconds", labels);
+            }
+        }
+    }
+    
+    private static class CheckHistograms {
+        private final LatencyHistogram total;
+        private final LatencyHistogram[] phases;
+        
+        CheckHistograms() {
+            this.total = new LatencyHistogram();
+            // Indexed by ordinal; null for phases that aren't exported
+            this.phases = new LatencyHistogram[CheckPhase.values().length];
+            for (CheckPhase phase : PHASES) {
+                phases[phase.ordinal()] = new LatencyHistogram();
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.kuberhealthy.metrics;
+
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-check availability and duration rollups over sliding SLO windows.
+ *
+ * Each window is a ring of time buckets held in flat primitive arrays: a run
+ * count, a success count and duration histogram counts per bucket. Recording a
+ * result touches one bucket of each window, and a bucket is reset in place when
+ * the ring wraps around to it, so memory per check is fixed no matter how long
+ * the process runs. Window boundaries are bucket aligned, so a window covers
+ * between its nominal length minus one bucket and its nominal length.
+ */
+public class CheckSloRollups implements HealthCheckListener, MetricsCollector {
+    
+    private static final long[] BOUNDS_MILLIS = LatencyHistogram.DEFAULT_BOUNDS_MILLIS;
+    private static final int BINS = BOUNDS_MILLIS.length + 1;
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final Window[] WINDOWS = Window.values();
+    
+    /**
+     * SLO windows and their bucket layout
+     */
+    private enum Window {
+        FIVE_MINUTES("5m", 30_000L, 10),
+        ONE_HOUR("1h", 300_000L, 12),
+        ONE_DAY("24h", 3_600_000L, 24),
+        SEVEN_DAYS("7d", 21_600_000L, 28);
+        
+        private final String label;
+        private final long bucketMillis;
+        private final int bucketCount;
+        
+        Window(String label, long bucketMillis, int bucketCount) {
+            this.label = label;
+            this.bucketMillis = bucketMillis;
+            this.bucketCount = bucketCount;
+        }
+    }
+    
+    private final Map<String, CheckRollup> rollups;
+    private final LongAdder updates;
+    
+    public CheckSloRollups() {
+        this.rollups = new ConcurrentSkipListMap<>();
+        this.updates = new LongAdder();
+    }
+    
+    @Override
+    public void onCheckUnregistered(String checkName) {
+        if (rollups.remove(checkName) != null) {
+            updates.increment();
+        }
+    }
+    
+    @Override
+    public void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+        CheckRollup rollup = rollups.get(healthCheck.getName());
+        if (rollup == null) {
+            rollup = rollups.computeIfAbsent(healthCheck.getName(), name -> new CheckRollup());
+        }
+        long timestamp = result.getTimestamp() != null
+            ? result.getTimestamp().toEpochMilli()
+            : System.currentTimeMillis();
+        rollup.record(timestamp, result.isOk(), result.getRunDurationMillis());
+        updates.increment();
+    }
+    
+    /**
+     * Summaries of every window for one check, or null if it has no results
+     */
+    public List<WindowSummary> getSummaries(String checkName) {
+        CheckRollup rollup = rollups.get(checkName);
+        return rollup != null ? rollup.summarize(System.currentTimeMillis()) : null;
+    }
+    
+    /**
+     * Summaries of every window for every check with results, in name order
+     */
+    public Map<String, List<WindowSummary>> getAllSummaries() {
+        long now = System.currentTimeMillis();
+        Map<String, List<WindowSummary>> summaries = new ConcurrentSkipListMap<>();
+        for (Map.Entry<String, CheckRollup> entry : rollups.entrySet()) {
+            summaries.put(entry.getKey(), entry.getValue().summarize(now));
+        }
+        return summaries;
+    }
+    
+    @Override
+    public long version() {
+        // Windows slide with time, so output also changes as the smallest bucket rolls over
+        return updates.sum() + System.currentTimeMillis() / WINDOWS[0].bucketMillis;
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        long now = System.currentTimeMillis();
+        List<String> checks = new ArrayList<>(rollups.keySet());
+        List<List<WindowSummary>> summaries = new ArrayList<>(checks.size());
+        for (String check : checks) {
+            CheckRollup rollup = rollups.get(check);
+            summaries.add(rollup != null ? rollup.summarize(now) : List.of());
+        }
+        
+        out.append("# HELP kuberhealthy_check_slo_runs Health check runs in the SLO window\n");
+        out.append("# TYPE kuberhealthy_check_slo_runs gauge\n");
+        for (int i = 0; i < checks.size(); i++) {
+            String check = MetricsRegistry.escapeLabelValue(checks.get(i));
+            for (WindowSummary summary : summaries.get(i)) {
+                out.append("kuberhealthy_check_slo_runs{check=\"").append(check)
+                   .append("\",window=\"").append(summary.getWindow()).append("\"} ")
+                   .append(summary.getRuns()).append("\n");
+            }
+        }
+        
+        out.append("# HELP kuberhealthy_check_slo_success_ratio Fraction of successful runs in the SLO window\n");
+        out.append("# TYPE kuberhealthy_check_slo_success_ratio gauge\n");
+        for (int i = 0; i < checks.size(); i++) {
+            String check = MetricsRegistry.escapeLabelValue(checks.get(i));
+            for (WindowSummary summary : summaries.get(i)) {
+                if (summary.getRuns() == 0) {
+                    continue;
+                }
+                out.append("kuberhealthy_check_slo_success_ratio{check=\"").append(check)
+                   .append("\",window=\"").append(summary.getWindow()).append("\"} ")
+                   .append(summary.getSuccessRatio()).append("\n");
+            }
+        }
+        
+        out.append("# HELP kuberhealthy_check_slo_duration_seconds Health check duration quantiles in the SLO window\n");
+        out.append("# TYPE kuberhealthy_check_slo_duration_seconds gauge\n");
+        for (int i = 0; i < checks.size(); i++) {
+            String check = MetricsRegistry.escapeLabelValue(checks.get(i));
+            for (WindowSummary summary : summaries.get(i)) {
+                if (summary.getRuns() == 0) {
+                    continue;
+                }
+                long[] quantiles = {summary.getP50Millis(), summary.getP95Millis(), summary.getP99Millis()};
+                for (int q = 0; q < QUANTILES.length; q++) {
+                    out.append("kuberhealthy_check_slo_duration_seconds{check=\"").append(check)
+                       .append("\",window=\"").append(summary.getWindow())
+                       .append("\",quantile=\"").append(QUANTILES[q]).append("\"} ")
+                       .append(quantiles[q] / 1000.0).append("\n");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Point-in-time view of one SLO window for a check
+     */
+    public static class WindowSummary {
+        private final String window;
+        private final long runs;
+        private final long successes;
+        private final long p50Millis;
+        private final long p95Millis;
+        private final long p99Millis;
+        
+        WindowSummary(String window, long runs, long successes, long p50Millis, long p95Millis, long p99Millis) {
+            this.window = window;
+            this.runs = runs;
+            this.successes = successes;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+        }
+        
+        public String getWindow() {
+            return window;
+        }
+        
+        public long getRuns() {
+            return runs;
+        }
+        
+        public long getSuccesses() {
+            return successes;
+        }
+        
+        /**
+         * Success ratio, or 1.0 when there were no runs in the window
+         */
+        public double getSuccessRatio() {
+            return runs > 0 ? (double) successes / runs : 1.0;
+        }
+        
+        public long getP50Millis() {
+            return p50Millis;
+        }
+        
+        public long getP95Millis() {
+            return p95Millis;
+        }
+        
+        public long getP99Millis() {
+            return p99Millis;
+        }
+    }
+    
+    /**
+     * All window rings for one check
+     */
+    private static class CheckRollup {
+        private final Ring[] rings;
+        
+        CheckRollup() {
+            this.rings = new Ring[WINDOWS.length];
+            for (int i = 0; i < rings.length; i++) {
+                rings[i] = new Ring(WINDOWS[i]);
+            }
+        }
+        
+        synchronized void record(long timestampMillis, boolean ok, long durationMillis) {
+            int bin = bin(durationMillis);
+            for (Ring ring : rings) {
+                ring.record(timestampMillis, ok, bin);
+            }
+        }
+        
+        synchronized List<WindowSummary> summarize(long nowMillis) {
+            List<WindowSummary> summaries = new ArrayList<>(rings.length);
+            for (Ring ring : rings) {
+                summaries.add(ring.summarize(nowMillis));
+            }
+            return summaries;
+        }
+    }
+    
+    /**
+     * Ring of buckets for one window; callers synchronize on the owning rollup
+     */
+    private static class Ring {
+        private final Window window;
+        private final long[] epochs;
+        private final int[] runs;
+        private final int[] successes;
+        // Flattened [bucket][bin] duration histogram counts
+        private final int[] histogram;
+        private final long[] scratch;
+        
+        Ring(Window window) {
+            this.window = window;
+            this.epochs = new long[window.bucketCount];
+            this.runs = new int[window.bucketCount];
+            this.successes = new int[window.bucketCount];
+            this.histogram = new int[window.bucketCount * BINS];
+            this.scratch = new long[BINS];
+            Arrays.fill(epochs, -1);
+        }
+        
+        void record(long timestampMillis, boolean ok, int bin) {
+            long epoch = timestampMillis / window.bucketMillis;
+            int slot = (int) (epoch % window.bucketCount);
+            if (epochs[slot] != epoch) {
+                if (epochs[slot] > epoch) {
+                    // Older than anything the ring still holds
+                    return;
+                }
+                epochs[slot] = epoch;
+                runs[slot] = 0;
+                successes[slot] = 0;
+                Arrays.fill(histogram, slot * BINS, (slot + 1) * BINS, 0);
+            }
+            runs[slot]++;
+            if (ok) {
+                successes[slot]++;
+            }
+            histogram[slot * BINS + bin]++;
+        }
+        
+        WindowSummary summarize(long nowMillis) {
+            long currentEpoch = nowMillis / window.bucketMillis;
+            long oldestEpoch = currentEpoch - window.bucketCount + 1;
+            long totalRuns = 0;
+            long totalSuccesses = 0;
+            Arrays.fill(scratch, 0);
+            for (int slot = 0; slot < epochs.length; slot++) {
+                if (epochs[slot] < oldestEpoch || epochs[slot] > currentEpoch) {
+                    continue;
+                }
+                totalRuns += runs[slot];
+                totalSuccesses += successes[slot];
+                int base = slot * BINS;
+                for (int bin = 0; bin < BINS; bin++) {
+                    scratch[bin] += histogram[base + bin];
+                }
+            }
+            return new WindowSummary(window.label, totalRuns, totalSuccesses,
+                quantile(scratch, totalRuns, 0.5),
+                quantile(scratch, totalRuns, 0.95),
+                quantile(scratch, totalRuns, 0.99));
+        }
+    }
+    
+    private static int bin(long millis) {
+        int low = 0;
+        int high = BOUNDS_MILLIS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (millis <= BOUNDS_MILLIS[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Estimate a quantile by linear interpolation within the histogram bin that
+     * holds it, the same way Prometheus' histogram_quantile does
+     */
+    private static long quantile(long[] bins, long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        double rank = q * total;
+        long cumulative = 0;
+        for (int bin = 0; bin < bins.length; bin++) {
+            long count = bins[bin];
+            if (count > 0 && cumulative + count >= rank) {
+                if (bin == BOUNDS_MILLIS.length) {
+                    // Above the highest bound; report the bound
+                    return BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1];
+                }
+                long lower = bin == 0 ? 0 : BOUNDS_MILLIS[bin - 1];
+                long upper = BOUNDS_MILLIS[bin];
+                return lower + Math.round((upper - lower) * ((rank - cumulative) / count));
+            }
+            cumulative += count;
+        }
+        return BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1];
+    }
+}
@@ -0,0 +1,106 @@
+package com.kuberhealthy.metrics;
+
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-check status gauges, updated incrementally from controller events
+ */
+public class CheckStatusMetrics implements HealthCheckListener, MetricsCollector {
+    
+    private final Map<String, CheckGauges> gauges;
+    private final AtomicLong version;
+    
+    public CheckStatusMetrics() {
+        this.gauges = new ConcurrentSkipListMap<>();
+        this.version = new AtomicLong();
+    }
+    
+    @Override
+    public void onCheckRegistered(HealthCheck healthCheck) {
+        update(healthCheck);
+    }
+    
+    @Override
+    public void onCheckUnregistered(String checkName) {
+        if (gauges.remove(checkName) != null) {
+            version.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void onStatusChanged(HealthCheck healthCheck) {
+        update(healthCheck);
+    }
+    
+    @Override
+    public long version() {
+        return version.get();
+    }
+    
+    @Override
+    public void collect(StringBuilder out) {
+        out.append("# HELP kuberhealthy_check_total Total number of health checks\n");
+        out.append("# TYPE kuberhealthy_check_total gauge\n");
+        out.append("kuberhealthy_check_total ").append(gauges.size()).append("\n");
+        
+        out.append("# HELP kuberhealthy_check_ok Health check OK status (1=ok, 0=failed)\n");
+        out.append("# TYPE kuberhealthy_check_ok gauge\n");
+        for (Map.Entry<String, CheckGauges> entry : gauges.entrySet()) {
+            out.append("kuberhealthy_check_ok{check=\"")
+               .append(MetricsRegistry.escapeLabelValue(entry.getKey())).append("\"} ")
+               .append(entry.getValue().ok ? 1 : 0).append("\n");
+        }
+        
+        out.append("# HELP kuberhealthy_check_failures Consecutive failures for health check\n");
+        out.append("# TYPE kuberhealthy_check_failures gauge\n");
+        for (Map.Entry<String, CheckGauges> entry : gauges.entrySet()) {
+            out.append("kuberhealthy_check_failures{check=\"")
+               .append(MetricsRegistry.escapeLabelValue(entry.getKey())).append("\"} ")
+               .append(entry.getValue().consecutiveFailures).append("\n");
+        }
+    }
+    
+    private void update(HealthCheck healthCheck) {
+        HealthCheckStatus status = healthCheck.getStatus();
+        CheckGauges current = new CheckGauges(status.isOk(), status.getConsecutiveFailures());
+        CheckGauges previous = gauges.put(healthCheck.getName(), current);
+        // Only invalidate the cached exposition when the rendered values moved
+        if (!current.equals(previous)) {
+            version.incrementAndGet();
+        }
+    }
+    
+    private static final class CheckGauges {
+        private final boolean ok;
+        private final int consecutiveFailures;
+        
+        CheckGauges(boolean ok, int consecutiveFailures) {
+            this.ok = ok;
+            this.consecutiveFailures = consecutiveFailures;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CheckGauges)) {
+                return false;
+            }
+            CheckGauges other = (CheckGauges) o;
+            return ok == other.ok && consecutiveFailures == other.consecutiveFailures;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(ok, consecutiveFailures);
+        }
+    }
+}
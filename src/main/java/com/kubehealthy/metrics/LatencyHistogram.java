@@ -0,0 +1,96 @@
+package com.kuberhealthy.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram in Prometheus layout.
+ *
+ * Recording is lock-free and allocation-free: a bucket lookup over a small
+ * array plus two striped counter increments, so concurrent writers on the hot
+ * path don't contend on a shared cache line.
+ */
+public class LatencyHistogram {
+    
+    /**
+     * Default bucket upper bounds in milliseconds, from 5ms up to 10 minutes
+     */
+    public static final long[] DEFAULT_BOUNDS_MILLIS = {
+        5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000,
+        10_000, 30_000, 60_000, 120_000, 300_000, 600_000
+    };
+    
+    private final long[] boundsMillis;
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder sumMillis;
+    
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS_MILLIS);
+    }
+    
+    public LatencyHistogram(long[] boundsMillis) {
+        this.boundsMillis = boundsMillis.clone();
+        // One extra bucket for observations above the last bound (+Inf)
+        this.buckets = new LongAdder[boundsMillis.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.sumMillis = new LongAdder();
+    }
+    
+    /**
+     * Record one observation
+     */
+    public void record(long millis) {
+        buckets[bucketIndex(millis)].increment();
+        sumMillis.add(millis);
+        count.increment();
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public long getSumMillis() {
+        return sumMillis.sum();
+    }
+    
+    /**
+     * Append this histogram as Prometheus sample lines. The labels string is
+     * inserted before the le label and must be empty or end with a comma.
+     */
+    public void collect(StringBuilder out, String name, String labels) {
+        // Snapshot buckets first so count is never below the +Inf bucket
+        long cumulative = 0;
+        for (int i = 0; i < boundsMillis.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{").append(labels)
+               .append("le=\"").append(boundsMillis[i] / 1000.0).append("\"} ")
+               .append(cumulative).append("\n");
+        }
+        cumulative += buckets[boundsMillis.length].sum();
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ")
+           .append(cumulative).append("\n");
+        
+        String sampleLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.append(name).append("_sum").append(sampleLabels).append(" ")
+           .append(sumMillis.sum() / 1000.0).append("\n");
+        out.append(name).append("_count").append(sampleLabels).append(" ")
+           .append(cumulative).append("\n");
+    }
+    
+    private int bucketIndex(long millis) {
+        int low = 0;
+        int high = boundsMillis.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (millis <= boundsMillis[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,18 @@
+package com.kuberhealthy.metrics;
+
+/**
+ * A section of the Prometheus exposition owned by one component
+ */
+public interface MetricsCollector {
+    
+    /**
+     * A value that changes whenever the rendered output would change. The registry
+     * reuses the previously rendered bytes while this stays the same.
+     */
+    long version();
+    
+    /**
+     * Append this collector's metrics in Prometheus text format
+     */
+    void collect(StringBuilder out);
+}
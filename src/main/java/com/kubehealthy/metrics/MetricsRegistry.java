@@ -0,0 +1,139 @@
+package com.kuberhealthy.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the metrics collectors and a cached, pre-encoded copy of each one's output.
+ *
+ * A collector is only re-rendered when its version changes, so a scrape of a
+ * quiet system hands out read-only views of the same buffers. Each section is
+ * gzipped independently; concatenated gzip members form a valid gzip stream, so
+ * compressed sections can be cached the same way.
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final List<Section> sections;
+
+    public MetricsRegistry() {
+        this.sections = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Add a collector; sections are emitted in registration order
+     */
+    public void register(MetricsCollector collector) {
+        sections.add(new Section(collector));
+    }
+
+    /**
+     * Get the current exposition as a list of buffers to write in order
+     *
+     * @param gzip Whether to return gzip-encoded sections
+     */
+    public ByteBuffer[] scrape(boolean gzip) {
+        Section[] current = sections.toArray(new Section[0]);
+        ByteBuffer[] buffers = new ByteBuffer[current.length];
+        for (int i = 0; i < current.length; i++) {
+            buffers[i] = current[i].current(gzip);
+        }
+        return buffers;
+    }
+
+    /**
+     * Render the full exposition as a string, bypassing the cache
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        for (Section section : sections) {
+            section.collector.collect(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Escape a Prometheus label value
+     */
+    public static String escapeLabelValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class Section {
+        private final MetricsCollector collector;
+        private volatile Rendered rendered;
+
+        Section(MetricsCollector collector) {
+            this.collector = collector;
+        }
+
+        ByteBuffer current(boolean gzip) {
+            long version = collector.version();
+            Rendered snapshot = rendered;
+            if (snapshot == null || snapshot.version != version) {
+                snapshot = render(version);
+            }
+            return (gzip ? snapshot.gzipped() : snapshot.plain).duplicate();
+        }
+
+        private synchronized Rendered render(long version) {
+            Rendered snapshot = rendered;
+            if (snapshot != null && snapshot.version == version) {
+                return snapshot;
+            }
+            // Version is read before collecting, so a change during collection
+            // forces another render on the next scrape rather than being lost
+            StringBuilder out = new StringBuilder();
+            collector.collect(out);
+            byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+            snapshot = new Rendered(version, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+            rendered = snapshot;
+            return snapshot;
+        }
+    }
+
+    private static class Rendered {
+        private final long version;
+        private final ByteBuffer plain;
+        private volatile ByteBuffer gzipped;
+
+        Rendered(long version, ByteBuffer plain) {
+            this.version = version;
+            this.plain = plain;
+        }
+
+        ByteBuffer gzipped() {
+            ByteBuffer result = gzipped;
+            if (result == null) {
+                result = gzip(plain.duplicate());
+                gzipped = result;
+            }
+            return result;
+        }
+
+        private static ByteBuffer gzip(ByteBuffer source) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, source.remaining() / 4));
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                byte[] chunk = new byte[source.remaining()];
+                source.get(chunk);
+                out.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+        }
+    }
+}
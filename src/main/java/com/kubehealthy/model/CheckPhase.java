@@ -0,0 +1,41 @@
+package com.kuberhealthy.model;
+
+/**
+ * Phases of a pod-based check run, used for latency breakdowns
+ */
+public enum CheckPhase {
+    
+    /** Pod create API call */
+    POD_CREATE("pod_create"),
+    
+    /** Pod created until bound to a node */
+    SCHEDULING("scheduling"),
+    
+    /** Pod scheduled until the container started (image pull, container create) */
+    CONTAINER_START("container_start"),
+    
+    /** Container started until the pod reached a terminal phase */
+    RUN("run"),
+    
+    /** Reading the pod logs of a failed check */
+    LOG_FETCH("log_fetch"),
+    
+    /**
+     * Pod delete API call. Never recorded or exported now that check pods are deleted
+     * in background batches; kept because result log records store phases by ordinal.
+     */
+    POD_DELETE("pod_delete");
+    
+    private final String label;
+    
+    CheckPhase(String label) {
+        this.label = label;
+    }
+    
+    /**
+     * Name used for the phase label in metrics
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -1,11 +1,16 @@
 package com.kuberhealthy.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -28,6 +33,10 @@ public class CheckResult {
     @JsonProperty("runDuration")
     private long runDurationMillis;
     
+    // Indexed by CheckPhase ordinal, -1 where the phase was not measured
+    @JsonIgnore
+    private final long[] phaseDurationsMillis;
+    
     @JsonProperty("timestamp")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
     private Instant timestamp;
@@ -36,6 +45,8 @@ public class CheckResult {
         this.uuid = UUID.randomUUID().toString();
         this.errors = new ArrayList<>();
         this.timestamp = Instant.now();
+        this.phaseDurationsMillis = new long[CheckPhase.values().length];
+        Arrays.fill(this.phaseDurationsMillis, -1);
     }
 
     public CheckResult(String checkName, boolean ok) {
@@ -88,6 +99,44 @@ public class CheckResult {
         this.runDurationMillis = runDurationMillis;
     }
 
+    /**
+     * Get the measured duration of a phase, or -1 if it was not measured
+     */
+    public long getPhaseDurationMillis(CheckPhase phase) {
+        return phaseDurationsMillis[phase.ordinal()];
+    }
+
+    public void setPhaseDurationMillis(CheckPhase phase, long millis) {
+        phaseDurationsMillis[phase.ordinal()] = Math.max(0, millis);
+    }
+
+    @JsonProperty("phaseDurations")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, Long> getPhaseDurations() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (CheckPhase phase : CheckPhase.values()) {
+            long millis = phaseDurationsMillis[phase.ordinal()];
+            if (millis >= 0) {
+                durations.put(phase.getLabel(), millis);
+            }
+        }
+        return durations;
+    }
+
+    @JsonProperty("phaseDurations")
+    public void setPhaseDurations(Map<String, Long> durations) {
+        Arrays.fill(phaseDurationsMillis, -1);
+        if (durations == null) {
+            return;
+        }
+        for (CheckPhase phase : CheckPhase.values()) {
+            Long millis = durations.get(phase.getLabel());
+            if (millis != null) {
+                phaseDurationsMillis[phase.ordinal()] = millis;
+            }
+        }
+    }
+
     public Instant getTimestamp() {
         return timestamp;
     }
@@ -7,6 +7,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a health check configuration and state
@@ -14,12 +17,31 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class HealthCheck {
     
+    /**
+     * Runs {@link #getPodSpec()} in a pod
+     */
+    public static final String TYPE_POD = "pod";
+    
+    /**
+     * Runs {@link #getProbe()} in-process
+     */
+    public static final String TYPE_PROBE = "probe";
+    
+    /**
+     * Timeout for checks that don't set one
+     */
+    public static final long DEFAULT_TIMEOUT_SECONDS = 60;
+    
     @JsonProperty("name")
     private String name;
     
     @JsonProperty("namespace")
     private String namespace;
     
+    // Selects the executor; unset means probe if a probe is given, otherwise pod
+    @JsonProperty("type")
+    private String type;
+    
     @JsonProperty("runInterval")
     private long runIntervalSeconds;
     
@@ -29,11 +51,14 @@ public class HealthCheck {
     @JsonProperty("podSpec")
     private PodSpec podSpec;
     
-    @JsonProperty("status")
-    private HealthCheckStatus status;
+    @JsonProperty("probe")
+    private ProbeSpec probe;
+    
+    // Swapped atomically as the check runs; see getStatus()/updateStatus()
+    private final AtomicReference<HealthCheckStatus> status;
     
     public HealthCheck() {
-        this.status = new HealthCheckStatus();
+        this.status = new AtomicReference<>(HealthCheckStatus.initial());
     }
     
     public HealthCheck(String name, String namespace, long runIntervalSeconds, long timeoutSeconds) {
@@ -41,7 +66,7 @@ public class HealthCheck {
         this.namespace = namespace;
         this.runIntervalSeconds = runIntervalSeconds;
         this.timeoutSeconds = timeoutSeconds;
-        this.status = new HealthCheckStatus();
+        this.status = new AtomicReference<>(HealthCheckStatus.initial());
     }
 
     // Getters and Setters
@@ -61,6 +86,20 @@ public class HealthCheck {
         this.namespace = namespace;
     }
 
+    /**
+     * The executor type this check is routed to
+     */
+    public String getType() {
+        if (type != null && !type.isEmpty()) {
+            return type;
+        }
+        return probe != null ? TYPE_PROBE : TYPE_POD;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
     public long getRunIntervalSeconds() {
         return runIntervalSeconds;
     }
@@ -85,12 +124,57 @@ public class HealthCheck {
         this.podSpec = podSpec;
     }
 
+    public ProbeSpec getProbe() {
+        return probe;
+    }
+
+    public void setProbe(ProbeSpec probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * Get the current status snapshot
+     */
+    @JsonProperty("status")
     public HealthCheckStatus getStatus() {
-        return status;
+        return status.get();
     }
 
+    @JsonProperty("status")
     public void setStatus(HealthCheckStatus status) {
-        this.status = status;
+        this.status.set(status != null ? status : HealthCheckStatus.initial());
+    }
+
+    /**
+     * Atomically replace the status with the result of applying the given
+     * function to the current one. The function may be called more than once
+     * under contention, so it must be free of side effects.
+     * 
+     * @return The new status
+     */
+    public HealthCheckStatus updateStatus(UnaryOperator<HealthCheckStatus> update) {
+        return status.updateAndGet(update);
+    }
+
+    /**
+     * Replace the status only if it is still the expected snapshot
+     */
+    public boolean compareAndSetStatus(HealthCheckStatus expected, HealthCheckStatus updated) {
+        return status.compareAndSet(expected, updated);
+    }
+
+    /**
+     * Whether another check has the same configuration as this one, ignoring status
+     */
+    public boolean hasSameDefinition(HealthCheck other) {
+        return other != null
+            && Objects.equals(name, other.name)
+            && Objects.equals(namespace, other.namespace)
+            && Objects.equals(getType(), other.getType())
+            && runIntervalSeconds == other.runIntervalSeconds
+            && timeoutSeconds == other.timeoutSeconds
+            && Objects.equals(podSpec, other.podSpec)
+            && Objects.equals(probe, other.probe);
     }
 
     @Override
@@ -98,9 +182,10 @@ public class HealthCheck {
         return "HealthCheck{" +
                 "name='" + name + '\'' +
                 ", namespace='" + namespace + '\'' +
+                ", type='" + getType() + '\'' +
                 ", runInterval=" + runIntervalSeconds +
                 ", timeout=" + timeoutSeconds +
-                ", status=" + status +
+                ", status=" + status.get() +
                 '}';
     }
 
@@ -116,6 +201,14 @@ public class HealthCheck {
         
         @JsonProperty("args")
         private List<String> args;
+        
+        // Always, IfNotPresent or Never; unset leaves the Kubernetes default
+        @JsonProperty("imagePullPolicy")
+        private String imagePullPolicy;
+        
+        // Run the command by exec in an idle pool pod instead of a new pod
+        @JsonProperty("warmPool")
+        private boolean warmPool;
 
         public PodSpec() {
             this.command = new ArrayList<>();
@@ -145,5 +238,183 @@ public class HealthCheck {
         public void setArgs(List<String> args) {
             this.args = args;
         }
+
+        public String getImagePullPolicy() {
+            return imagePullPolicy;
+        }
+
+        public void setImagePullPolicy(String imagePullPolicy) {
+            this.imagePullPolicy = imagePullPolicy;
+        }
+
+        public boolean isWarmPool() {
+            return warmPool;
+        }
+
+        public void setWarmPool(boolean warmPool) {
+            this.warmPool = warmPool;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PodSpec)) {
+                return false;
+            }
+            PodSpec other = (PodSpec) o;
+            return Objects.equals(image, other.image)
+                && Objects.equals(command, other.command)
+                && Objects.equals(args, other.args)
+                && Objects.equals(imagePullPolicy, other.imagePullPolicy)
+                && warmPool == other.warmPool;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(image, command, args, imagePullPolicy, warmPool);
+        }
+    }
+
+    /**
+     * In-process probe run instead of a check pod
+     */
+    public static class ProbeSpec {
+        // http, tcp, dns or tls
+        @JsonProperty("type")
+        private String type;
+        
+        // http: URL to GET
+        @JsonProperty("url")
+        private String url;
+        
+        // http: required status code; unset accepts any 2xx
+        @JsonProperty("expectedStatus")
+        private int expectedStatus;
+        
+        // http: text the response body must contain
+        @JsonProperty("bodyContains")
+        private String bodyContains;
+        
+        // tcp, tls: endpoint to connect to
+        @JsonProperty("host")
+        private String host;
+        
+        @JsonProperty("port")
+        private int port;
+        
+        // dns: names that must all resolve
+        @JsonProperty("names")
+        private List<String> names;
+        
+        // dns: server to query as host[:port]; unset uses the pod's resolv.conf
+        @JsonProperty("server")
+        private String server;
+        
+        // tls: days the certificate must remain valid
+        @JsonProperty("minValidDays")
+        private int minValidDays;
+
+        public ProbeSpec() {
+            this.names = new ArrayList<>();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public int getExpectedStatus() {
+            return expectedStatus;
+        }
+
+        public void setExpectedStatus(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+
+        public String getBodyContains() {
+            return bodyContains;
+        }
+
+        public void setBodyContains(String bodyContains) {
+            this.bodyContains = bodyContains;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+
+        public String getServer() {
+            return server;
+        }
+
+        public void setServer(String server) {
+            this.server = server;
+        }
+
+        public int getMinValidDays() {
+            return minValidDays;
+        }
+
+        public void setMinValidDays(int minValidDays) {
+            this.minValidDays = minValidDays;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProbeSpec)) {
+                return false;
+            }
+            ProbeSpec other = (ProbeSpec) o;
+            return Objects.equals(type, other.type)
+                && Objects.equals(url, other.url)
+                && expectedStatus == other.expectedStatus
+                && Objects.equals(bodyContains, other.bodyContains)
+                && Objects.equals(host, other.host)
+                && port == other.port
+                && Objects.equals(names, other.names)
+                && Objects.equals(server, other.server)
+                && minValidDays == other.minValidDays;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, url, expectedStatus, bodyContains, host, port, names, server, minValidDays);
+        }
     }
 }
\ No newline at end of file
@@ -1,105 +1,177 @@
 package com.kuberhealthy.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Represents the status of a health check
+ * Represents the status of a health check.
+ * 
+ * Instances are immutable snapshots: a status change produces a new instance
+ * that is swapped into the owning {@link HealthCheck} atomically, so readers
+ * such as the HTTP endpoints always see a consistent status without locking.
  */
-public class HealthCheckStatus {
+public final class HealthCheckStatus {
+    
+    private static final HealthCheckStatus INITIAL =
+        new HealthCheckStatus(CheckState.NEW, false, List.of(), null, null, 0, null);
     
     @JsonProperty("state")
-    private CheckState state;
+    private final CheckState state;
     
     @JsonProperty("ok")
-    private boolean ok;
+    private final boolean ok;
     
     @JsonProperty("errors")
-    private List<String> errors;
+    private final List<String> errors;
     
     @JsonProperty("lastRun")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
-    private Instant lastRun;
+    private final Instant lastRun;
     
     @JsonProperty("lastSuccess")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
-    private Instant lastSuccess;
+    private final Instant lastSuccess;
     
     @JsonProperty("consecutiveFailures")
-    private int consecutiveFailures;
+    private final int consecutiveFailures;
     
     @JsonProperty("currentCheckUUID")
-    private String currentCheckUUID;
+    private final String currentCheckUUID;
+
+    @JsonCreator
+    public HealthCheckStatus(@JsonProperty("state") CheckState state,
+                             @JsonProperty("ok") boolean ok,
+                             @JsonProperty("errors") List<String> errors,
+                             @JsonProperty("lastRun") Instant lastRun,
+                             @JsonProperty("lastSuccess") Instant lastSuccess,
+                             @JsonProperty("consecutiveFailures") int consecutiveFailures,
+                             @JsonProperty("currentCheckUUID") String currentCheckUUID) {
+        this.state = state != null ? state : CheckState.NEW;
+        this.ok = ok;
+        this.errors = copyOf(errors);
+        this.lastRun = lastRun;
+        this.lastSuccess = lastSuccess;
+        this.consecutiveFailures = consecutiveFailures;
+        this.currentCheckUUID = currentCheckUUID;
+    }
 
-    public HealthCheckStatus() {
-        this.state = CheckState.NEW;
-        this.ok = false;
-        this.errors = new ArrayList<>();
-        this.consecutiveFailures = 0;
+    /**
+     * Status of a check that has never run
+     */
+    public static HealthCheckStatus initial() {
+        return INITIAL;
     }
 
-    public CheckState getState() {
-        return state;
+    /**
+     * This status with the check marked as running from the given time
+     */
+    public HealthCheckStatus running(Instant startedAt) {
+        return new HealthCheckStatus(CheckState.RUNNING, ok, errors, startedAt,
+            lastSuccess, consecutiveFailures, currentCheckUUID);
     }
 
-    public void setState(CheckState state) {
-        this.state = state;
+    /**
+     * The status that follows from a completed check result
+     */
+    public HealthCheckStatus withResult(CheckResult result, Instant completedAt) {
+        if (result.isOk()) {
+            return new HealthCheckStatus(CheckState.COMPLETED, true, List.of(), lastRun,
+                completedAt, 0, result.getUuid());
+        }
+        return new HealthCheckStatus(CheckState.FAILED, false, reuseErrors(result.getErrors()), lastRun,
+            lastSuccess, consecutiveFailures + 1, result.getUuid());
     }
 
-    public boolean isOk() {
-        return ok;
+    /**
+     * The status that follows from the check failing to execute at all
+     */
+    public HealthCheckStatus withExecutionError(String error) {
+        List<String> newErrors = new ArrayList<>(errors.size() + 1);
+        newErrors.addAll(errors);
+        newErrors.add(error);
+        return new HealthCheckStatus(CheckState.FAILED, false, newErrors, lastRun,
+            lastSuccess, consecutiveFailures + 1, currentCheckUUID);
     }
 
-    public void setOk(boolean ok) {
-        this.ok = ok;
+    /**
+     * This status without the run in progress, if any: what the last completed
+     * run left behind. Used when a check's definition is replaced mid-run, since
+     * the in-flight result is only applied to the old instance.
+     */
+    public HealthCheckStatus lastCompleted() {
+        if (state != CheckState.RUNNING) {
+            return this;
+        }
+        CheckState settled;
+        if (ok) {
+            settled = CheckState.COMPLETED;
+        } else if (consecutiveFailures > 0 || !errors.isEmpty()) {
+            settled = CheckState.FAILED;
+        } else {
+            settled = CheckState.NEW;
+        }
+        return new HealthCheckStatus(settled, ok, errors, lastRun, lastSuccess, consecutiveFailures, currentCheckUUID);
     }
 
-    public List<String> getErrors() {
-        return errors;
+    public CheckState getState() {
+        return state;
     }
 
-    public void setErrors(List<String> errors) {
-        this.errors = errors;
+    public boolean isOk() {
+        return ok;
     }
 
-    public void addError(String error) {
-        this.errors.add(error);
+    /**
+     * Errors from the last run; the list is unmodifiable
+     */
+    public List<String> getErrors() {
+        return errors;
     }
 
     public Instant getLastRun() {
         return lastRun;
     }
 
-    public void setLastRun(Instant lastRun) {
-        this.lastRun = lastRun;
-    }
-
     public Instant getLastSuccess() {
         return lastSuccess;
     }
 
-    public void setLastSuccess(Instant lastSuccess) {
-        this.lastSuccess = lastSuccess;
-    }
-
     public int getConsecutiveFailures() {
         return consecutiveFailures;
     }
 
-    public void setConsecutiveFailures(int consecutiveFailures) {
-        this.consecutiveFailures = consecutiveFailures;
-    }
-
     public String getCurrentCheckUUID() {
         return currentCheckUUID;
     }
 
-    public void setCurrentCheckUUID(String currentCheckUUID) {
-        this.currentCheckUUID = currentCheckUUID;
+    /**
+     * Swap each new error for the equal string this status already holds, so a
+     * check failing the same way run after run keeps one copy of each message
+     */
+    private List<String> reuseErrors(List<String> newErrors) {
+        if (newErrors == null || errors.isEmpty()) {
+            return newErrors;
+        }
+        List<String> reused = new ArrayList<>(newErrors.size());
+        for (String error : newErrors) {
+            int existing = errors.indexOf(error);
+            reused.add(existing >= 0 ? errors.get(existing) : error);
+        }
+        return reused;
+    }
+
+    private static List<String> copyOf(List<String> errors) {
+        if (errors == null || errors.isEmpty()) {
+            return List.of();
+        }
+        // Error messages may be null, which List.copyOf rejects
+        return Collections.unmodifiableList(new ArrayList<>(errors));
     }
 
     @Override
@@ -123,4 +195,4 @@ public class HealthCheckStatus {
         FAILED,
         TIMEOUT
     }
-}
\ No newline at end of file
+}
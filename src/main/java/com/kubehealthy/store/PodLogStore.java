@@ -0,0 +1,129 @@
+package com.kuberhealthy.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Full logs of failed check pods, one file per run, so only a short tail needs
+ * to be kept with the check's status. Logs longer than {@code maxLogBytes}
+ * are stored truncated to their first {@code maxLogBytes}.
+ *
+ * Files are named {@code <check>_<uuid>.log}; once more than {@code maxFiles}
+ * exist the oldest are deleted, so disk use is bounded by
+ * {@code maxFiles * maxLogBytes}.
+ */
+public class PodLogStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PodLogStore.class);
+    private static final String SUFFIX = ".log";
+    
+    private final Path directory;
+    private final int maxFiles;
+    private final int maxLogBytes;
+    private final Deque<Path> files;
+    
+    /**
+     * @param directory Directory holding the log files
+     * @param maxFiles Number of logs to keep before deleting the oldest
+     * @param maxLogBytes Maximum bytes stored per log, counted from its start
+     */
+    public PodLogStore(Path directory, int maxFiles, int maxLogBytes) throws IOException {
+        this.directory = directory;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.maxLogBytes = maxLogBytes;
+        this.files = new ArrayDeque<>();
+        
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        existing.sort(Comparator.comparingLong(PodLogStore::lastModified));
+        files.addAll(existing);
+        prune();
+    }
+    
+    public int getMaxLogBytes() {
+        return maxLogBytes;
+    }
+    
+    /**
+     * Open the log file for a run. The file counts toward the retention limit
+     * once the stream is closed.
+     */
+    public OutputStream create(String checkName, String checkUUID) throws IOException {
+        Path path = resolve(checkName, checkUUID);
+        if (path == null) {
+            throw new IOException("Invalid check name or UUID: " + checkName + " " + checkUUID);
+        }
+        return new FilterOutputStream(Files.newOutputStream(path)) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                super.close();
+                synchronized (PodLogStore.this) {
+                    files.addLast(path);
+                    prune();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Path of a stored log, or null if there is none
+     */
+    public Path find(String checkName, String checkUUID) {
+        Path path = resolve(checkName, checkUUID);
+        return path != null && Files.isRegularFile(path) ? path : null;
+    }
+    
+    private Path resolve(String checkName, String checkUUID) {
+        // Both parts come from URLs; keep them from escaping the directory
+        if (checkName == null || checkName.isEmpty() || checkName.contains("/")
+                || checkName.contains("\\") || checkName.startsWith(".")) {
+            return null;
+        }
+        try {
+            UUID.fromString(checkUUID);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+        return directory.resolve(checkName + "_" + checkUUID + SUFFIX);
+    }
+    
+    private synchronized void prune() {
+        while (files.size() > maxFiles) {
+            Path oldest = files.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException e) {
+                logger.warn("Failed to delete pod log {}: {}", oldest, e.getMessage());
+            }
+        }
+    }
+    
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.kuberhealthy.store;
+
+import com.kuberhealthy.controller.HealthCheckListener;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheck;
+import com.kuberhealthy.model.HealthCheckStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segment-rotated log of check results on memory-mapped files.
+ *
+ * Results are appended to fixed-size segments; when a segment fills, a new one
+ * is started and the oldest is deleted once more than {@code maxSegments} exist,
+ * so disk use is bounded. On startup the segments are scanned once to rebuild a
+ * per-check index of recent record locations, which lets the controller restore
+ * each check's last status and serves history queries without scanning the log.
+ */
+public class ResultLog implements HealthCheckListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultLog.class);
+    private static final int SEGMENT_MAGIC = 0x4B48524C; // "KHRL"
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Number of record locations remembered per check for history queries
+     */
+    public static final int INDEX_ENTRIES_PER_CHECK = 1024;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final TreeMap<Long, Segment> segments;
+    private final Map<String, LocationRing> index;
+    private Segment active;
+
+    /**
+     * Open (or create) a result log in the given directory
+     *
+     * @param directory Directory holding the segment files
+     * @param segmentBytes Size of each segment file
+     * @param maxSegments Number of segments to keep before deleting the oldest
+     */
+    public ResultLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(MIN_SEGMENT_BYTES, segmentBytes);
+        this.maxSegments = Math.max(2, maxSegments);
+        this.segments = new TreeMap<>();
+        this.index = new HashMap<>();
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append a result together with the status it produced
+     */
+    public void append(CheckResult result, HealthCheckStatus status) {
+        long lastSuccess = status.getLastSuccess() != null ? status.getLastSuccess().toEpochMilli() : 0;
+        byte[] payload = ResultRecordCodec.encode(result, status.getConsecutiveFailures(), lastSuccess);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (this) {
+            try {
+                if (active == null || active.remaining() < RECORD_HEADER_BYTES + payload.length) {
+                    roll();
+                }
+                int offset = active.writePosition;
+                ByteBuffer buffer = active.buffer;
+                buffer.putInt(offset + 4, (int) crc.getValue());
+                buffer.put(offset + RECORD_HEADER_BYTES, payload);
+                // Length goes in last: a torn write leaves a zero length, which reads as end of segment
+                buffer.putInt(offset, payload.length);
+                active.writePosition = offset + RECORD_HEADER_BYTES + payload.length;
+
+                index.computeIfAbsent(result.getCheckName(), name -> new LocationRing())
+                    .add(location(active.sequence, offset));
+            } catch (IOException e) {
+                logger.error("Failed to append result for {} to result log", result.getCheckName(), e);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the last known status of a check from its most recent record
+     *
+     * @return The restored status, or null if the log has no results for the check
+     */
+    public HealthCheckStatus getLatestStatus(String checkName) {
+        List<ResultRecordCodec.Record> records = read(checkName, 1);
+        if (records.isEmpty()) {
+            return null;
+        }
+        ResultRecordCodec.Record record = records.get(0);
+        CheckResult result = record.result;
+
+        return new HealthCheckStatus(
+            result.isOk() ? HealthCheckStatus.CheckState.COMPLETED : HealthCheckStatus.CheckState.FAILED,
+            result.isOk(),
+            result.getErrors(),
+            result.getTimestamp(),
+            record.lastSuccessMillis > 0 ? Instant.ofEpochMilli(record.lastSuccessMillis) : null,
+            record.consecutiveFailures,
+            result.getUuid()
+        );
+    }
+
+    /**
+     * Get the most recent results for a check, newest first
+     */
+    public List<CheckResult> getHistory(String checkName, int limit) {
+        List<ResultRecordCodec.Record> records = read(checkName, limit);
+        List<CheckResult> results = new ArrayList<>(records.size());
+        for (ResultRecordCodec.Record record : records) {
+            results.add(record.result);
+        }
+        return results;
+    }
+
+    @Override
+    public void onCheckResult(HealthCheck healthCheck, CheckResult result) {
+        append(result, healthCheck.getStatus());
+    }
+
+    /**
+     * Forget an unregistered check's record locations. Its records stay in the
+     * segments until they rotate out, but are no longer served as history.
+     */
+    @Override
+    public synchronized void onCheckUnregistered(String checkName) {
+        index.remove(checkName);
+    }
+
+    /**
+     * Flush dirty pages of the active segment to disk
+     */
+    public synchronized void flush() {
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    public synchronized void close() {
+        flush();
+        for (Segment segment : segments.values()) {
+            segment.closeChannel();
+        }
+    }
+
+    private List<ResultRecordCodec.Record> read(String checkName, int limit) {
+        long[] locations;
+        Map<Long, Segment> segmentsSnapshot;
+        synchronized (this) {
+            LocationRing ring = index.get(checkName);
+            if (ring == null) {
+                return List.of();
+            }
+            locations = ring.newestFirst(limit);
+            segmentsSnapshot = new HashMap<>(segments);
+        }
+
+        List<ResultRecordCodec.Record> records = new ArrayList<>(locations.length);
+        for (long location : locations) {
+            // Locations in segments that have since been rotated out are skipped
+            Segment segment = segmentsSnapshot.get(segmentOf(location));
+            if (segment == null) {
+                continue;
+            }
+            ByteBuffer record = segment.readRecord(offsetOf(location));
+            if (record != null) {
+                records.add(ResultRecordCodec.decode(record));
+            }
+        }
+        return records;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence;
+            try {
+                sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring unexpected file in result log directory: {}", file);
+                continue;
+            }
+            segments.put(sequence, Segment.open(file, sequence, segmentBytes));
+        }
+
+        int records = 0;
+        for (Segment segment : segments.values()) {
+            records += scan(segment);
+        }
+        if (!segments.isEmpty()) {
+            active = segments.lastEntry().getValue();
+        }
+        trimSegments();
+
+        logger.info("Result log opened at {}: {} segments, {} records, {} checks",
+            directory, segments.size(), records, index.size());
+    }
+
+    /**
+     * Walk a segment's records, indexing them and finding its write position
+     */
+    private int scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        if (buffer.getInt(0) != SEGMENT_MAGIC) {
+            buffer.putInt(0, SEGMENT_MAGIC);
+        }
+
+        int offset = SEGMENT_HEADER_BYTES;
+        int count = 0;
+        while (offset + RECORD_HEADER_BYTES <= segment.capacity) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_BYTES + length > segment.capacity) {
+                break;
+            }
+            ByteBuffer payload = segment.readRecord(offset);
+            if (payload == null) {
+                logger.warn("Corrupt record in result log segment {} at offset {}, truncating",
+                    segment.sequence, offset);
+                buffer.putInt(offset, 0);
+                break;
+            }
+            String checkName = ResultRecordCodec.decodeCheckName(payload);
+            index.computeIfAbsent(checkName, name -> new LocationRing()).add(location(segment.sequence, offset));
+            offset += RECORD_HEADER_BYTES + length;
+            count++;
+        }
+        segment.writePosition = offset;
+        return count;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        long sequence = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        Segment segment = Segment.open(file, sequence, segmentBytes);
+        segment.buffer.putInt(0, SEGMENT_MAGIC);
+        segment.writePosition = SEGMENT_HEADER_BYTES;
+        segments.put(sequence, segment);
+        active = segment;
+        trimSegments();
+    }
+
+    private void trimSegments() {
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            oldest.closeChannel();
+            try {
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete result log segment {}", oldest.file, e);
+            }
+        }
+    }
+
+    private static long location(long segmentSequence, int offset) {
+        return (segmentSequence << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static long segmentOf(long location) {
+        return location >>> 32;
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final long sequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writePosition;
+
+        private Segment(Path file, long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment open(Path file, long sequence, int segmentBytes) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), segmentBytes);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(file, sequence, channel, buffer);
+        }
+
+        int remaining() {
+            return capacity - writePosition;
+        }
+
+        /**
+         * Get a view of a record's payload, or null if its checksum doesn't match
+         */
+        ByteBuffer readRecord(int offset) {
+            int length = buffer.getInt(offset);
+            int expectedCrc = buffer.getInt(offset + 4);
+            ByteBuffer payload = buffer.slice(offset + RECORD_HEADER_BYTES, length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            return (int) crc.getValue() == expectedCrc ? payload : null;
+        }
+
+        void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing result log segment {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Fixed-size ring of packed record locations for one check
+     */
+    private static final class LocationRing {
+        private final long[] locations = new long[INDEX_ENTRIES_PER_CHECK];
+        private int next;
+        private int size;
+
+        void add(long location) {
+            locations[next] = location;
+            next = (next + 1) % locations.length;
+            if (size < locations.length) {
+                size++;
+            }
+        }
+
+        long[] newestFirst(int limit) {
+            int count = Math.min(Math.max(0, limit), size);
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = locations[Math.floorMod(next - 1 - i, locations.length)];
+            }
+            return result;
+        }
+    }
+}
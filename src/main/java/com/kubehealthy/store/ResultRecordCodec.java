@@ -0,0 +1,182 @@
+package com.kuberhealthy.store;
+
+import com.kuberhealthy.model.CheckPhase;
+import com.kuberhealthy.model.CheckResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of a check result plus the status fields needed to
+ * restore a check after a restart.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * byte   format version
+ * long   timestamp (epoch millis)
+ * long   run duration (millis)
+ * byte   ok
+ * int    consecutive failures after this result
+ * long   last success (epoch millis, 0 if never)
+ * long   uuid most significant bits
+ * long   uuid least significant bits
+ * string check name
+ * byte   phase count, then per phase: byte ordinal, long millis
+ * short  error count, then per error: string
+ * </pre>
+ * Strings are an unsigned short byte length followed by UTF-8 bytes.
+ */
+final class ResultRecordCodec {
+
+    static final byte FORMAT_VERSION = 1;
+    static final int MAX_ERRORS = 16;
+    static final int MAX_ERROR_CHARS = 2048;
+    private static final int MAX_NAME_CHARS = 253;
+    private static final CheckPhase[] PHASES = CheckPhase.values();
+
+    private ResultRecordCodec() {
+    }
+
+    /**
+     * A decoded record
+     */
+    static final class Record {
+        final CheckResult result;
+        final int consecutiveFailures;
+        final long lastSuccessMillis;
+
+        Record(CheckResult result, int consecutiveFailures, long lastSuccessMillis) {
+            this.result = result;
+            this.consecutiveFailures = consecutiveFailures;
+            this.lastSuccessMillis = lastSuccessMillis;
+        }
+    }
+
+    static byte[] encode(CheckResult result, int consecutiveFailures, long lastSuccessMillis) {
+        byte[] name = utf8(result.getCheckName(), MAX_NAME_CHARS);
+        List<String> errors = result.getErrors() != null ? result.getErrors() : List.of();
+        int errorCount = Math.min(errors.size(), MAX_ERRORS);
+        byte[][] errorBytes = new byte[errorCount][];
+        int size = 1 + 8 + 8 + 1 + 4 + 8 + 16 + 2 + name.length + 1 + 2;
+        for (int i = 0; i < errorCount; i++) {
+            errorBytes[i] = utf8(errors.get(i), MAX_ERROR_CHARS);
+            size += 2 + errorBytes[i].length;
+        }
+        int phaseCount = 0;
+        for (CheckPhase phase : PHASES) {
+            if (result.getPhaseDurationMillis(phase) >= 0) {
+                phaseCount++;
+            }
+        }
+        size += phaseCount * 9;
+
+        UUID uuid = parseUuid(result.getUuid());
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(result.getTimestamp() != null ? result.getTimestamp().toEpochMilli() : 0);
+        buffer.putLong(result.getRunDurationMillis());
+        buffer.put((byte) (result.isOk() ? 1 : 0));
+        buffer.putInt(consecutiveFailures);
+        buffer.putLong(lastSuccessMillis);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        putString(buffer, name);
+        buffer.put((byte) phaseCount);
+        for (CheckPhase phase : PHASES) {
+            long millis = result.getPhaseDurationMillis(phase);
+            if (millis >= 0) {
+                buffer.put((byte) phase.ordinal());
+                buffer.putLong(millis);
+            }
+        }
+        buffer.putShort((short) errorCount);
+        for (byte[] error : errorBytes) {
+            putString(buffer, error);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a record whose payload starts at the buffer's position
+     */
+    static Record decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported result record version: " + version);
+        }
+        long timestamp = buffer.getLong();
+        long runDuration = buffer.getLong();
+        boolean ok = buffer.get() != 0;
+        int consecutiveFailures = buffer.getInt();
+        long lastSuccess = buffer.getLong();
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        String checkName = getString(buffer);
+
+        CheckResult result = new CheckResult(checkName, ok);
+        result.setUuid(uuid.toString());
+        result.setTimestamp(Instant.ofEpochMilli(timestamp));
+        result.setRunDurationMillis(runDuration);
+
+        int phaseCount = buffer.get();
+        for (int i = 0; i < phaseCount; i++) {
+            int ordinal = buffer.get();
+            long millis = buffer.getLong();
+            if (ordinal >= 0 && ordinal < PHASES.length) {
+                result.setPhaseDurationMillis(PHASES[ordinal], millis);
+            }
+        }
+
+        int errorCount = Short.toUnsignedInt(buffer.getShort());
+        List<String> errors = new ArrayList<>(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+            errors.add(getString(buffer));
+        }
+        result.setErrors(errors);
+
+        return new Record(result, consecutiveFailures, lastSuccess);
+    }
+
+    /**
+     * Read just the check name of a record, for rebuilding the index
+     */
+    static String decodeCheckName(ByteBuffer buffer) {
+        // version, timestamp, duration, ok, failures, lastSuccess, uuid
+        buffer.position(buffer.position() + 1 + 8 + 8 + 1 + 4 + 8 + 16);
+        return getString(buffer);
+    }
+
+    private static byte[] utf8(String value, int maxChars) {
+        if (value == null) {
+            return new byte[0];
+        }
+        String truncated = value.length() > maxChars ? value.substring(0, maxChars) : value;
+        return truncated.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value != null) {
+            try {
+                return UUID.fromString(value);
+            } catch (IllegalArgumentException e) {
+                // Fall through to the nil UUID
+            }
+        }
+        return new UUID(0, 0);
+    }
+}
@@ -0,0 +1,123 @@
+package com.kuberhealthy.check;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CheckTask} cancellation of waiting and running bodies on a single-thread executor
+ */
+class CheckTaskTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createExecutor() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void completesWithTheBodysResult() throws Exception {
+        CheckTask<String> task = CheckTask.submit(() -> "ok", executor);
+        assertEquals("ok", task.future().get(5, TimeUnit.SECONDS));
+        assertFalse(task.cancel());
+    }
+
+    @Test
+    void completesExceptionallyWhenTheBodyThrows() {
+        CheckTask<String> task = CheckTask.submit(() -> {
+            throw new IllegalStateException("boom");
+        }, executor);
+        CompletionException error = assertThrows(CompletionException.class, () -> task.future().join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    @Test
+    void dropsABodyThatHasNotStarted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CheckTask<String> blocker = CheckTask.submit(() -> {
+            awaitQuietly(release);
+            return "first";
+        }, executor);
+        CheckTask<String> queued = CheckTask.submit(() -> "second", executor);
+
+        assertTrue(queued.cancel());
+        assertTrue(queued.future().isCancelled());
+
+        release.countDown();
+        assertEquals("first", blocker.future().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interruptsARunningBodyAndWaitsForItToReturn() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CheckTask<String> task = CheckTask.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+                return "slept";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                // Still cleaning up: the future must not complete yet
+                awaitQuietly(release);
+                return "cancelled";
+            }
+        }, executor);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(task.cancel());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(task.future().isDone());
+
+        release.countDown();
+        assertEquals("cancelled", task.future().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void doesNotLeakAnInterruptIntoTheNextBody() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CheckTask<String> task = CheckTask.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                // Returning without restoring the flag is fine; it must not reach the next task either way
+                Thread.currentThread().interrupt();
+            }
+            return "first";
+        }, executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        task.cancel();
+        task.future().get(5, TimeUnit.SECONDS);
+
+        CheckTask<Boolean> next = CheckTask.submit(() -> Thread.currentThread().isInterrupted(), executor);
+        assertFalse(next.future().get(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
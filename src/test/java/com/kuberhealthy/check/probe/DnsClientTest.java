@@ -0,0 +1,270 @@
+package com.kuberhealthy.check.probe;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * {@link DnsClient} against a stub DNS server on a loopback UDP and TCP port
+ * that answers A queries from a fixed table
+ */
+class DnsClientTest {
+    
+    private static final List<String> SEARCH = List.of("checks.svc.cluster.local", "svc.cluster.local");
+    
+    private StubDnsServer server;
+    private DnsClient client;
+    
+    @BeforeEach
+    void start() throws IOException {
+        server = new StubDnsServer();
+        client = new DnsClient(server.address(), SEARCH, 2,
+            Map.of("pinned.example", List.of(InetAddress.getByName("192.0.2.7"))));
+    }
+    
+    @AfterEach
+    void stop() {
+        client.close();
+        server.close();
+    }
+    
+    @Test
+    void resolvesARecord() throws Exception {
+        server.records.put("www.example.com", address("198.51.100.10"));
+        
+        assertEquals(List.of(address("198.51.100.10")), resolve("www.example.com"));
+        // Enough dots to be tried as-is before the search list
+        assertEquals(List.of("www.example.com"), server.queries);
+    }
+    
+    @Test
+    void expandsShortNamesWithSearchList() throws Exception {
+        server.records.put("api.svc.cluster.local", address("10.96.0.20"));
+        
+        assertEquals(List.of(address("10.96.0.20")), resolve("api"));
+        assertEquals(List.of("api.checks.svc.cluster.local", "api.svc.cluster.local"), server.queries);
+    }
+    
+    @Test
+    void failsOnNxdomainAfterWholeSearchList() throws Exception {
+        Throwable error = failure("missing");
+        
+        assertTrue(error instanceof UnknownHostException, String.valueOf(error));
+        assertEquals("no such host", error.getMessage());
+        assertEquals(List.of("missing.checks.svc.cluster.local", "missing.svc.cluster.local", "missing"),
+            server.queries);
+    }
+    
+    @Test
+    void failsOnServfailWithoutTryingFurtherNames() throws Exception {
+        server.servfail.add("flaky.checks.svc.cluster.local");
+        server.records.put("flaky.svc.cluster.local", address("10.96.0.30"));
+        
+        Throwable error = failure("flaky");
+        
+        assertTrue(error instanceof UnknownHostException, String.valueOf(error));
+        assertEquals("server returned SERVFAIL for flaky.checks.svc.cluster.local", error.getMessage());
+        assertEquals(List.of("flaky.checks.svc.cluster.local"), server.queries);
+    }
+    
+    @Test
+    void trailingDotSkipsSearchList() throws Exception {
+        server.records.put("db", address("10.96.0.40"));
+        
+        assertEquals(List.of(address("10.96.0.40")), resolve("db."));
+        assertEquals(List.of("db"), server.queries);
+    }
+    
+    @Test
+    void retriesTruncatedAnswersOverTcp() throws Exception {
+        server.records.put("big.example.com", address("198.51.100.20"));
+        server.truncated.add("big.example.com");
+        
+        assertEquals(List.of(address("198.51.100.20")), resolve("big.example.com"));
+        assertEquals(List.of("big.example.com"), server.queries);
+        assertEquals(List.of("big.example.com"), server.tcpQueries);
+    }
+    
+    @Test
+    void answersFromHostsWithoutQuerying() throws Exception {
+        assertEquals(List.of(address("192.0.2.7")), resolve("pinned.example"));
+        assertEquals(List.of(), server.queries);
+    }
+    
+    @Test
+    void returnsLiteralsWithoutQuerying() throws Exception {
+        assertEquals(List.of(address("203.0.113.5")), resolve("203.0.113.5"));
+        assertEquals(List.of(), server.queries);
+    }
+    
+    private List<InetAddress> resolve(String name) throws Exception {
+        return client.resolve(name).get(10, TimeUnit.SECONDS);
+    }
+    
+    private Throwable failure(String name) throws Exception {
+        try {
+            List<InetAddress> addresses = resolve(name);
+            return fail("Expected " + name + " not to resolve, got " + addresses);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+    
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+    
+    /**
+     * Answers A queries for names in {@link #records}, SERVFAIL for names in
+     * {@link #servfail} and NXDOMAIN for everything else; AAAA queries for
+     * known names get an empty answer. Names in {@link #truncated} only get a
+     * truncated, empty answer over UDP. Records the name of every A query.
+     */
+    private static class StubDnsServer {
+        private final Map<String, InetAddress> records = new ConcurrentHashMap<>();
+        private final Set<String> servfail = ConcurrentHashMap.newKeySet();
+        private final Set<String> truncated = ConcurrentHashMap.newKeySet();
+        private final List<String> queries = new CopyOnWriteArrayList<>();
+        private final List<String> tcpQueries = new CopyOnWriteArrayList<>();
+        private final DatagramChannel channel;
+        private final ServerSocketChannel listener;
+        
+        StubDnsServer() throws IOException {
+            channel = DatagramChannel.open();
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            listener = ServerSocketChannel.open();
+            listener.bind(channel.getLocalAddress());
+            Thread thread = new Thread(this::serve, "stub-dns");
+            thread.setDaemon(true);
+            thread.start();
+            Thread tcpThread = new Thread(this::serveTcp, "stub-dns-tcp");
+            tcpThread.setDaemon(true);
+            tcpThread.start();
+        }
+        
+        InetSocketAddress address() throws IOException {
+            return (InetSocketAddress) channel.getLocalAddress();
+        }
+        
+        void close() {
+            try {
+                channel.close();
+                listener.close();
+            } catch (IOException e) {
+                // Nothing more to release
+            }
+        }
+        
+        private void serve() {
+            ByteBuffer query = ByteBuffer.allocate(512);
+            while (channel.isOpen()) {
+                try {
+                    query.clear();
+                    SocketAddress client = channel.receive(query);
+                    query.flip();
+                    channel.send(answer(query, false), client);
+                } catch (ClosedChannelException e) {
+                    return;
+                } catch (IOException e) {
+                    // Drop the query; the client retransmits
+                }
+            }
+        }
+        
+        private void serveTcp() {
+            while (listener.isOpen()) {
+                try (SocketChannel connection = listener.accept()) {
+                    ByteBuffer length = ByteBuffer.allocate(2);
+                    readFully(connection, length);
+                    ByteBuffer query = ByteBuffer.allocate(length.getShort(0) & 0xFFFF);
+                    readFully(connection, query);
+                    query.flip();
+                    ByteBuffer answer = answer(query, true);
+                    ByteBuffer response = ByteBuffer.allocate(2 + answer.remaining());
+                    response.putShort((short) answer.remaining()).put(answer).flip();
+                    while (response.hasRemaining()) {
+                        connection.write(response);
+                    }
+                } catch (ClosedChannelException e) {
+                    return;
+                } catch (IOException e) {
+                    // Drop the connection; the client's query fails
+                }
+            }
+        }
+        
+        private static void readFully(SocketChannel connection, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (connection.read(buffer) < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+        
+        private ByteBuffer answer(ByteBuffer query, boolean overTcp) {
+            List<String> labels = new ArrayList<>();
+            int position = 12;
+            int length;
+            while ((length = query.get(position) & 0xFF) != 0) {
+                byte[] label = new byte[length];
+                query.get(position + 1, label);
+                labels.add(new String(label, StandardCharsets.US_ASCII));
+                position += length + 1;
+            }
+            int questionEnd = position + 1 + 4;
+            int type = query.getShort(position + 1) & 0xFFFF;
+            String name = String.join(".", labels);
+            
+            InetAddress address = records.get(name);
+            int rcode = servfail.contains(name) ? 2 : address == null ? 3 : 0;
+            boolean truncate = !overTcp && truncated.contains(name);
+            boolean answered = type == 1 && rcode == 0 && !truncate;
+            if (type == 1) {
+                (overTcp ? tcpQueries : queries).add(name);
+            }
+            
+            ByteBuffer response = ByteBuffer.allocate(questionEnd + (answered ? 16 : 0));
+            response.putShort(query.getShort(0));
+            response.putShort((short) (0x8180 | (truncate ? 0x0200 : 0) | rcode));
+            response.putShort((short) 1);
+            response.putShort((short) (answered ? 1 : 0));
+            response.putShort((short) 0);
+            response.putShort((short) 0);
+            response.put(query.array(), 12, questionEnd - 12);
+            if (answered) {
+                response.putShort((short) 0xC00C); // pointer to the question name
+                response.putShort((short) 1);
+                response.putShort((short) 1);
+                response.putInt(60);
+                response.putShort((short) 4);
+                response.put(address.getAddress());
+            }
+            response.flip();
+            return response;
+        }
+    }
+}
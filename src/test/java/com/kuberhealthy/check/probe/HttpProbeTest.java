@@ -0,0 +1,125 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link HttpProbe} against a loopback HTTP server
+ */
+class HttpProbeTest {
+    
+    private HttpServer server;
+    private String baseUrl;
+    private HttpProbe probe;
+    
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/healthy", exchange -> respond(exchange, 200, "status: all systems healthy"));
+        server.createContext("/missing", exchange -> respond(exchange, 404, "not found"));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        probe = new HttpProbe(HttpClient.newHttpClient());
+    }
+    
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+    
+    @Test
+    void passesOn2xxByDefault() throws Exception {
+        assertNull(failure(spec("/healthy", 0, null)));
+    }
+    
+    @Test
+    void failsOnNon2xxByDefault() throws Exception {
+        Throwable error = failure(spec("/missing", 0, null));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertEquals(baseUrl + "/missing returned HTTP 404, expected 2xx", error.getMessage());
+    }
+    
+    @Test
+    void passesOnExpectedStatus() throws Exception {
+        assertNull(failure(spec("/missing", 404, null)));
+    }
+    
+    @Test
+    void failsOnOtherThanExpectedStatus() throws Exception {
+        Throwable error = failure(spec("/healthy", 204, null));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertEquals(baseUrl + "/healthy returned HTTP 200, expected 204", error.getMessage());
+    }
+    
+    @Test
+    void passesWhenBodyContainsText() throws Exception {
+        assertNull(failure(spec("/healthy", 0, "all systems healthy")));
+    }
+    
+    @Test
+    void failsWhenBodyLacksText() throws Exception {
+        Throwable error = failure(spec("/healthy", 0, "degraded"));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertEquals("Response body from " + baseUrl + "/healthy does not contain 'degraded'", error.getMessage());
+    }
+    
+    @Test
+    void failsWhenStatusMismatchesEvenIfBodyMatches() throws Exception {
+        Throwable error = failure(spec("/missing", 0, "not found"));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertTrue(error.getMessage().contains("returned HTTP 404"), error.getMessage());
+    }
+    
+    private HealthCheck.ProbeSpec spec(String path, int expectedStatus, String bodyContains) {
+        HealthCheck.ProbeSpec spec = new HealthCheck.ProbeSpec();
+        spec.setType("http");
+        spec.setUrl(baseUrl + path);
+        spec.setExpectedStatus(expectedStatus);
+        spec.setBodyContains(bodyContains);
+        return spec;
+    }
+    
+    /**
+     * Run the probe and return why it failed, or null if it passed
+     */
+    private Throwable failure(HealthCheck.ProbeSpec spec) throws Exception {
+        try {
+            probe.run(spec, Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        }
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TcpProbe} against loopback ports that are listening and closed
+ */
+class TcpProbeTest {
+    
+    private AsynchronousChannelGroup channelGroup;
+    private DnsClient dnsClient;
+    private TcpProbe probe;
+    
+    @BeforeEach
+    void createProbe() throws IOException {
+        channelGroup = AsynchronousChannelGroup.withFixedThreadPool(1, Executors.defaultThreadFactory());
+        // Nothing here needs a lookup; an unused nameserver keeps the test off the network
+        dnsClient = new DnsClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), 53), List.of(), 1,
+            Map.of("check-target.local", List.of(InetAddress.getLoopbackAddress())));
+        probe = new TcpProbe(channelGroup, dnsClient);
+    }
+    
+    @AfterEach
+    void closeProbe() throws IOException {
+        dnsClient.close();
+        channelGroup.shutdownNow();
+    }
+    
+    @Test
+    void passesWhenPortIsListening() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            assertNull(failure(spec("127.0.0.1", server.getLocalPort())));
+        }
+    }
+    
+    @Test
+    void resolvesHostNameBeforeConnecting() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            assertNull(failure(spec("check-target.local", server.getLocalPort())));
+        }
+    }
+    
+    @Test
+    void failsWhenPortIsClosed() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+        
+        Throwable error = failure(spec("127.0.0.1", port));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertTrue(error.getMessage().startsWith("Failed to connect to 127.0.0.1:" + port + ": "), error.getMessage());
+    }
+    
+    @Test
+    void failsWithoutHostOrPort() throws Exception {
+        Throwable error = failure(spec("127.0.0.1", 0));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertTrue(error.getMessage().contains("needs a host and port"), error.getMessage());
+    }
+    
+    private static HealthCheck.ProbeSpec spec(String host, int port) {
+        HealthCheck.ProbeSpec spec = new HealthCheck.ProbeSpec();
+        spec.setType("tcp");
+        spec.setHost(host);
+        spec.setPort(port);
+        return spec;
+    }
+    
+    /**
+     * Run the probe and return why it failed, or null if it passed
+     */
+    private Throwable failure(HealthCheck.ProbeSpec spec) throws Exception {
+        try {
+            probe.run(spec, Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        }
+    }
+}
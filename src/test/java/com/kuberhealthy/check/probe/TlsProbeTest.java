@@ -0,0 +1,201 @@
+package com.kuberhealthy.check.probe;
+
+import com.kuberhealthy.model.HealthCheck;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TlsProbe} against a loopback TLS server whose self-signed
+ * certificate for {@code localhost} is valid for two days
+ */
+class TlsProbeTest {
+    
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    
+    private static Path keyStoreDirectory;
+    private static KeyStore keyStore;
+    
+    private AsynchronousChannelGroup channelGroup;
+    private DnsClient dnsClient;
+    private TcpProbe tcpProbe;
+    private SSLServerSocket server;
+    private Thread acceptor;
+    
+    @BeforeAll
+    static void createCertificate() throws Exception {
+        keyStoreDirectory = Files.createTempDirectory("tls-probe-test");
+        Path keyStoreFile = keyStoreDirectory.resolve("server.p12");
+        Process keytool = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+            "-genkeypair", "-alias", "server", "-keyalg", "EC", "-validity", "2",
+            "-dname", "CN=localhost", "-ext", "SAN=dns:localhost",
+            "-storetype", "PKCS12", "-keystore", keyStoreFile.toString(),
+            "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+            .redirectErrorStream(true)
+            .start();
+        String output = new String(keytool.getInputStream().readAllBytes());
+        if (!keytool.waitFor(60, TimeUnit.SECONDS) || keytool.exitValue() != 0) {
+            throw new IllegalStateException("keytool failed: " + output);
+        }
+        keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(in, PASSWORD);
+        }
+    }
+    
+    @AfterAll
+    static void deleteCertificate() throws IOException {
+        Files.deleteIfExists(keyStoreDirectory.resolve("server.p12"));
+        Files.deleteIfExists(keyStoreDirectory);
+    }
+    
+    @BeforeEach
+    void startServer() throws Exception {
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+        server = (SSLServerSocket) serverContext.getServerSocketFactory()
+            .createServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::serve, "tls-probe-test-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        
+        channelGroup = AsynchronousChannelGroup.withFixedThreadPool(1, Executors.defaultThreadFactory());
+        dnsClient = new DnsClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), 53), List.of(), 1,
+            Map.of("localhost", List.of(InetAddress.getLoopbackAddress())));
+        tcpProbe = new TcpProbe(channelGroup, dnsClient);
+    }
+    
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+        dnsClient.close();
+        channelGroup.shutdownNow();
+    }
+    
+    @Test
+    void passesWithTrustedCertificate() throws Exception {
+        assertNull(failure(trustingProbe(), spec("localhost", 0)));
+    }
+    
+    @Test
+    void failsWhenCertificateExpiresTooSoon() throws Exception {
+        Throwable error = failure(trustingProbe(), spec("localhost", 7));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        String prefix = "Certificate for localhost:" + server.getLocalPort() + " expires in 1 days";
+        assertTrue(error.getMessage().startsWith(prefix), error.getMessage());
+        assertTrue(error.getMessage().endsWith("need at least 7"), error.getMessage());
+    }
+    
+    @Test
+    void failsWithUntrustedCertificate() throws Exception {
+        Throwable error = failure(new TlsProbe(channelGroup, tcpProbe, SSLContext.getDefault()), spec("localhost", 0));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        String prefix = "TLS handshake with localhost:" + server.getLocalPort() + " failed: ";
+        assertTrue(error.getMessage().startsWith(prefix), error.getMessage());
+    }
+    
+    @Test
+    void failsWhenHostNameDoesNotMatch() throws Exception {
+        // Trusted, but issued for localhost rather than the address we connect to
+        Throwable error = failure(trustingProbe(), spec("127.0.0.1", 0));
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        String prefix = "TLS handshake with 127.0.0.1:" + server.getLocalPort() + " failed: ";
+        assertTrue(error.getMessage().startsWith(prefix), error.getMessage());
+    }
+    
+    @Test
+    void failsWhenNothingListens() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        
+        HealthCheck.ProbeSpec spec = spec("localhost", 0);
+        spec.setPort(port);
+        Throwable error = failure(trustingProbe(), spec);
+        
+        assertTrue(error instanceof ProbeException, String.valueOf(error));
+        assertTrue(error.getMessage().startsWith("Failed to connect to localhost:" + port), error.getMessage());
+    }
+    
+    /**
+     * A probe that trusts only the test certificate
+     */
+    private TlsProbe trustingProbe() throws Exception {
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagers.getTrustManagers(), null);
+        return new TlsProbe(channelGroup, tcpProbe, clientContext);
+    }
+    
+    private HealthCheck.ProbeSpec spec(String host, int minValidDays) {
+        HealthCheck.ProbeSpec spec = new HealthCheck.ProbeSpec();
+        spec.setType("tls");
+        spec.setHost(host);
+        spec.setPort(server.getLocalPort());
+        spec.setMinValidDays(minValidDays);
+        return spec;
+    }
+    
+    /**
+     * Run the probe and return why it failed, or null if it passed
+     */
+    private static Throwable failure(TlsProbe probe, HealthCheck.ProbeSpec spec) throws Exception {
+        try {
+            probe.run(spec, Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        }
+    }
+    
+    /**
+     * Complete the server side of each handshake, then wait for the probe to hang up
+     */
+    private void serve() {
+        while (!server.isClosed()) {
+            try (SSLSocket socket = (SSLSocket) server.accept()) {
+                socket.startHandshake();
+                socket.getInputStream().read();
+            } catch (IOException e) {
+                // Failed handshakes are part of the tests; a closed server ends the loop
+            }
+        }
+    }
+}
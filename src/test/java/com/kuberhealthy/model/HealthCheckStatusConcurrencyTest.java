@@ -0,0 +1,183 @@
+package com.kuberhealthy.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writers apply results through {@link HealthCheck#updateStatus} while readers
+ * serialize the current status, as the HTTP endpoints do. No update may be lost
+ * and no serialized snapshot may mix fields from two different results.
+ */
+class HealthCheckStatusConcurrencyTest {
+    
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int RESULTS_PER_WRITER = 5_000;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    
+    @Test
+    void countsEveryFailureUnderConcurrentUpdates() throws Exception {
+        HealthCheck healthCheck = new HealthCheck("stress", "default", 60, 30);
+        
+        Queue<String> inconsistencies = run(healthCheck, (writer, i) -> failure(writer, i));
+        
+        HealthCheckStatus status = healthCheck.getStatus();
+        assertTrue(inconsistencies.isEmpty(), "Inconsistent snapshots: " + firstFew(inconsistencies));
+        assertEquals(WRITERS * RESULTS_PER_WRITER, status.getConsecutiveFailures());
+        assertEquals(HealthCheckStatus.CheckState.FAILED, status.getState());
+        assertConsistent(objectMapper.readTree(objectMapper.writeValueAsString(status)), inconsistencies);
+        assertTrue(inconsistencies.isEmpty(), "Inconsistent final status: " + firstFew(inconsistencies));
+    }
+    
+    @Test
+    void snapshotsNeverMixSuccessAndFailureFields() throws Exception {
+        HealthCheck healthCheck = new HealthCheck("stress", "default", 60, 30);
+        
+        // Every third result passes, so writers keep resetting each other's failure streaks
+        Queue<String> inconsistencies = run(healthCheck,
+            (writer, i) -> i % 3 == 0 ? success(writer, i) : failure(writer, i));
+        
+        assertTrue(inconsistencies.isEmpty(), "Inconsistent snapshots: " + firstFew(inconsistencies));
+    }
+    
+    /**
+     * Run writers and readers against one check until every writer is done
+     *
+     * @return Descriptions of every inconsistent snapshot a reader saw
+     */
+    private Queue<String> run(HealthCheck healthCheck, ResultFactory results) throws Exception {
+        Queue<String> inconsistencies = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshots = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < RESULTS_PER_WRITER; i++) {
+                        CheckResult result = results.create(writer, i);
+                        Instant completedAt = Instant.ofEpochSecond(sequence(writer, i));
+                        healthCheck.updateStatus(status -> status.running(completedAt));
+                        healthCheck.updateStatus(status -> status.withResult(result, completedAt));
+                    }
+                    return null;
+                }));
+            }
+            
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        String json = objectMapper.writeValueAsString(healthCheck.getStatus());
+                        assertConsistent(objectMapper.readTree(json), inconsistencies);
+                        snapshots.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            writing.set(false);
+            pool.shutdownNow();
+        }
+        
+        assertTrue(snapshots.get() > 0, "Readers never took a snapshot");
+        return inconsistencies;
+    }
+    
+    /**
+     * Check that a serialized status is entirely derived from the result named by
+     * its currentCheckUUID
+     */
+    private static void assertConsistent(JsonNode status, Queue<String> inconsistencies) {
+        JsonNode uuid = status.get("currentCheckUUID");
+        if (uuid == null || uuid.isNull()) {
+            return;
+        }
+        String state = status.get("state").asText();
+        boolean ok = status.get("ok").asBoolean();
+        JsonNode errors = status.get("errors");
+        
+        if (uuid.asText().startsWith("ok-")) {
+            boolean matches = ok
+                && errors.isEmpty()
+                && status.get("consecutiveFailures").asInt() == 0
+                && (state.equals("COMPLETED") || state.equals("RUNNING"))
+                && status.get("lastSuccess").asText().equals(
+                    Instant.ofEpochSecond(Long.parseLong(uuid.asText().substring(3))).toString());
+            if (!matches) {
+                inconsistencies.add(status.toString());
+            }
+        } else {
+            boolean matches = !ok
+                && errors.size() == 1
+                && errors.get(0).asText().equals("error from " + uuid.asText())
+                && status.get("consecutiveFailures").asInt() > 0
+                && (state.equals("FAILED") || state.equals("RUNNING"));
+            if (!matches) {
+                inconsistencies.add(status.toString());
+            }
+        }
+    }
+    
+    private static CheckResult failure(int writer, int i) {
+        CheckResult result = new CheckResult("stress", false);
+        result.setUuid("fail-" + sequence(writer, i));
+        result.addError("error from " + result.getUuid());
+        return result;
+    }
+    
+    private static CheckResult success(int writer, int i) {
+        CheckResult result = new CheckResult("stress", true);
+        result.setUuid("ok-" + sequence(writer, i));
+        return result;
+    }
+    
+    /**
+     * Unique per result, and used as its completion time in seconds so
+     * lastSuccess can be traced back to the result that set it
+     */
+    private static long sequence(int writer, int i) {
+        return (long) writer * RESULTS_PER_WRITER + i + 1;
+    }
+    
+    private static String firstFew(Queue<String> inconsistencies) {
+        return inconsistencies.stream().limit(5).toList().toString();
+    }
+    
+    private interface ResultFactory {
+        CheckResult create(int writer, int i);
+    }
+}
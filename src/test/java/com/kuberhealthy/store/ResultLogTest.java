@@ -0,0 +1,186 @@
+package com.kuberhealthy.store;
+
+import com.kuberhealthy.model.CheckPhase;
+import com.kuberhealthy.model.CheckResult;
+import com.kuberhealthy.model.HealthCheckStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ResultLog} records surviving a reopen, rotating out old segments and
+ * recovering from a corrupted record at the end of the log
+ */
+class ResultLogTest {
+
+    // The smallest segment ResultLog allows
+    private static final int SEGMENT_BYTES = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    private ResultLog log;
+    private HealthCheckStatus status;
+
+    @BeforeEach
+    void open() throws IOException {
+        log = new ResultLog(directory, SEGMENT_BYTES, 2);
+        status = HealthCheckStatus.initial();
+    }
+
+    @AfterEach
+    void close() {
+        log.close();
+    }
+
+    @Test
+    void restoresStatusAndHistoryAfterReopen() throws IOException {
+        CheckResult passed = result("checks.dns", true);
+        passed.setRunDurationMillis(120);
+        passed.setPhaseDurationMillis(CheckPhase.RUN, 100);
+        append(passed);
+        CheckResult firstFailure = append(result("checks.dns", false, "connection refused"));
+        CheckResult secondFailure = append(result("checks.dns", false, "timed out", "no route to host"));
+        append(result("checks.http", true));
+
+        reopen();
+
+        HealthCheckStatus restored = log.getLatestStatus("checks.dns");
+        assertEquals(HealthCheckStatus.CheckState.FAILED, restored.getState());
+        assertFalse(restored.isOk());
+        assertEquals(List.of("timed out", "no route to host"), restored.getErrors());
+        assertEquals(2, restored.getConsecutiveFailures());
+        assertEquals(passed.getTimestamp().toEpochMilli(), restored.getLastSuccess().toEpochMilli());
+        assertEquals(secondFailure.getUuid(), restored.getCurrentCheckUUID());
+
+        List<CheckResult> history = log.getHistory("checks.dns", 10);
+        assertEquals(List.of(secondFailure.getUuid(), firstFailure.getUuid(), passed.getUuid()), uuids(history));
+        CheckResult oldest = history.get(2);
+        assertTrue(oldest.isOk());
+        assertEquals(120, oldest.getRunDurationMillis());
+        assertEquals(100, oldest.getPhaseDurationMillis(CheckPhase.RUN));
+        assertEquals(passed.getTimestamp().toEpochMilli(), oldest.getTimestamp().toEpochMilli());
+
+        assertEquals(2, log.getHistory("checks.dns", 2).size());
+        assertEquals(1, log.getHistory("checks.http", 10).size());
+        assertNull(log.getLatestStatus("checks.unknown"));
+    }
+
+    @Test
+    void deletesOldestSegmentsPastMaxSegments() throws IOException {
+        // Each record carries the most errors a record keeps, about 32 KiB, so a segment holds ~30
+        String error = "x".repeat(ResultRecordCodec.MAX_ERROR_CHARS);
+        List<String> appended = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            String[] errors = new String[ResultRecordCodec.MAX_ERRORS];
+            Arrays.fill(errors, error);
+            appended.add(append(result("checks.big", false, errors)).getUuid());
+        }
+
+        assertEquals(2, segmentFiles());
+        List<String> kept = uuids(log.getHistory("checks.big", appended.size()));
+        assertTrue(kept.size() < appended.size(), "kept " + kept.size() + " records");
+        // Whatever is kept is the newest records, newest first
+        List<String> newest = new ArrayList<>(appended.subList(appended.size() - kept.size(), appended.size()));
+        Collections.reverse(newest);
+        assertEquals(newest, kept);
+
+        reopen();
+
+        assertEquals(2, segmentFiles());
+        assertEquals(kept, uuids(log.getHistory("checks.big", appended.size())));
+        assertEquals(appended.get(appended.size() - 1), log.getLatestStatus("checks.big").getCurrentCheckUUID());
+    }
+
+    @Test
+    void truncatesACorruptedTrailingRecord() throws IOException {
+        CheckResult first = append(result("checks.tcp", true));
+        CheckResult second = append(result("checks.tcp", false, "refused"));
+        CheckResult third = append(result("checks.tcp", true));
+        log.close();
+
+        // Records follow the 8-byte segment header, each behind an 8-byte length and checksum header
+        int thirdOffset = 8;
+        for (CheckResult written : List.of(first, second)) {
+            thirdOffset += 8 + ResultRecordCodec.encode(written, 0, 0).length;
+        }
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            channel.read(payloadByte, thirdOffset + 8 + 1);
+            payloadByte.put(0, (byte) ~payloadByte.get(0));
+            channel.write(payloadByte.flip(), thirdOffset + 8 + 1);
+        }
+
+        log = new ResultLog(directory, SEGMENT_BYTES, 2);
+
+        assertEquals(List.of(second.getUuid(), first.getUuid()), uuids(log.getHistory("checks.tcp", 10)));
+        assertEquals(second.getUuid(), log.getLatestStatus("checks.tcp").getCurrentCheckUUID());
+
+        // New records go where the corrupt one was, and survive the next reopen
+        CheckResult fourth = append(result("checks.tcp", true));
+        reopen();
+
+        assertEquals(List.of(fourth.getUuid(), second.getUuid(), first.getUuid()),
+            uuids(log.getHistory("checks.tcp", 10)));
+        assertFalse(uuids(log.getHistory("checks.tcp", 10)).contains(third.getUuid()));
+    }
+
+    private CheckResult append(CheckResult result) {
+        status = status.withResult(result, result.getTimestamp());
+        log.append(result, status);
+        return result;
+    }
+
+    private void reopen() throws IOException {
+        log.close();
+        log = new ResultLog(directory, SEGMENT_BYTES, 2);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static CheckResult result(String checkName, boolean ok, String... errors) {
+        CheckResult result = new CheckResult(checkName, ok);
+        for (String error : errors) {
+            result.addError(error);
+        }
+        return result;
+    }
+
+    private static List<String> uuids(List<CheckResult> results) {
+        List<String> uuids = new ArrayList<>(results.size());
+        for (CheckResult result : results) {
+            uuids.add(result.getUuid());
+        }
+        return uuids;
+    }
+}